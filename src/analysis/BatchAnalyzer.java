@@ -0,0 +1,266 @@
+package analysis;
+
+import engine.EvalCache;
+import engine.Evaluator;
+import engine.Fen;
+import engine.Moves;
+import engine.Position;
+import engine.Search;
+import engine.SearchResult;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Análise em lote de arquivos de posições FEN/EPD, sem interface gráfica.
+ * <p>
+ * O arquivo de entrada é lido em blocos de tamanho fixo; cada bloco é dividido entre as threads de um
+ * {@link ForkJoinPool}, enquanto o bloco anterior é escrito na saída e o próximo é lido. Assim a memória usada
+ * fica limitada a poucos blocos, qualquer que seja o tamanho do arquivo, e os resultados saem na mesma ordem da entrada.
+ * Cada thread do pool reutiliza sempre a mesma {@link Position} e a mesma {@link Search}.
+ */
+public class BatchAnalyzer implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /**
+     * Quantidade de linhas a partir da qual uma tarefa é dividida em duas
+     */
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final ForkJoinPool pool;
+    private final int depth;
+    private final long nodeLimit;
+    private final boolean evalOnly;
+    private final int chunkSize;
+    private final EvalCache cache;
+
+    /**
+     * Estado reutilizável de cada thread do pool
+     */
+    private static final class Worker {
+        final Position position = new Position();
+        final Search search = new Search();
+
+        Worker(EvalCache cache) {
+            search.setCache(cache);
+        }
+    }
+
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * Cria um analisador em lote
+     *
+     * @param threads   a quantidade de threads de análise
+     * @param depth     a profundidade de busca em meios-lances, pelo menos 1
+     * @param nodeLimit o limite de nós por posição, ou 0 para não limitar
+     * @param evalOnly  se verdadeiro, apenas a avaliação estática é calculada, sem busca
+     * @param chunkSize a quantidade de linhas lidas de cada vez
+     */
+    public BatchAnalyzer(int threads, int depth, long nodeLimit, boolean evalOnly, int chunkSize) {
+        this(threads, depth, nodeLimit, evalOnly, chunkSize, null);
+    }
+
+    /**
+     * Cria um analisador em lote que consulta e preenche o cache persistente dado, de modo que posições já analisadas
+     * em execuções anteriores (até a mesma profundidade) não são buscadas de novo
+     */
+    public BatchAnalyzer(int threads, int depth, long nodeLimit, boolean evalOnly, int chunkSize, EvalCache cache) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Profundidade inválida: " + depth);
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.depth = depth;
+        this.nodeLimit = nodeLimit;
+        this.evalOnly = evalOnly;
+        this.chunkSize = chunkSize;
+        this.cache = cache;
+        this.workers = ThreadLocal.withInitial(() -> new Worker(cache));
+    }
+
+    /**
+     * Analisa uma única linha EPD usando o estado da thread atual
+     *
+     * @return a linha de resultado, no formato EPD com as operações ce, acd, acn, bm e pv
+     */
+    public String analyse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return line;
+        }
+
+        String epd = Fen.epdPosition(trimmed);
+        Worker worker = workers.get();
+        try {
+            Fen.parse(epd, worker.position);
+        } catch (IllegalArgumentException e) {
+            return epd + " error \"" + e.getMessage().replace('"', '\'') + "\";";
+        }
+
+        if (evalOnly) {
+            return epd + " ce " + Evaluator.evaluate(worker.position) + ";";
+        }
+
+        SearchResult result = worker.search.search(worker.position, depth, nodeLimit, 0);
+        return epd + " ce " + result.score + "; acd " + result.depth + "; acn " + result.nodes
+                + "; bm " + Moves.toString(result.bestMove) + "; pv " + result.pvString() + ";";
+    }
+
+    /**
+     * Divide um intervalo de linhas do bloco entre as threads do pool
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final String[] lines;
+        private final String[] results;
+        private final int from;
+        private final int to;
+
+        ChunkTask(String[] lines, String[] results, int from, int to) {
+            this.lines = lines;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = analyse(lines[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(lines, results, from, middle), new ChunkTask(lines, results, middle, to));
+        }
+    }
+
+    /**
+     * Analisa as linhas dadas dividindo-as entre as threads do pool
+     *
+     * @return os resultados, na mesma ordem das linhas
+     */
+    public String[] analyse(String[] lines) {
+        String[] results = new String[lines.length];
+        pool.invoke(new ChunkTask(lines, results, 0, lines.length));
+        return results;
+    }
+
+    /**
+     * Analisa todas as linhas da entrada e escreve um resultado por linha na saída, na mesma ordem
+     *
+     * @return a quantidade de linhas processadas
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        long total = 0;
+        String[] pending = null;
+        ForkJoinTask<?> pendingTask = null;
+
+        while (true) {
+            String[] lines = readChunk(in);
+            String[] results = new String[lines.length];
+            ForkJoinTask<?> task = lines.length > 0 ? pool.submit(new ChunkTask(lines, results, 0, lines.length)) : null;
+
+            if (pendingTask != null) {
+                pendingTask.join();
+                for (String result : pending) {
+                    out.write(result);
+                    out.write('\n');
+                }
+                total += pending.length;
+            }
+            if (task == null) {
+                break;
+            }
+            pending = results;
+            pendingTask = task;
+        }
+        out.flush();
+        return total;
+    }
+
+    private String[] readChunk(BufferedReader in) throws IOException {
+        List<String> lines = new ArrayList<>(chunkSize);
+        String line;
+        while (lines.size() < chunkSize && (line = in.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Ponto de entrada da linha de comando:
+     * {@code BatchAnalyzer <entrada.epd> <saida.epd> [--depth N] [--nodes N] [--threads N] [--chunk N] [--eval] [--cache arquivo] [--cache-mb N]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: BatchAnalyzer <entrada.epd> <saida.epd> [--depth N] [--nodes N] [--threads N] [--chunk N] [--eval] [--cache arquivo] [--cache-mb N]");
+            System.exit(1);
+        }
+
+        int depth = 4;
+        long nodes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunk = DEFAULT_CHUNK_SIZE;
+        boolean evalOnly = false;
+        String cacheFile = null;
+        int cacheMegabytes = 256;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--chunk":
+                    chunk = Integer.parseInt(args[++i]);
+                    break;
+                case "--eval":
+                    evalOnly = true;
+                    break;
+                case "--cache":
+                    cacheFile = args[++i];
+                    break;
+                case "--cache-mb":
+                    cacheMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (depth < 1) {
+            System.err.println("A profundidade deve ser pelo menos 1: " + depth);
+            System.exit(1);
+        }
+
+        long start = System.currentTimeMillis();
+        try (EvalCache cache = cacheFile != null ? EvalCache.open(Paths.get(cacheFile), cacheMegabytes) : null;
+             BatchAnalyzer analyzer = new BatchAnalyzer(threads, depth, nodes, evalOnly, chunk, cache);
+             BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            long total = analyzer.run(in, out);
+            System.out.println(total + " posições analisadas em " + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package analysis;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto compactado de inteiros não negativos, no estilo dos "roaring bitmaps".
+ * <p>
+ * Os valores são agrupados em blocos pelos 16 bits mais altos. Cada bloco guarda os 16 bits mais baixos como um vetor
+ * ordenado de {@code char} enquanto tiver até {@link #ARRAY_LIMIT} valores, e como um mapa de 65536 bits (1024
+ * {@code long}) depois disso. Assim conjuntos esparsos ocupam 2 bytes por valor e conjuntos densos ocupam no máximo
+ * 8 KB por bloco, e as operações de conjunto são feitas bloco a bloco, sem descompactar.
+ * <p>
+ * Durante a construção os vetores têm folga; {@link #trim()} ajusta cada vetor ao tamanho exato e deve ser chamado
+ * antes das operações de conjunto (as operações o chamam automaticamente). Os conjuntos devolvidos pelas operações
+ * podem compartilhar blocos com os operandos, então devem ser tratados como somente leitura.
+ */
+public final class CompactBitmap {
+
+    public static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Object[] containers = new Object[4];
+    private int[] sizes = new int[4];
+    private int count;
+    private boolean trimmed = true;
+
+    /**
+     * Acrescenta um valor ao conjunto; valores em ordem crescente são acrescentados sem busca
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = count > 0 && keys[count - 1] == key ? count - 1 : Arrays.binarySearch(keys, 0, count, key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new char[16], 0);
+        }
+        trimmed = false;
+
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                bits[low >>> 6] |= mask;
+                sizes[index]++;
+            }
+            return;
+        }
+
+        char[] array = (char[]) container;
+        int size = sizes[index];
+        int position;
+        if (size == 0 || array[size - 1] < low) {
+            position = size;
+        } else if (array[size - 1] == low) {
+            return;
+        } else {
+            int found = Arrays.binarySearch(array, 0, size, low);
+            if (found >= 0) {
+                return;
+            }
+            position = -found - 1;
+        }
+        if (size == ARRAY_LIMIT) {
+            long[] bits = toBitmap(array, size);
+            bits[low >>> 6] |= 1L << low;
+            containers[index] = bits;
+            sizes[index] = size + 1;
+            return;
+        }
+        if (size == array.length) {
+            array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, size * 2));
+            containers[index] = array;
+        }
+        System.arraycopy(array, position, array, position + 1, size - position);
+        array[position] = low;
+        sizes[index] = size + 1;
+    }
+
+    public boolean contains(int value) {
+        Object container = containerFor((char) (value >>> 16));
+        if (container == null) {
+            return false;
+        }
+        char low = (char) value;
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        int index = Arrays.binarySearch(keys, 0, count, (char) (value >>> 16));
+        return Arrays.binarySearch((char[]) container, 0, sizes[index], low) >= 0;
+    }
+
+    private void insert(int index, char key, Object container, int size) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            containers = Arrays.copyOf(containers, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, count - index);
+        System.arraycopy(containers, index, containers, index + 1, count - index);
+        System.arraycopy(sizes, index, sizes, index + 1, count - index);
+        keys[index] = key;
+        containers[index] = container;
+        sizes[index] = size;
+        count++;
+    }
+
+    /**
+     * Ajusta os vetores internos ao tamanho exato, liberando a folga usada durante a construção
+     */
+    public void trim() {
+        if (trimmed) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (containers[i] instanceof char[] && ((char[]) containers[i]).length != sizes[i]) {
+                containers[i] = Arrays.copyOf((char[]) containers[i], sizes[i]);
+            }
+        }
+        keys = Arrays.copyOf(keys, Math.max(1, count));
+        containers = Arrays.copyOf(containers, Math.max(1, count));
+        sizes = Arrays.copyOf(sizes, Math.max(1, count));
+        trimmed = true;
+    }
+
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += sizes[i];
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Percorre os valores em ordem crescente
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] bits = (long[]) container;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long w = bits[word];
+                    while (w != 0) {
+                        action.accept(high | (word << 6) | Long.numberOfTrailingZeros(w));
+                        w &= w - 1;
+                    }
+                }
+            } else {
+                char[] array = (char[]) container;
+                for (int j = 0; j < sizes[i]; j++) {
+                    action.accept(high | array[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna os primeiros valores do conjunto, em ordem crescente
+     */
+    public int[] first(int limit) {
+        int[] values = new int[(int) Math.min(limit, cardinality())];
+        int filled = 0;
+        for (int i = 0; i < count && filled < values.length; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] bits = (long[]) container;
+                for (int word = 0; word < BITMAP_WORDS && filled < values.length; word++) {
+                    long w = bits[word];
+                    while (w != 0 && filled < values.length) {
+                        values[filled++] = high | (word << 6) | Long.numberOfTrailingZeros(w);
+                        w &= w - 1;
+                    }
+                }
+            } else {
+                char[] array = (char[]) container;
+                for (int j = 0; j < sizes[i] && filled < values.length; j++) {
+                    values[filled++] = high | array[j];
+                }
+            }
+        }
+        return values;
+    }
+
+    int containerCount() {
+        return count;
+    }
+
+    char keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Bloco com os valores cujos 16 bits mais altos são a chave dada, ou {@code null} se não houver nenhum
+     */
+    Object containerFor(char key) {
+        int index = count > 0 && keys[count - 1] == key ? count - 1 : Arrays.binarySearch(keys, 0, count, key);
+        return index < 0 ? null : containers[index];
+    }
+
+    /**
+     * Monta um conjunto a partir de blocos já calculados, em ordem crescente de chave; blocos nulos são ignorados
+     */
+    static CompactBitmap fromContainers(char[] keys, Object[] containers) {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int i = 0; i < keys.length; i++) {
+            if (containers[i] != null) {
+                bitmap.insert(bitmap.count, keys[i], containers[i], cardinality(containers[i]));
+            }
+        }
+        bitmap.trim();
+        return bitmap;
+    }
+
+    public static CompactBitmap and(CompactBitmap a, CompactBitmap b) {
+        a.trim();
+        b.trim();
+        CompactBitmap result = new CompactBitmap();
+        for (int i = 0, j = 0; i < a.count && j < b.count; ) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Object container = and(a.containers[i], b.containers[j]);
+                if (container != null) {
+                    result.insert(result.count, a.keys[i], container, cardinality(container));
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static CompactBitmap or(CompactBitmap a, CompactBitmap b) {
+        a.trim();
+        b.trim();
+        CompactBitmap result = new CompactBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.count || j < b.count) {
+            if (j == b.count || (i < a.count && a.keys[i] < b.keys[j])) {
+                result.insert(result.count, a.keys[i], a.containers[i], a.sizes[i]);
+                i++;
+            } else if (i == a.count || a.keys[i] > b.keys[j]) {
+                result.insert(result.count, b.keys[j], b.containers[j], b.sizes[j]);
+                j++;
+            } else {
+                Object container = or(a.containers[i], b.containers[j]);
+                result.insert(result.count, a.keys[i], container, cardinality(container));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static CompactBitmap andNot(CompactBitmap a, CompactBitmap b) {
+        a.trim();
+        b.trim();
+        CompactBitmap result = new CompactBitmap();
+        for (int i = 0; i < a.count; i++) {
+            Object container = andNot(a.containers[i], b.containerFor(a.keys[i]));
+            if (container != null) {
+                result.insert(result.count, a.keys[i], container, cardinality(container));
+            }
+        }
+        return result;
+    }
+
+    // Operações sobre blocos: vetores de char sempre com o tamanho exato e mapas de 1024 longs.
+    // Os blocos recebidos nunca são modificados; um resultado vazio é representado por null.
+
+    static int cardinality(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int total = 0;
+        for (long word : (long[]) container) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    static Object and(Object a, Object b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        if (a instanceof long[] && b instanceof char[]) {
+            Object swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a instanceof char[]) {
+            char[] array = (char[]) a;
+            char[] result = new char[array.length];
+            int size = 0;
+            if (b instanceof long[]) {
+                long[] bits = (long[]) b;
+                for (char value : array) {
+                    if ((bits[value >>> 6] & (1L << value)) != 0) {
+                        result[size++] = value;
+                    }
+                }
+            } else {
+                char[] other = (char[]) b;
+                for (int i = 0, j = 0; i < array.length && j < other.length; ) {
+                    if (array[i] < other[j]) {
+                        i++;
+                    } else if (array[i] > other[j]) {
+                        j++;
+                    } else {
+                        result[size++] = array[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return size == 0 ? null : Arrays.copyOf(result, size);
+        }
+        long[] x = (long[]) a;
+        long[] y = (long[]) b;
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+            bits[i] = x[i] & y[i];
+        }
+        return shrink(bits);
+    }
+
+    static Object or(Object a, Object b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            char[] result = new char[x.length + y.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < x.length || j < y.length) {
+                if (j == y.length || (i < x.length && x[i] < y[j])) {
+                    result[size++] = x[i++];
+                } else if (i == x.length || x[i] > y[j]) {
+                    result[size++] = y[j++];
+                } else {
+                    result[size++] = x[i++];
+                    j++;
+                }
+            }
+            return size <= ARRAY_LIMIT ? Arrays.copyOf(result, size) : toBitmap(result, size);
+        }
+        long[] bits = a instanceof long[] ? ((long[]) a).clone() : toBitmap((char[]) a, ((char[]) a).length);
+        if (b instanceof long[]) {
+            long[] other = (long[]) b;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] |= other[i];
+            }
+        } else {
+            for (char value : (char[]) b) {
+                bits[value >>> 6] |= 1L << value;
+            }
+        }
+        return bits;
+    }
+
+    static Object andNot(Object a, Object b) {
+        if (a == null || b == null) {
+            return a;
+        }
+        if (a instanceof char[]) {
+            char[] array = (char[]) a;
+            char[] result = new char[array.length];
+            int size = 0;
+            if (b instanceof long[]) {
+                long[] bits = (long[]) b;
+                for (char value : array) {
+                    if ((bits[value >>> 6] & (1L << value)) == 0) {
+                        result[size++] = value;
+                    }
+                }
+            } else {
+                char[] other = (char[]) b;
+                int j = 0;
+                for (char value : array) {
+                    while (j < other.length && other[j] < value) {
+                        j++;
+                    }
+                    if (j == other.length || other[j] != value) {
+                        result[size++] = value;
+                    }
+                }
+            }
+            return size == 0 ? null : Arrays.copyOf(result, size);
+        }
+        long[] bits = ((long[]) a).clone();
+        if (b instanceof long[]) {
+            long[] other = (long[]) b;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] &= ~other[i];
+            }
+        } else {
+            for (char value : (char[]) b) {
+                bits[value >>> 6] &= ~(1L << value);
+            }
+        }
+        return shrink(bits);
+    }
+
+    private static long[] toBitmap(char[] array, int size) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < size; i++) {
+            bits[array[i] >>> 6] |= 1L << array[i];
+        }
+        return bits;
+    }
+
+    /**
+     * Converte um mapa de bits de volta para vetor quando ele tiver poucos valores
+     */
+    private static Object shrink(long[] bits) {
+        int size = cardinality(bits);
+        if (size == 0) {
+            return null;
+        }
+        if (size > ARRAY_LIMIT) {
+            return bits;
+        }
+        char[] array = new char[size];
+        int index = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                array[index++] = (char) ((word << 6) | Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return array;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        trim();
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeChar(keys[i]);
+            if (containers[i] instanceof long[]) {
+                out.writeInt(-1);
+                for (long word : (long[]) containers[i]) {
+                    out.writeLong(word);
+                }
+            } else {
+                char[] array = (char[]) containers[i];
+                out.writeInt(array.length);
+                for (char value : array) {
+                    out.writeChar(value);
+                }
+            }
+        }
+    }
+
+    public static CompactBitmap readFrom(DataInputStream in) throws IOException {
+        CompactBitmap bitmap = new CompactBitmap();
+        int containerCount = in.readInt();
+        for (int i = 0; i < containerCount; i++) {
+            char key = in.readChar();
+            int size = in.readInt();
+            Object container;
+            if (size < 0) {
+                long[] bits = new long[BITMAP_WORDS];
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits[w] = in.readLong();
+                }
+                container = bits;
+            } else {
+                char[] array = new char[size];
+                for (int j = 0; j < size; j++) {
+                    array[j] = in.readChar();
+                }
+                container = array;
+            }
+            bitmap.insert(bitmap.count, key, container, cardinality(container));
+        }
+        bitmap.trim();
+        return bitmap;
+    }
+}
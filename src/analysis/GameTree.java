@@ -0,0 +1,423 @@
+package analysis;
+
+import engine.Evaluator;
+import engine.Fen;
+import engine.MoveGen;
+import engine.Pieces;
+import engine.Position;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Árvore de lances compacta para sessões de análise com milhões de nós.
+ * <p>
+ * Em vez de um objeto por nó, cada nó ocupa {@value #WORDS_PER_NODE} posições de vetores {@code long[]} alocados
+ * em blocos ("arenas"), o que elimina os cabeçalhos de objeto e as referências que o coletor de lixo precisaria
+ * percorrer. Os filhos de um nó são sempre alocados de forma contígua, então basta guardar o índice do primeiro
+ * filho e a quantidade de filhos. As posições não são guardadas nos nós: elas são reconstruídas a partir da raiz
+ * refazendo os lances do caminho.
+ * <p>
+ * Layout de cada nó:
+ * <ul>
+ *     <li>palavra 0: lance (16 bits), avaliação do ponto de vista das brancas (16 bits, com sinal), pai (32 bits)</li>
+ *     <li>palavra 1: visitas (32 bits), quantidade de filhos (16 bits), indicador de nó expandido (1 bit)</li>
+ *     <li>palavra 2: índice do primeiro filho (32 bits)</li>
+ * </ul>
+ * As visitas de um nó contam quantas vezes uma busca passou por ele: cada {@link #expandAll} soma uma visita a cada nó
+ * que alcança e, em cada nó, as visitas da subárvore abaixo dele, de modo que os ramos mais explorados têm mais
+ * visitas. Elas ordenam os filhos na {@link #prune poda}; apenas navegar pela árvore não as altera.
+ */
+public class GameTree {
+
+    public static final int ROOT = 0;
+    public static final int NO_NODE = -1;
+
+    static final int WORDS_PER_NODE = 3;
+    private static final int CHUNK_SHIFT = 18;
+    private static final int NODES_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = NODES_PER_CHUNK - 1;
+
+    private static final long EXPANDED = 1L << 48;
+    private static final int MAGIC = 0x43545245; // "CTRE"
+    private static final int HEADER_SIZE = 16;
+    private static final ByteOrder FILE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private long[][] chunks = new long[1][];
+    private int size;
+    private final String rootFen;
+
+    /**
+     * Cria uma árvore contendo apenas a raiz, na posição informada
+     */
+    public GameTree(String rootFen) {
+        this.rootFen = rootFen;
+        chunks[0] = new long[NODES_PER_CHUNK * WORDS_PER_NODE];
+        Position position = Fen.parse(rootFen);
+        int root = allocate(1);
+        setWord0(root, 0, clampEval(Evaluator.evaluate(position) * sideSign(position)), NO_NODE);
+    }
+
+    public String rootFen() {
+        return rootFen;
+    }
+
+    /**
+     * Quantidade de nós alocados na árvore
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reserva {@code count} nós contíguos, crescendo as arenas se necessário
+     *
+     * @return o índice do primeiro nó reservado
+     */
+    private int allocate(int count) {
+        int first = size;
+        int last = first + count - 1;
+        int neededChunks = (last >>> CHUNK_SHIFT) + 1;
+        if (neededChunks > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(neededChunks, chunks.length * 2));
+        }
+        for (int c = 0; c < neededChunks; c++) {
+            if (chunks[c] == null) {
+                chunks[c] = new long[NODES_PER_CHUNK * WORDS_PER_NODE];
+            }
+        }
+        size += count;
+        return first;
+    }
+
+    private long word(int node, int index) {
+        return chunks[node >>> CHUNK_SHIFT][(node & CHUNK_MASK) * WORDS_PER_NODE + index];
+    }
+
+    private void setWord(int node, int index, long value) {
+        chunks[node >>> CHUNK_SHIFT][(node & CHUNK_MASK) * WORDS_PER_NODE + index] = value;
+    }
+
+    private void setWord0(int node, int move, int eval, int parent) {
+        setWord(node, 0, (move & 0xFFFFL) | ((eval & 0xFFFFL) << 16) | ((long) parent << 32));
+    }
+
+    public int move(int node) {
+        return (int) (word(node, 0) & 0xFFFF);
+    }
+
+    /**
+     * Avaliação do nó em centipeões, do ponto de vista das brancas
+     */
+    public int eval(int node) {
+        return (short) (word(node, 0) >>> 16);
+    }
+
+    public void setEval(int node, int eval) {
+        setWord0(node, move(node), clampEval(eval), parent(node));
+    }
+
+    public int parent(int node) {
+        return (int) (word(node, 0) >> 32);
+    }
+
+    public int visits(int node) {
+        return (int) word(node, 1);
+    }
+
+    /**
+     * Soma uma visita ao nó e a todos os seus ancestrais, para buscas feitas fora da árvore (por exemplo, um lance
+     * analisado pelo motor)
+     */
+    public void visit(int node) {
+        for (int n = node; n != NO_NODE; n = parent(n)) {
+            addVisits(n, 1);
+        }
+    }
+
+    /**
+     * Soma visitas ao contador de 32 bits do nó, sem deixar que ele passe para os bits seguintes
+     */
+    private void addVisits(int node, long count) {
+        long word = word(node, 1);
+        long visits = Math.min(Integer.MAX_VALUE, (word & 0xFFFFFFFFL) + count);
+        setWord(node, 1, (word & ~0xFFFFFFFFL) | visits);
+    }
+
+    public int childCount(int node) {
+        return (int) ((word(node, 1) >>> 32) & 0xFFFF);
+    }
+
+    public boolean isExpanded(int node) {
+        return (word(node, 1) & EXPANDED) != 0;
+    }
+
+    public int firstChild(int node) {
+        return (int) word(node, 2);
+    }
+
+    public int child(int node, int index) {
+        return firstChild(node) + index;
+    }
+
+    /**
+     * Reconstrói a posição de um nó refazendo os lances desde a raiz
+     */
+    public Position positionOf(int node) {
+        Position position = Fen.parse(rootFen);
+        int[] path = new int[depthOf(node)];
+        int n = node;
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = move(n);
+            n = parent(n);
+        }
+        for (int move : path) {
+            position.make(move);
+        }
+        return position;
+    }
+
+    public int depthOf(int node) {
+        int depth = 0;
+        for (int n = node; parent(n) != NO_NODE; n = parent(n)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Cria os filhos de um nó com todos os lances legais, avaliando cada um estaticamente
+     *
+     * @param position a posição do nó; é modificada durante a expansão, mas volta ao estado original
+     * @return a quantidade de filhos criados
+     */
+    public int expand(int node, Position position, int[] moves) {
+        if (isExpanded(node)) {
+            return childCount(node);
+        }
+        int count = MoveGen.generate(position, moves);
+        int first = count > 0 ? allocate(count) : 0;
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            setWord0(first + i, moves[i], clampEval(Evaluator.evaluate(position) * sideSign(position)), node);
+            setWord(first + i, 1, 0L);
+            setWord(first + i, 2, 0L);
+            position.unmake(moves[i]);
+        }
+        setWord(node, 1, (word(node, 1) & 0xFFFFFFFFL) | ((long) count << 32) | EXPANDED);
+        setWord(node, 2, first);
+        return count;
+    }
+
+    /**
+     * Expande em bloco toda a subárvore do nó até a profundidade dada, somando uma visita a cada nó alcançado (o
+     * próprio nó e os seus descendentes até a profundidade) e, nos ancestrais, as visitas da subárvore inteira
+     *
+     * @return a quantidade de nós criados
+     */
+    public int expandAll(int node, int depth) {
+        int before = size;
+        Position position = positionOf(node);
+        int[][] buffers = new int[depth][MoveGen.MAX_MOVES];
+        long searched = expandAll(node, position, depth, buffers);
+        for (int n = parent(node); n != NO_NODE; n = parent(n)) {
+            addVisits(n, searched);
+        }
+        return size - before;
+    }
+
+    /**
+     * @return a quantidade de nós alcançados na subárvore, contando o próprio nó
+     */
+    private long expandAll(int node, Position position, int depth, int[][] buffers) {
+        long searched = 1;
+        if (depth > 0) {
+            int[] moves = buffers[depth - 1];
+            int count = expand(node, position, moves);
+            int first = firstChild(node);
+            for (int i = 0; i < count; i++) {
+                int child = first + i;
+                position.make(move(child));
+                searched += expandAll(child, position, depth - 1, buffers);
+                position.unmake(move(child));
+            }
+        }
+        addVisits(node, searched);
+        return searched;
+    }
+
+    /**
+     * Propaga as avaliações das folhas até a raiz pelo critério minimax
+     */
+    public void propagate() {
+        propagate(ROOT, Fen.parse(rootFen).sideToMove() == Pieces.WHITE);
+    }
+
+    private int propagate(int node, boolean whiteToMove) {
+        int count = childCount(node);
+        if (count == 0) {
+            return eval(node);
+        }
+        int best = whiteToMove ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int score = propagate(child(node, i), !whiteToMove);
+            best = whiteToMove ? Math.max(best, score) : Math.min(best, score);
+        }
+        setEval(node, best);
+        return best;
+    }
+
+    /**
+     * Poda a árvore em bloco: em cada nó mantém apenas os {@code keepPerNode} filhos mais visitados, isto é, os ramos
+     * mais explorados (desempatando pela avaliação), e descarta os filhos com menos de {@code minVisits} visitas.
+     * Os nós restantes são compactados em novas arenas, preservando a contiguidade dos filhos.
+     *
+     * @return a quantidade de nós removidos
+     */
+    public int prune(int keepPerNode, int minVisits) {
+        GameTree compacted = new GameTree(rootFen);
+        compacted.setWord(ROOT, 0, word(ROOT, 0));
+        compacted.setWord(ROOT, 1, word(ROOT, 1) & 0xFFFFFFFFL);
+        boolean whiteToMove = Fen.parse(rootFen).sideToMove() == Pieces.WHITE;
+        copyPruned(ROOT, whiteToMove, compacted, ROOT, keepPerNode, minVisits, new int[MoveGen.MAX_MOVES]);
+
+        int removed = size - compacted.size;
+        chunks = compacted.chunks;
+        size = compacted.size;
+        return removed;
+    }
+
+    private void copyPruned(int node, boolean whiteToMove, GameTree target, int targetNode, int keepPerNode, int minVisits, int[] kept) {
+        if (!isExpanded(node)) {
+            return;
+        }
+        int count = childCount(node);
+        int keptCount = 0;
+        for (int i = 0; i < count; i++) {
+            int child = child(node, i);
+            if (visits(child) < minVisits) {
+                continue;
+            }
+            // Ordenação por inserção: os filhos mais visitados (e, no empate, os melhores para quem joga) primeiro
+            int j = keptCount++;
+            while (j > 0 && isBetter(child, kept[j - 1], whiteToMove)) {
+                kept[j] = kept[j - 1];
+                j--;
+            }
+            kept[j] = child;
+        }
+        keptCount = Math.min(keptCount, keepPerNode);
+        if (keptCount == 0) {
+            // Sem filhos mantidos o nó volta a ser uma folha, que pode ser expandida de novo
+            return;
+        }
+
+        int first = target.allocate(keptCount);
+        target.setWord(targetNode, 1, (target.word(targetNode, 1) & 0xFFFFFFFFL) | ((long) keptCount << 32) | EXPANDED);
+        target.setWord(targetNode, 2, first);
+        for (int i = 0; i < keptCount; i++) {
+            int child = kept[i];
+            target.setWord0(first + i, move(child), eval(child), targetNode);
+            target.setWord(first + i, 1, word(child, 1) & 0xFFFFFFFFL);
+            target.setWord(first + i, 2, 0L);
+        }
+        // O vetor de ordenação é reaproveitado pelos filhos, então os índices mantidos são lidos da árvore nova
+        for (int i = 0; i < keptCount; i++) {
+            int source = findChild(node, target.move(first + i));
+            copyPruned(source, !whiteToMove, target, first + i, keepPerNode, minVisits, kept);
+        }
+    }
+
+    private boolean isBetter(int a, int b, boolean whiteToMove) {
+        if (visits(a) != visits(b)) {
+            return visits(a) > visits(b);
+        }
+        return whiteToMove ? eval(a) > eval(b) : eval(a) < eval(b);
+    }
+
+    /**
+     * Procura entre os filhos do nó aquele que corresponde ao lance dado
+     *
+     * @return o índice do filho, ou {@link #NO_NODE} se o lance não estiver na árvore
+     */
+    public int findChild(int node, int move) {
+        int first = firstChild(node);
+        for (int i = 0; i < childCount(node); i++) {
+            if (move(first + i) == move) {
+                return first + i;
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Salva a árvore em um arquivo mapeado em memória; o conteúdo das arenas é copiado diretamente para o mapeamento
+     */
+    public void save(Path file) throws IOException {
+        byte[] fen = rootFen.getBytes(StandardCharsets.UTF_8);
+        long dataOffset = HEADER_SIZE + fen.length;
+        long totalWords = (long) size * WORDS_PER_NODE;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, dataOffset);
+            header.putInt(MAGIC).putInt(WORDS_PER_NODE).putInt(size).putInt(fen.length).put(fen);
+            header.force();
+
+            for (int c = 0; c * (long) NODES_PER_CHUNK < size; c++) {
+                int nodes = Math.min(NODES_PER_CHUNK, size - c * NODES_PER_CHUNK);
+                long offset = dataOffset + (long) c * NODES_PER_CHUNK * WORDS_PER_NODE * Long.BYTES;
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) nodes * WORDS_PER_NODE * Long.BYTES);
+                map.order(FILE_ORDER).asLongBuffer().put(chunks[c], 0, nodes * WORDS_PER_NODE);
+                map.force();
+            }
+            channel.truncate(dataOffset + totalWords * Long.BYTES);
+        }
+    }
+
+    /**
+     * Carrega uma árvore salva com {@link #save(Path)}
+     *
+     * @throws IOException se o arquivo não for uma árvore válida
+     */
+    public static GameTree load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE));
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != WORDS_PER_NODE) {
+                throw new IOException("Arquivo de árvore inválido: " + file);
+            }
+            int size = header.getInt();
+            int fenLength = header.getInt();
+            byte[] fen = new byte[fenLength];
+            channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, fenLength).get(fen);
+
+            GameTree tree = new GameTree(new String(fen, StandardCharsets.UTF_8));
+            tree.size = 0;
+            tree.allocate(size);
+            long dataOffset = HEADER_SIZE + fenLength;
+            for (int c = 0; c * (long) NODES_PER_CHUNK < size; c++) {
+                int nodes = Math.min(NODES_PER_CHUNK, size - c * NODES_PER_CHUNK);
+                long offset = dataOffset + (long) c * NODES_PER_CHUNK * WORDS_PER_NODE * Long.BYTES;
+                LongBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) nodes * WORDS_PER_NODE * Long.BYTES)
+                        .order(FILE_ORDER).asLongBuffer();
+                data.get(tree.chunks[c], 0, nodes * WORDS_PER_NODE);
+            }
+            return tree;
+        }
+    }
+
+    private static int sideSign(Position position) {
+        return position.sideToMove() == Pieces.WHITE ? 1 : -1;
+    }
+
+    private static int clampEval(int eval) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, eval));
+    }
+}
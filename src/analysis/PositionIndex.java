@@ -0,0 +1,326 @@
+package analysis;
+
+import engine.Bitboards;
+import engine.MoveGen;
+import engine.Moves;
+import engine.Pieces;
+import engine.Position;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Índice invertido das posições de uma coleção de partidas, para buscar posições por material ou por padrões de peças
+ * sem refazer as partidas.
+ * <p>
+ * Cada posição (cada meio-lance de cada partida) recebe um número sequencial. Para cada característica da posição
+ * (peça em uma casa, em uma fileira ou em uma coluna, quantidade de peças de cada tipo, cor das casas dos bispos e lado
+ * que tem a vez) o índice guarda o conjunto dos números das posições que a têm, em um {@link CompactBitmap}. Uma
+ * {@link PositionQuery consulta} combina esses conjuntos, e cada bloco de 65536 posições é avaliado em paralelo.
+ * <p>
+ * O arquivo de partidas tem uma partida por linha, com os movimentos em notação de coordenadas ({@code e2e4 e7e5 ...})
+ * a partir da posição inicial. Linhas vazias ou começando com {@code #} são ignoradas; uma partida com movimento
+ * inválido é indexada até o movimento anterior.
+ */
+public class PositionIndex {
+
+    /**
+     * Quantidade máxima de peças de um tipo contada separadamente; quantidades maiores contam como esta
+     */
+    public static final int MAX_COUNT = 10;
+
+    private static final int SQUARE_FEATURES = 0;
+    private static final int RANK_FEATURES = SQUARE_FEATURES + 12 * 64;
+    private static final int FILE_FEATURES = RANK_FEATURES + 12 * 8;
+    private static final int COUNT_FEATURES = FILE_FEATURES + 12 * 8;
+    private static final int BISHOP_FEATURES = COUNT_FEATURES + 12 * (MAX_COUNT + 1);
+    private static final int SIDE_FEATURES = BISHOP_FEATURES + 4;
+    private static final int FEATURE_COUNT = SIDE_FEATURES + 2;
+
+    private static final int MAGIC = 0x50494458; // "PIDX"
+
+    private static final long LIGHT_SQUARES;
+
+    static {
+        long light = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (((row + col) & 1) == 0) {
+                    light |= Bitboards.bit(col, row);
+                }
+            }
+        }
+        LIGHT_SQUARES = light;
+    }
+
+    private final CompactBitmap[] features = new CompactBitmap[FEATURE_COUNT];
+    private CompactBitmap all = new CompactBitmap();
+
+    /**
+     * Número da primeira posição de cada partida
+     */
+    private int[] gameStarts = new int[1024];
+    private int gameCount;
+    private int positionCount;
+    private int invalidGames;
+
+    public PositionIndex() {
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            features[i] = new CompactBitmap();
+        }
+    }
+
+    static int squareFeature(int code, int sq) {
+        return SQUARE_FEATURES + code * 64 + sq;
+    }
+
+    /**
+     * @param rank a fileira do xadrez, de 1 (a primeira fileira das brancas) a 8
+     */
+    static int rankFeature(int code, int rank) {
+        return RANK_FEATURES + code * 8 + rank - 1;
+    }
+
+    static int fileFeature(int code, int col) {
+        return FILE_FEATURES + code * 8 + col;
+    }
+
+    static int countFeature(int code, int count) {
+        return COUNT_FEATURES + code * (MAX_COUNT + 1) + Math.min(count, MAX_COUNT);
+    }
+
+    static int bishopFeature(int color, boolean light) {
+        return BISHOP_FEATURES + color * 2 + (light ? 0 : 1);
+    }
+
+    static int sideFeature(int color) {
+        return SIDE_FEATURES + color;
+    }
+
+    CompactBitmap feature(int feature) {
+        return features[feature];
+    }
+
+    /**
+     * Indexa todas as partidas do leitor dado
+     */
+    public void addGames(BufferedReader in) throws IOException {
+        Position position = new Position();
+        Position start = Position.startPosition();
+        String line;
+        while ((line = in.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            position.copyFrom(start);
+            addGame(position, trimmed.split("\\s+"));
+        }
+        for (CompactBitmap bitmap : features) {
+            bitmap.trim();
+        }
+        all.trim();
+    }
+
+    private void addGame(Position position, String[] moves) {
+        if (gameCount == gameStarts.length) {
+            gameStarts = Arrays.copyOf(gameStarts, gameCount * 2);
+        }
+        gameStarts[gameCount++] = positionCount;
+
+        addPosition(position);
+        for (String text : moves) {
+            int move = Moves.parse(text);
+            if (move == Moves.NONE || !MoveGen.isLegal(position, move)) {
+                invalidGames++;
+                return;
+            }
+            position.make(move);
+            addPosition(position);
+        }
+    }
+
+    private void addPosition(Position position) {
+        int id = positionCount++;
+        all.add(id);
+        for (int code = 0; code < 12; code++) {
+            long pieces = position.pieces(Pieces.color(code), Pieces.type(code));
+            features[countFeature(code, Long.bitCount(pieces))].add(id);
+            while (pieces != 0) {
+                int sq = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                features[squareFeature(code, sq)].add(id);
+                features[rankFeature(code, 8 - (sq >>> 3))].add(id);
+                features[fileFeature(code, sq & 7)].add(id);
+            }
+        }
+        for (int color = Pieces.WHITE; color <= Pieces.BLACK; color++) {
+            long bishops = position.pieces(color, Pieces.BISHOP);
+            if ((bishops & LIGHT_SQUARES) != 0) {
+                features[bishopFeature(color, true)].add(id);
+            }
+            if ((bishops & ~LIGHT_SQUARES) != 0) {
+                features[bishopFeature(color, false)].add(id);
+            }
+        }
+        features[sideFeature(position.sideToMove())].add(id);
+    }
+
+    /**
+     * Busca as posições que satisfazem a consulta, avaliando cada bloco de posições em paralelo
+     *
+     * @return os números das posições encontradas (somente leitura)
+     */
+    public CompactBitmap query(PositionQuery query) {
+        int blocks = all.containerCount();
+        char[] keys = new char[blocks];
+        Object[] results = new Object[blocks];
+        IntStream.range(0, blocks).parallel().forEach(i -> {
+            char key = all.keyAt(i);
+            Object universe = all.containerFor(key);
+            keys[i] = key;
+            results[i] = query.evaluate(this, key, universe, universe);
+        });
+        return CompactBitmap.fromContainers(keys, results);
+    }
+
+    public CompactBitmap query(String query) {
+        return query(PositionQuery.parse(query));
+    }
+
+    public int gameCount() {
+        return gameCount;
+    }
+
+    public int positionCount() {
+        return positionCount;
+    }
+
+    /**
+     * Quantidade de partidas interrompidas por um movimento inválido
+     */
+    public int invalidGames() {
+        return invalidGames;
+    }
+
+    /**
+     * Partida (contando a partir de 0, na ordem do arquivo) a que pertence a posição dada
+     */
+    public int gameOf(int positionId) {
+        int index = Arrays.binarySearch(gameStarts, 0, gameCount, positionId);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Meio-lance da partida em que a posição dada ocorre (0 é a posição inicial)
+     */
+    public int plyOf(int positionId) {
+        return positionId - gameStarts[gameOf(positionId)];
+    }
+
+    /**
+     * Quantidade de partidas diferentes entre as posições dadas
+     */
+    public int countGames(CompactBitmap positions) {
+        int[] counter = {0, -1};
+        positions.forEach(id -> {
+            int game = gameOf(id);
+            if (game != counter[1]) {
+                counter[0]++;
+                counter[1] = game;
+            }
+        });
+        return counter[0];
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FEATURE_COUNT);
+            out.writeInt(gameCount);
+            out.writeInt(positionCount);
+            out.writeInt(invalidGames);
+            for (int i = 0; i < gameCount; i++) {
+                out.writeInt(gameStarts[i]);
+            }
+            all.writeTo(out);
+            for (CompactBitmap bitmap : features) {
+                bitmap.writeTo(out);
+            }
+        }
+    }
+
+    public static PositionIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FEATURE_COUNT) {
+                throw new IOException("Arquivo de índice inválido: " + file);
+            }
+            PositionIndex index = new PositionIndex();
+            index.gameCount = in.readInt();
+            index.positionCount = in.readInt();
+            index.invalidGames = in.readInt();
+            index.gameStarts = new int[Math.max(1, index.gameCount)];
+            for (int i = 0; i < index.gameCount; i++) {
+                index.gameStarts[i] = in.readInt();
+            }
+            index.all = CompactBitmap.readFrom(in);
+            for (int i = 0; i < FEATURE_COUNT; i++) {
+                index.features[i] = CompactBitmap.readFrom(in);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Ponto de entrada da linha de comando:
+     * {@code PositionIndex build <partidas.txt> <indice.bin>} ou {@code PositionIndex query <indice.bin> <consulta>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("build") || args[0].equals("query"))) {
+            System.err.println("Uso: PositionIndex build <partidas.txt> <indice.bin>");
+            System.err.println("     PositionIndex query <indice.bin> <consulta>");
+            System.exit(1);
+        }
+
+        long start = System.currentTimeMillis();
+        if (args[0].equals("build")) {
+            PositionIndex index = new PositionIndex();
+            try (BufferedReader in = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                index.addGames(in);
+            }
+            index.save(Paths.get(args[2]));
+            System.out.println(index.gameCount() + " partidas e " + index.positionCount() + " posições indexadas em "
+                    + (System.currentTimeMillis() - start) + " ms (" + index.invalidGames() + " com movimento inválido).");
+            return;
+        }
+
+        PositionIndex index = load(Paths.get(args[1]));
+        String text = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+        PositionQuery query;
+        try {
+            query = PositionQuery.parse(text);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        long queryStart = System.nanoTime();
+        CompactBitmap result = index.query(query);
+        long queryMicros = (System.nanoTime() - queryStart) / 1000;
+        System.out.println(result.cardinality() + " posições em " + index.countGames(result) + " partidas ("
+                + queryMicros + " µs).");
+        for (int id : result.first(20)) {
+            System.out.println("partida " + (index.gameOf(id) + 1) + ", meio-lance " + index.plyOf(id));
+        }
+    }
+}
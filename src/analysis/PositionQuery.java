@@ -0,0 +1,287 @@
+package analysis;
+
+import engine.Moves;
+import engine.Pieces;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consulta sobre as posições de um {@link PositionIndex}, formada por termos combinados com "e", "ou" e "não".
+ * <p>
+ * Sintaxe (as peças usam as letras do FEN: maiúsculas para as brancas e minúsculas para as pretas):
+ * <ul>
+ *     <li>{@code Ra7}: torre branca na casa a7;</li>
+ *     <li>{@code R/7}: torre branca na 7ª fileira; {@code p:e}: peão preto na coluna e;</li>
+ *     <li>{@code Q=1}: exatamente uma dama branca; {@code P>=6}: pelo menos seis peões brancos;</li>
+ *     <li>{@code material:KRPPkrp}: exatamente este material, peça por peça;</li>
+ *     <li>{@code opposite-bishops}: cada lado tem bispos em apenas uma cor de casa, e as cores são diferentes;</li>
+ *     <li>{@code w} ou {@code b}: o lado que tem a vez.</li>
+ * </ul>
+ * Termos separados por espaço precisam valer todos; {@code |} separa alternativas; {@code -} antes de um termo ou de
+ * um grupo entre parênteses nega o termo. Exemplo: {@code R/7 opposite-bishops -(Q=1 | q=1)}.
+ * <p>
+ * A consulta é avaliada bloco a bloco dos conjuntos compactados, o que permite avaliar blocos diferentes em paralelo.
+ */
+public abstract class PositionQuery {
+
+    /**
+     * Calcula o bloco de resultados para a chave dada, restrito às posições de {@code scope}
+     *
+     * @param scope    o bloco de posições candidatas; o resultado é sempre um subconjunto dele
+     * @param universe o bloco com todas as posições indexadas dessa chave
+     * @return o bloco de posições candidatas que satisfazem a consulta, ou {@code null} se nenhuma satisfizer
+     */
+    abstract Object evaluate(PositionIndex index, char key, Object scope, Object universe);
+
+    private static final class Feature extends PositionQuery {
+        final int feature;
+
+        Feature(int feature) {
+            this.feature = feature;
+        }
+
+        @Override
+        Object evaluate(PositionIndex index, char key, Object scope, Object universe) {
+            Object container = index.feature(feature).containerFor(key);
+            return scope == universe ? container : CompactBitmap.and(scope, container);
+        }
+    }
+
+    private static final class Not extends PositionQuery {
+        final PositionQuery child;
+
+        Not(PositionQuery child) {
+            this.child = child;
+        }
+
+        @Override
+        Object evaluate(PositionIndex index, char key, Object scope, Object universe) {
+            return CompactBitmap.andNot(scope, child.evaluate(index, key, scope, universe));
+        }
+    }
+
+    private static final class And extends PositionQuery {
+        final List<PositionQuery> children = new ArrayList<>();
+
+        /**
+         * Os termos simples são avaliados primeiro, depois os compostos e por último as negações, para que cada termo
+         * seguinte seja avaliado apenas sobre as posições que sobraram
+         */
+        And(List<PositionQuery> terms) {
+            for (PositionQuery term : terms) {
+                if (term instanceof Feature) {
+                    children.add(term);
+                }
+            }
+            for (PositionQuery term : terms) {
+                if (!(term instanceof Feature) && !(term instanceof Not)) {
+                    children.add(term);
+                }
+            }
+            for (PositionQuery term : terms) {
+                if (term instanceof Not) {
+                    children.add(term);
+                }
+            }
+        }
+
+        @Override
+        Object evaluate(PositionIndex index, char key, Object scope, Object universe) {
+            Object result = scope;
+            for (PositionQuery child : children) {
+                result = child.evaluate(index, key, result, universe);
+                if (result == null) {
+                    return null;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Or extends PositionQuery {
+        final List<PositionQuery> children;
+
+        Or(List<PositionQuery> children) {
+            this.children = children;
+        }
+
+        /**
+         * As alternativas simples são unidas sem restrição e o resultado é restrito às candidatas uma única vez;
+         * as compostas são avaliadas já restritas
+         */
+        @Override
+        Object evaluate(PositionIndex index, char key, Object scope, Object universe) {
+            Object features = null;
+            Object others = null;
+            for (PositionQuery child : children) {
+                if (child instanceof Feature) {
+                    features = CompactBitmap.or(features, child.evaluate(index, key, universe, universe));
+                } else {
+                    others = CompactBitmap.or(others, child.evaluate(index, key, scope, universe));
+                }
+            }
+            if (features != null && scope != universe) {
+                features = CompactBitmap.and(scope, features);
+            }
+            return CompactBitmap.or(features, others);
+        }
+    }
+
+    /**
+     * Converte o texto de uma consulta
+     *
+     * @throws IllegalArgumentException se a consulta tiver erros de sintaxe ou termos desconhecidos
+     */
+    public static PositionQuery parse(String text) {
+        Parser parser = new Parser(tokenize(text));
+        PositionQuery query = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("Símbolo inesperado na consulta: " + parser.tokens.get(parser.position));
+        }
+        return query;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '|' || (c == '-' && current.length() == 0)) {
+                if (current.length() > 0) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+                if (!Character.isWhitespace(c)) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        final List<String> tokens;
+        int position;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        PositionQuery parseOr() {
+            List<PositionQuery> alternatives = new ArrayList<>();
+            alternatives.add(parseAnd());
+            while ("|".equals(peek())) {
+                position++;
+                alternatives.add(parseAnd());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new Or(alternatives);
+        }
+
+        PositionQuery parseAnd() {
+            List<PositionQuery> terms = new ArrayList<>();
+            while (peek() != null && !peek().equals("|") && !peek().equals(")")) {
+                terms.add(parseUnary());
+            }
+            if (terms.isEmpty()) {
+                throw new IllegalArgumentException("Consulta vazia ou incompleta");
+            }
+            return terms.size() == 1 && !(terms.get(0) instanceof Not) ? terms.get(0) : new And(terms);
+        }
+
+        PositionQuery parseUnary() {
+            String token = tokens.get(position++);
+            if (token.equals("-")) {
+                if (peek() == null) {
+                    throw new IllegalArgumentException("Negação sem termo");
+                }
+                return new Not(parseUnary());
+            }
+            if (token.equals("(")) {
+                PositionQuery inner = parseOr();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("Parêntese não fechado na consulta");
+                }
+                position++;
+                return inner;
+            }
+            return term(token);
+        }
+    }
+
+    /**
+     * Converte um termo simples para as características correspondentes do índice
+     */
+    private static PositionQuery term(String token) {
+        if (token.equals("w") || token.equals("b")) {
+            return new Feature(PositionIndex.sideFeature(token.equals("w") ? Pieces.WHITE : Pieces.BLACK));
+        }
+        if (token.equals("opposite-bishops")) {
+            PositionQuery whiteLight = new Feature(PositionIndex.bishopFeature(Pieces.WHITE, true));
+            PositionQuery whiteDark = new Feature(PositionIndex.bishopFeature(Pieces.WHITE, false));
+            PositionQuery blackLight = new Feature(PositionIndex.bishopFeature(Pieces.BLACK, true));
+            PositionQuery blackDark = new Feature(PositionIndex.bishopFeature(Pieces.BLACK, false));
+            List<PositionQuery> alternatives = new ArrayList<>();
+            alternatives.add(new And(List.of(whiteLight, blackDark, new Not(whiteDark), new Not(blackLight))));
+            alternatives.add(new And(List.of(whiteDark, blackLight, new Not(whiteLight), new Not(blackDark))));
+            return new Or(alternatives);
+        }
+        if (token.startsWith("material:")) {
+            int[] counts = new int[12];
+            for (char c : token.substring("material:".length()).toCharArray()) {
+                counts[pieceCode(c, token)]++;
+            }
+            List<PositionQuery> terms = new ArrayList<>();
+            for (int code = 0; code < 12; code++) {
+                terms.add(new Feature(PositionIndex.countFeature(code, counts[code])));
+            }
+            return new And(terms);
+        }
+
+        if (token.length() < 2) {
+            throw new IllegalArgumentException("Termo desconhecido na consulta: " + token);
+        }
+        int code = pieceCode(token.charAt(0), token);
+        String rest = token.substring(1);
+        try {
+            if (rest.startsWith("/")) {
+                int rank = Integer.parseInt(rest.substring(1));
+                if (rank >= 1 && rank <= 8) {
+                    return new Feature(PositionIndex.rankFeature(code, rank));
+                }
+            } else if (rest.startsWith(":") && rest.length() == 2 && rest.charAt(1) >= 'a' && rest.charAt(1) <= 'h') {
+                return new Feature(PositionIndex.fileFeature(code, rest.charAt(1) - 'a'));
+            } else if (rest.startsWith(">=")) {
+                int minimum = Integer.parseInt(rest.substring(2));
+                List<PositionQuery> alternatives = new ArrayList<>();
+                for (int n = Math.max(0, minimum); n <= PositionIndex.MAX_COUNT; n++) {
+                    alternatives.add(new Feature(PositionIndex.countFeature(code, n)));
+                }
+                return new Or(alternatives);
+            } else if (rest.startsWith("=") && Integer.parseInt(rest.substring(1)) >= 0) {
+                return new Feature(PositionIndex.countFeature(code, Integer.parseInt(rest.substring(1))));
+            } else if (rest.length() == 2 && Moves.parseSquare(rest) >= 0) {
+                return new Feature(PositionIndex.squareFeature(code, Moves.parseSquare(rest)));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Termo inválido na consulta: " + token);
+        }
+        throw new IllegalArgumentException("Termo desconhecido na consulta: " + token);
+    }
+
+    private static int pieceCode(char c, String token) {
+        int code = Pieces.fromChar(c);
+        if (code == Pieces.EMPTY) {
+            throw new IllegalArgumentException("Peça desconhecida na consulta: " + token);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,153 @@
+package analysis;
+
+import engine.Fen;
+import engine.MateSolver;
+import engine.Moves;
+import engine.Position;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Valida em lote problemas de mate em N lances, usando {@link MateSolver}.
+ * <p>
+ * Cada linha da entrada é uma posição EPD; a quantidade de lances vem da operação {@code dm} da própria linha ou,
+ * se ela não existir, da opção {@code --mate}. Cada linha da saída repete a posição com o resultado
+ * ({@code proven}, {@code disproven} ou {@code unknown} se o limite de nós acabar), a quantidade de nós e,
+ * quando o mate é provado, o primeiro lance e a variante. As linhas são resolvidas em paralelo, cada thread
+ * com o seu próprio resolvedor, e saem na mesma ordem da entrada.
+ */
+public class PuzzleValidator {
+
+    private static final String[] STATUS_NAMES = {"", "proven", "disproven", "unknown"};
+
+    private final int defaultMate;
+    private final long nodeLimit;
+    private final ThreadLocal<MateSolver> solvers;
+    private final ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+
+    /**
+     * @param defaultMate a quantidade de lances usada nas linhas sem a operação {@code dm}
+     * @param nodeLimit   o limite de nós por problema, ou 0 para não limitar
+     * @param megabytes   o tamanho da tabela de cada thread
+     */
+    public PuzzleValidator(int defaultMate, long nodeLimit, int megabytes) {
+        this.defaultMate = defaultMate;
+        this.nodeLimit = nodeLimit;
+        this.solvers = ThreadLocal.withInitial(() -> new MateSolver(megabytes));
+    }
+
+    /**
+     * Resolve o problema de uma linha EPD usando o resolvedor da thread atual
+     */
+    public String validate(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return line;
+        }
+
+        String epd = Fen.epdPosition(trimmed);
+        Position position = positions.get();
+        try {
+            Fen.parse(epd, position);
+            int mateIn = mateOperation(trimmed);
+            MateSolver.Result result = solvers.get().solve(position, mateIn, nodeLimit);
+
+            StringBuilder text = new StringBuilder(epd).append(" dm ").append(mateIn).append("; status ")
+                    .append(STATUS_NAMES[result.status]).append("; acn ").append(result.nodes).append(';');
+            if (result.status == MateSolver.PROVEN) {
+                text.append(" bm ").append(Moves.toString(result.bestMove())).append("; pv");
+                for (int move : result.pv) {
+                    text.append(' ').append(Moves.toString(move));
+                }
+                text.append(';');
+            }
+            return text.toString();
+        } catch (IllegalArgumentException e) {
+            return epd + " error \"" + e.getMessage().replace('"', '\'') + "\";";
+        }
+    }
+
+    /**
+     * Lê a operação {@code dm N} da linha EPD, ou usa a quantidade padrão se ela não existir
+     */
+    private int mateOperation(String epd) {
+        for (String operation : epd.split(";")) {
+            String[] words = operation.trim().split("\\s+");
+            if (words.length >= 2 && words[words.length - 2].equals("dm")) {
+                try {
+                    return Integer.parseInt(words[words.length - 1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Operação dm inválida: " + operation.trim());
+                }
+            }
+        }
+        return defaultMate;
+    }
+
+    /**
+     * Ponto de entrada da linha de comando:
+     * {@code PuzzleValidator <entrada.epd> <saida.epd> [--mate N] [--nodes N] [--hash MB] [--threads N]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: PuzzleValidator <entrada.epd> <saida.epd> [--mate N] [--nodes N] [--hash MB] [--threads N]");
+            System.exit(1);
+        }
+
+        int mate = 2;
+        long nodes = 1_000_000;
+        int megabytes = 16;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--mate":
+                    mate = Integer.parseInt(args[++i]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "--hash":
+                    megabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        PuzzleValidator validator = new PuzzleValidator(mate, nodes, megabytes);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        String[] results = pool.submit(() -> IntStream.range(0, lines.size()).parallel()
+                .mapToObj(i -> validator.validate(lines.get(i)))
+                .toArray(String[]::new)).join();
+        pool.shutdown();
+
+        int[] counts = new int[STATUS_NAMES.length];
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            for (String result : results) {
+                out.write(result);
+                out.write('\n');
+                for (int status = 1; status < STATUS_NAMES.length; status++) {
+                    if (result.contains("; status " + STATUS_NAMES[status] + ";")) {
+                        counts[status]++;
+                    }
+                }
+            }
+        }
+        System.out.println(lines.size() + " problemas em " + (System.currentTimeMillis() - start) + " ms: "
+                + counts[MateSolver.PROVEN] + " provados, " + counts[MateSolver.DISPROVEN] + " refutados, "
+                + counts[MateSolver.UNKNOWN] + " sem resposta.");
+    }
+}
@@ -0,0 +1,586 @@
+package analysis;
+
+import engine.Evaluator;
+import engine.Fen;
+import engine.Pieces;
+import engine.Position;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Ajusta os parâmetros de {@link Evaluator} (valores materiais e tabelas peça-casa) aos resultados de partidas, pelo
+ * método de Texel: a avaliação de cada posição, convertida em probabilidade de vitória das brancas por uma sigmoide,
+ * deve se aproximar do resultado da partida de onde a posição veio. Os parâmetros são ajustados por descida de
+ * gradiente (Adam) sobre o erro quadrático médio.
+ * <p>
+ * As posições são primeiro convertidas ({@code convert}) de EPD para um arquivo binário compacto, em blocos de
+ * {@link #BATCH_SIZE} posições: cada posição é apenas o resultado, a pontuação dos termos que não são ajustados
+ * (a estrutura de peões, ver {@link Evaluator#pawnTerms}) e a lista de peças, com peça e casa em um {@code short}.
+ * Se o arquivo couber no limite de memória ele é lido uma vez; senão os blocos são lidos do disco a cada época, o
+ * próximo bloco sendo lido enquanto o atual é calculado. Em cada bloco o gradiente é calculado em paralelo,
+ * cada parte das posições acumulando o seu próprio vetor, e os vetores são somados no final.
+ * <p>
+ * Como a avaliação é estática, as posições devem ser calmas (sem capturas pendentes), como nos conjuntos de posições
+ * usados normalmente para esse ajuste.
+ */
+public class TexelTuner implements AutoCloseable {
+
+    public static final int BATCH_SIZE = 1 << 16;
+
+    private static final int MAGIC = 0x54584C32; // "TXL2"
+    private static final int FEATURES = 12 * 64;
+
+    /**
+     * Quantidade de posições de cada parte de um bloco calculada por uma tarefa
+     */
+    private static final int SLICE_SIZE = 4096;
+
+    /**
+     * Posições de um bloco: o resultado de cada uma (0, 1 ou 2 para derrota, empate ou vitória das brancas), a pontuação
+     * fixa do ponto de vista das brancas, o início das suas peças em {@code features} e as peças, codificadas como
+     * {@code código * 64 + casa}
+     */
+    static final class Batch {
+        final byte[] results;
+        final short[] fixed;
+        final int[] starts;
+        final short[] features;
+        int size;
+
+        Batch(int positions, int features) {
+            results = new byte[positions];
+            fixed = new short[positions];
+            starts = new int[positions + 1];
+            this.features = new short[features];
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final double[] parameters;
+    private double k;
+
+    /**
+     * Peso de cada peça em cada casa na avaliação, pelos parâmetros atuais, já com o sinal da cor
+     */
+    private final double[] weights = new double[FEATURES];
+
+    /**
+     * @param threads    a quantidade de threads de cálculo
+     * @param k          a escala da sigmoide (uma vantagem de 400/k centipeões vale 10 contra 1), ou 0 para
+     *                   calculá-la depois com {@link #fitScale}
+     * @param parameters os parâmetros iniciais, no formato de {@link Evaluator#parameters()}
+     */
+    public TexelTuner(int threads, double k, int[] parameters) {
+        this.pool = new ForkJoinPool(threads);
+        this.k = k;
+        this.parameters = new double[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            this.parameters[i] = parameters[i];
+        }
+    }
+
+    /**
+     * Converte um arquivo EPD com resultados para o formato binário. O resultado de cada linha pode vir como
+     * {@code c9 "1-0"} ({@code "0-1"}, {@code "1/2-1/2"}) ou como {@code [1.0]} ({@code [0.5]}, {@code [0.0]});
+     * linhas sem resultado ou com posição inválida são ignoradas
+     *
+     * @return a quantidade de posições convertidas
+     */
+    public static long convert(BufferedReader in, Path file) throws IOException {
+        long total = 0;
+        Position position = new Position();
+        Batch batch = new Batch(BATCH_SIZE, BATCH_SIZE * 32);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, MAGIC);
+            out.write(header);
+            String line;
+            while ((line = in.readLine()) != null) {
+                int result = parseResult(line);
+                if (result < 0) {
+                    continue;
+                }
+                try {
+                    Fen.parse(Fen.epdPosition(line.trim()), position);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (Long.bitCount(position.occupied()) > 32) {
+                    continue;
+                }
+                addPosition(batch, position, result);
+                total++;
+                if (batch.size == BATCH_SIZE) {
+                    writeBatch(out, batch);
+                    batch.size = 0;
+                }
+            }
+            if (batch.size > 0) {
+                writeBatch(out, batch);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return 0, 1 ou 2 para derrota, empate ou vitória das brancas, ou -1 se a linha não tiver resultado
+     */
+    static int parseResult(String line) {
+        if (line.contains("1/2-1/2") || line.contains("[0.5]")) {
+            return 1;
+        }
+        if (line.contains("1-0") || line.contains("[1.0]")) {
+            return 2;
+        }
+        if (line.contains("0-1") || line.contains("[0.0]")) {
+            return 0;
+        }
+        return -1;
+    }
+
+    private static void addPosition(Batch batch, Position position, int result) {
+        int index = batch.size++;
+        int next = batch.starts[index];
+        for (int code = 0; code < 12; code++) {
+            long pieces = position.pieces(Pieces.color(code), Pieces.type(code));
+            while (pieces != 0) {
+                batch.features[next++] = (short) (code * 64 + Long.numberOfTrailingZeros(pieces));
+                pieces &= pieces - 1;
+            }
+        }
+        batch.results[index] = (byte) result;
+        batch.fixed[index] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Evaluator.pawnTerms(position)));
+        batch.starts[index + 1] = next;
+    }
+
+    /**
+     * Escreve um bloco: a quantidade de posições e de peças, os resultados, a quantidade de peças de cada posição,
+     * as pontuações fixas e as peças
+     */
+    private static void writeBatch(FileChannel out, Batch batch) throws IOException {
+        int featureCount = batch.starts[batch.size];
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 4 * batch.size + 2 * featureCount).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(batch.size).putInt(featureCount);
+        buffer.put(batch.results, 0, batch.size);
+        for (int i = 0; i < batch.size; i++) {
+            buffer.put((byte) (batch.starts[i + 1] - batch.starts[i]));
+        }
+        buffer.asShortBuffer().put(batch.fixed, 0, batch.size);
+        buffer.position(8 + 4 * batch.size);
+        buffer.asShortBuffer().put(batch.features, 0, featureCount);
+        buffer.position(buffer.capacity()).flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Lê o próximo bloco do arquivo para dentro de {@code batch}, reutilizando os vetores dele quando couberem
+     *
+     * @return o bloco lido, ou {@code null} no fim do arquivo
+     */
+    private static Batch readBatch(FileChannel in, Batch batch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(in, header)) {
+            return null;
+        }
+        int size = header.getInt(0);
+        int featureCount = header.getInt(4);
+        if (size <= 0 || size > BATCH_SIZE || featureCount < 0 || featureCount > size * 32) {
+            throw new IOException("Bloco inválido no arquivo de posições");
+        }
+        if (batch == null || batch.features.length < featureCount) {
+            batch = new Batch(BATCH_SIZE, Math.max(featureCount, batch == null ? 0 : batch.features.length));
+        }
+        ByteBuffer data = ByteBuffer.allocate(4 * size + 2 * featureCount).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(in, data)) {
+            throw new IOException("Arquivo de posições incompleto");
+        }
+        data.get(batch.results, 0, size);
+        for (int i = 0; i < size; i++) {
+            batch.starts[i + 1] = batch.starts[i] + (data.get() & 0xFF);
+        }
+        data.asShortBuffer().get(batch.fixed, 0, size);
+        data.position(4 * size);
+        data.asShortBuffer().get(batch.features, 0, featureCount);
+        batch.size = size;
+        return batch;
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new IOException("Arquivo de posições incompleto");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * Posições usadas no ajuste: todas em memória, ou lidas do disco bloco a bloco a cada passada
+     */
+    static final class DataSet implements AutoCloseable {
+        private final Path file;
+        private final List<Batch> loaded;
+        private final ExecutorService reader;
+        final long size;
+
+        private DataSet(Path file, List<Batch> loaded, long size) {
+            this.file = file;
+            this.loaded = loaded;
+            this.size = size;
+            this.reader = loaded == null ? Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "tuner-reader");
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+        }
+
+        /**
+         * Abre o arquivo de posições, carregando-o todo para a memória se ele tiver no máximo {@code memoryBytes}
+         */
+        static DataSet open(Path file, long memoryBytes) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                checkMagic(in, file);
+                boolean fits = in.size() <= memoryBytes;
+                List<Batch> batches = new ArrayList<>();
+                long size = 0;
+                Batch batch;
+                Batch reuse = null;
+                while ((batch = readBatch(in, reuse)) != null) {
+                    size += batch.size;
+                    if (fits) {
+                        batches.add(batch);
+                    } else {
+                        reuse = batch;
+                    }
+                }
+                return new DataSet(file, fits ? batches : null, size);
+            }
+        }
+
+        private static void checkMagic(FileChannel in, Path file) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(in, header) || header.getInt(0) != MAGIC) {
+                throw new IOException("Arquivo de posições inválido: " + file);
+            }
+        }
+
+        boolean inMemory() {
+            return loaded != null;
+        }
+
+        interface BatchConsumer {
+            void accept(Batch batch);
+        }
+
+        /**
+         * Passa por todos os blocos, em ordem
+         */
+        void forEach(BatchConsumer consumer) throws IOException {
+            if (loaded != null) {
+                for (Batch batch : loaded) {
+                    consumer.accept(batch);
+                }
+                return;
+            }
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                checkMagic(in, file);
+                // Dois blocos alternados: um é calculado enquanto o outro é lido
+                Batch[] spare = {null, null};
+                Batch current = readBatch(in, null);
+                int turn = 0;
+                while (current != null) {
+                    Batch reuse = spare[turn];
+                    Future<Batch> next = reader.submit(() -> readBatch(in, reuse));
+                    consumer.accept(current);
+                    spare[turn] = current;
+                    turn ^= 1;
+                    current = next.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Leitura interrompida", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (reader != null) {
+                reader.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Recalcula o peso de cada peça em cada casa a partir dos parâmetros atuais
+     */
+    private void updateWeights() {
+        for (int code = 0; code < 12; code++) {
+            int type = Pieces.type(code);
+            boolean white = Pieces.color(code) == Pieces.WHITE;
+            for (int sq = 0; sq < 64; sq++) {
+                double weight = parameters[type] + parameters[Evaluator.squareParameter(type, white ? sq : sq ^ 56)];
+                weights[code * 64 + sq] = white ? weight : -weight;
+            }
+        }
+    }
+
+    private double sigmoid(double score) {
+        return 1.0 / (1.0 + Math.exp(-k * score * Math.log(10) / 400));
+    }
+
+    /**
+     * Calcula o erro de uma parte do bloco e, se {@code gradient} for verdadeiro, a derivada do erro em relação ao peso
+     * de cada peça em cada casa
+     *
+     * @return o vetor das derivadas por peça e casa, com a soma dos erros na última posição
+     */
+    private double[] slice(Batch batch, int from, int to, boolean gradient) {
+        double[] sums = new double[FEATURES + 1];
+        double scale = Math.log(10) * k / 400;
+        for (int i = from; i < to; i++) {
+            int start = batch.starts[i];
+            int end = batch.starts[i + 1];
+            double score = batch.fixed[i];
+            for (int j = start; j < end; j++) {
+                score += weights[batch.features[j]];
+            }
+            double predicted = sigmoid(score);
+            double error = batch.results[i] * 0.5 - predicted;
+            sums[FEATURES] += error * error;
+            if (gradient) {
+                double derivative = -2 * error * predicted * (1 - predicted) * scale;
+                for (int j = start; j < end; j++) {
+                    sums[batch.features[j]] += derivative;
+                }
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Soma os vetores de todas as partes de um bloco, calculadas em paralelo
+     */
+    private void accumulate(Batch batch, double[] total, boolean gradient) {
+        int slices = (batch.size + SLICE_SIZE - 1) / SLICE_SIZE;
+        double[] sums = pool.submit(() -> IntStream.range(0, slices).parallel()
+                .mapToObj(s -> slice(batch, s * SLICE_SIZE, Math.min(batch.size, (s + 1) * SLICE_SIZE), gradient))
+                .reduce((a, b) -> {
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] += b[i];
+                    }
+                    return a;
+                }).orElseGet(() -> new double[FEATURES + 1])).join();
+        for (int i = 0; i < total.length; i++) {
+            total[i] += sums[i];
+        }
+    }
+
+    /**
+     * Erro quadrático médio das posições com os parâmetros atuais
+     */
+    public double loss(DataSet data) throws IOException {
+        updateWeights();
+        double[] total = new double[FEATURES + 1];
+        data.forEach(batch -> accumulate(batch, total, false));
+        return total[FEATURES] / data.size;
+    }
+
+    /**
+     * Procura, por busca ternária, a escala da sigmoide que minimiza o erro com os parâmetros atuais e passa a usá-la
+     *
+     * @return a escala encontrada
+     */
+    public double fitScale(DataSet data) throws IOException {
+        double low = 0.1;
+        double high = 4.0;
+        for (int i = 0; i < 20; i++) {
+            double a = low + (high - low) / 3;
+            double b = high - (high - low) / 3;
+            k = a;
+            double lossA = loss(data);
+            k = b;
+            if (lossA < loss(data)) {
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        k = (low + high) / 2;
+        return k;
+    }
+
+    /**
+     * Executa uma época: uma passada pelas posições para calcular o gradiente, seguida de um passo de Adam
+     *
+     * @return o erro médio antes do passo
+     */
+    public double epoch(DataSet data, Adam optimizer) throws IOException {
+        updateWeights();
+        double[] total = new double[FEATURES + 1];
+        data.forEach(batch -> accumulate(batch, total, true));
+
+        // O peso de uma peça numa casa é a soma do valor material com o valor da casa, então as duas derivadas são iguais
+        double[] gradient = new double[parameters.length];
+        for (int code = 0; code < 12; code++) {
+            int type = Pieces.type(code);
+            boolean white = Pieces.color(code) == Pieces.WHITE;
+            for (int sq = 0; sq < 64; sq++) {
+                double derivative = total[code * 64 + sq] / data.size * (white ? 1 : -1);
+                gradient[type] += derivative;
+                gradient[Evaluator.squareParameter(type, white ? sq : sq ^ 56)] += derivative;
+            }
+        }
+        // O rei não tem valor material
+        gradient[Pieces.KING] = 0;
+        optimizer.step(parameters, gradient);
+        return total[FEATURES] / data.size;
+    }
+
+    /**
+     * Os parâmetros atuais, arredondados
+     */
+    public int[] parameters() {
+        int[] rounded = new int[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            rounded[i] = (int) Math.round(parameters[i]);
+        }
+        return rounded;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Otimizador Adam: cada parâmetro tem o seu próprio passo, proporcional à média das derivadas dividida pela raiz da
+     * média dos quadrados delas, o que compensa parâmetros que aparecem em muito mais posições que outros
+     */
+    static final class Adam {
+        private static final double BETA1 = 0.9;
+        private static final double BETA2 = 0.999;
+        private static final double EPSILON = 1e-12;
+
+        private final double rate;
+        private final double[] mean;
+        private final double[] variance;
+        private int steps;
+
+        Adam(int size, double rate) {
+            this.rate = rate;
+            this.mean = new double[size];
+            this.variance = new double[size];
+        }
+
+        void step(double[] parameters, double[] gradient) {
+            steps++;
+            double correction1 = 1 - Math.pow(BETA1, steps);
+            double correction2 = 1 - Math.pow(BETA2, steps);
+            for (int i = 0; i < parameters.length; i++) {
+                mean[i] = BETA1 * mean[i] + (1 - BETA1) * gradient[i];
+                variance[i] = BETA2 * variance[i] + (1 - BETA2) * gradient[i] * gradient[i];
+                parameters[i] -= rate * (mean[i] / correction1) / (Math.sqrt(variance[i] / correction2) + EPSILON);
+            }
+        }
+    }
+
+    /**
+     * Ponto de entrada da linha de comando:
+     * {@code TexelTuner convert <posicoes.epd> <posicoes.bin>} ou
+     * {@code TexelTuner tune <posicoes.bin> <parametros.txt> [--epochs N] [--rate X] [--k X] [--threads N] [--memory-mb N]}
+     * <p>
+     * O ajuste parte dos parâmetros atuais de {@link Evaluator} (que podem vir de {@code -Dchess.eval}) e grava os
+     * parâmetros no arquivo de saída a cada 10 épocas e no final.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("convert") || args[0].equals("tune"))) {
+            System.err.println("Uso: TexelTuner convert <posicoes.epd> <posicoes.bin>");
+            System.err.println("     TexelTuner tune <posicoes.bin> <parametros.txt> [--epochs N] [--rate X] [--k X] [--threads N] [--memory-mb N]");
+            System.exit(1);
+        }
+
+        long start = System.currentTimeMillis();
+        if (args[0].equals("convert")) {
+            try (BufferedReader in = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                long total = convert(in, Paths.get(args[2]));
+                System.out.println(total + " posições convertidas em " + (System.currentTimeMillis() - start) + " ms.");
+            }
+            return;
+        }
+
+        int epochs = 100;
+        double rate = 1.0;
+        double k = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long memoryMegabytes = 1024;
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "--epochs":
+                    epochs = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--k":
+                    k = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--memory-mb":
+                    memoryMegabytes = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        Path output = Paths.get(args[2]);
+        try (DataSet data = DataSet.open(Paths.get(args[1]), memoryMegabytes * 1024 * 1024);
+             TexelTuner tuner = new TexelTuner(threads, k, Evaluator.parameters())) {
+            System.out.println(data.size + " posições " + (data.inMemory() ? "em memória" : "lidas do disco a cada época")
+                    + " (" + (System.currentTimeMillis() - start) + " ms).");
+            if (k <= 0) {
+                System.out.printf("k = %.4f%n", tuner.fitScale(data));
+            }
+
+            Adam optimizer = new Adam(Evaluator.PARAMETER_COUNT, rate);
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                long epochStart = System.currentTimeMillis();
+                double loss = tuner.epoch(data, optimizer);
+                System.out.printf("época %d: erro %.6f (%d ms)%n", epoch, loss, System.currentTimeMillis() - epochStart);
+                if (epoch % 10 == 0) {
+                    Evaluator.save(tuner.parameters(), output);
+                }
+            }
+            System.out.printf("erro final %.6f%n", tuner.loss(data));
+            Evaluator.save(tuner.parameters(), output);
+        }
+    }
+}
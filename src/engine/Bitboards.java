@@ -0,0 +1,123 @@
+package engine;
+
+/**
+ * Tabelas de ataque pré-calculadas para o tabuleiro 8x8, usadas pela geração de movimentos e pela avaliação de trocas.
+ * <p>
+ * Uma casa é identificada pelo índice {@code row * 8 + col}, com a linha 0 no topo do tabuleiro (lado das pretas),
+ * seguindo a mesma orientação de {@link main.Board}. Cada bit de um {@code long} corresponde a uma casa.
+ */
+public final class Bitboards {
+
+    public static final int NORTH = 0;
+    public static final int SOUTH = 1;
+    public static final int EAST = 2;
+    public static final int WEST = 3;
+    public static final int NORTH_EAST = 4;
+    public static final int NORTH_WEST = 5;
+    public static final int SOUTH_EAST = 6;
+    public static final int SOUTH_WEST = 7;
+
+    private static final int[] DIR_COL = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final int[] DIR_ROW = {-1, 1, 0, 0, -1, -1, 1, 1};
+
+    /**
+     * Raios a partir de cada casa em cada uma das 8 direções, sem incluir a própria casa
+     */
+    static final long[][] RAYS = new long[8][64];
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Casas atacadas por um peão de cada cor; os peões brancos avançam em direção à linha 0
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    public static final long[] ROW_MASKS = new long[8];
+    public static final long[] COL_MASKS = new long[8];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            int col = sq & 7;
+            int row = sq >>> 3;
+
+            ROW_MASKS[row] |= 1L << sq;
+            COL_MASKS[col] |= 1L << sq;
+
+            for (int dir = 0; dir < 8; dir++) {
+                for (int c = col + DIR_COL[dir], r = row + DIR_ROW[dir]; onBoard(c, r); c += DIR_COL[dir], r += DIR_ROW[dir]) {
+                    RAYS[dir][sq] |= bit(c, r);
+                }
+            }
+
+            int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+            for (int[] jump : knightJumps) {
+                if (onBoard(col + jump[0], row + jump[1])) {
+                    KNIGHT_ATTACKS[sq] |= bit(col + jump[0], row + jump[1]);
+                }
+            }
+
+            for (int dc = -1; dc <= 1; dc++) {
+                for (int dr = -1; dr <= 1; dr++) {
+                    if ((dc != 0 || dr != 0) && onBoard(col + dc, row + dr)) {
+                        KING_ATTACKS[sq] |= bit(col + dc, row + dr);
+                    }
+                }
+            }
+
+            for (int dc = -1; dc <= 1; dc += 2) {
+                if (onBoard(col + dc, row - 1)) {
+                    PAWN_ATTACKS[Pieces.WHITE][sq] |= bit(col + dc, row - 1);
+                }
+                if (onBoard(col + dc, row + 1)) {
+                    PAWN_ATTACKS[Pieces.BLACK][sq] |= bit(col + dc, row + 1);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static boolean onBoard(int col, int row) {
+        return col >= 0 && col < 8 && row >= 0 && row < 8;
+    }
+
+    public static long bit(int col, int row) {
+        return 1L << (row * 8 + col);
+    }
+
+    public static int square(int col, int row) {
+        return row * 8 + col;
+    }
+
+    /**
+     * Calcula as casas atacadas ao longo de um raio, parando na primeira peça encontrada (que também é incluída)
+     */
+    static long rayAttacks(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        // As direções SOUTH, EAST, SOUTH_EAST e SOUTH_WEST aumentam o índice da casa
+        int blocker = (dir == SOUTH || dir == EAST || dir == SOUTH_EAST || dir == SOUTH_WEST)
+                ? Long.numberOfTrailingZeros(blockers)
+                : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[dir][blocker];
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH, sq, occupied) | rayAttacks(SOUTH, sq, occupied)
+                | rayAttacks(EAST, sq, occupied) | rayAttacks(WEST, sq, occupied);
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH_EAST, sq, occupied) | rayAttacks(NORTH_WEST, sq, occupied)
+                | rayAttacks(SOUTH_EAST, sq, occupied) | rayAttacks(SOUTH_WEST, sq, occupied);
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+}
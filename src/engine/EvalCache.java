@@ -0,0 +1,244 @@
+package engine;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cache persistente de resultados de busca (avaliação, profundidade e melhor movimento), guardado em um arquivo
+ * mapeado em memória e indexado pelo {@link Position#hash() hash de Zobrist}.
+ * <p>
+ * O arquivo tem tamanho fixo e é dividido em baldes de {@link #SLOTS_PER_BUCKET} entradas (uma linha de cache do
+ * processador por balde). Uma posição só pode ficar no balde indicado pelo seu hash; quando o balde está cheio, a entrada
+ * usada há mais tempo é substituída. Para saber o que foi usado recentemente, o arquivo guarda um relógio que avança
+ * a cada {@link #CLOCK_TICK} gravações, e cada entrada guarda o valor do relógio da última vez em que foi lida ou gravada.
+ * <p>
+ * Como em {@link TranspositionTable}, a chave de cada entrada é guardada em "ou exclusivo" com os dados, então várias
+ * threads e vários processos podem usar o mesmo arquivo ao mesmo tempo sem travas: uma entrada escrita pela metade
+ * simplesmente não confere com a chave e é tratada como ausente.
+ */
+public final class EvalCache implements AutoCloseable {
+
+    public static final int SLOTS_PER_BUCKET = 4;
+    public static final int CLOCK_TICK = 1024;
+
+    private static final int MAGIC = 0x43564543; // "CEVC"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int CLOCK_OFFSET = 16;
+    private static final int FINGERPRINT_OFFSET = 24;
+
+    private static final long USED = 1L << 56;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int bucketMask;
+
+    /**
+     * Gravações feitas por este processo desde o último avanço do relógio (contagem aproximada quando há várias threads)
+     */
+    private int storesSinceTick;
+
+    private EvalCache(FileChannel channel, MappedByteBuffer map, int buckets) {
+        this.channel = channel;
+        this.map = map;
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Abre o cache guardado no arquivo dado, criando-o com o tamanho aproximado informado se ele não existir.
+     * Um arquivo já existente mantém o tamanho com que foi criado; se ele foi gravado por outra versão do cache ou com
+     * outra avaliação (outra {@link Evaluator#fingerprint() identificação}), as entradas guardadas são apagadas.
+     *
+     * @param megabytes o tamanho do arquivo novo, arredondado para baixo para uma potência de dois de baldes (no máximo 1024)
+     */
+    public static EvalCache open(Path file, int megabytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            int buckets;
+            long fingerprint = Evaluator.fingerprint();
+            // A trava só protege a criação do arquivo; depois dela os processos usam o arquivo sem travas
+            FileLock lock = channel.lock();
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // Lê o cabeçalho inteiro; um arquivo menor que ele fica com o resto zerado
+                }
+                if (header.getInt(0) == MAGIC) {
+                    buckets = header.getInt(8);
+                    if ((header.getInt(4) != VERSION || header.getLong(FINGERPRINT_OFFSET) != fingerprint)
+                            && Integer.bitCount(buckets) == 1 && channel.size() >= fileSize(buckets)) {
+                        // Os resultados foram calculados com outra avaliação e não valem mais; o tamanho é mantido
+                        // para não mudar um arquivo que outro processo pode ter mapeado
+                        ByteBuffer zeros = ByteBuffer.allocate(1024 * 1024);
+                        for (long offset = HEADER_SIZE; offset < fileSize(buckets); offset += zeros.capacity()) {
+                            zeros.clear().limit((int) Math.min(zeros.capacity(), fileSize(buckets) - offset));
+                            while (zeros.hasRemaining()) {
+                                channel.write(zeros, offset + zeros.position());
+                            }
+                        }
+                        writeHeader(channel, header, buckets, fingerprint);
+                    }
+                } else {
+                    long bytes = (long) Math.max(1, Math.min(1024, megabytes)) * 1024 * 1024;
+                    buckets = Integer.highestOneBit((int) (bytes / (SLOTS_PER_BUCKET * SLOT_SIZE)));
+                    // O arquivo ganha o tamanho final antes de qualquer mapeamento, e o cabeçalho é escrito por último
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.allocate(1), fileSize(buckets) - 1);
+                    writeHeader(channel, header, buckets, fingerprint);
+                }
+            } finally {
+                lock.release();
+            }
+            if (Integer.bitCount(buckets) != 1) {
+                throw new IOException("Arquivo de cache inválido: " + file);
+            }
+            long size = fileSize(buckets);
+            if (channel.size() < size) {
+                throw new IOException("Arquivo de cache incompleto: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new EvalCache(channel, map, buckets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long fileSize(int buckets) {
+        return HEADER_SIZE + (long) buckets * SLOTS_PER_BUCKET * SLOT_SIZE;
+    }
+
+    private static void writeHeader(FileChannel channel, ByteBuffer header, int buckets, long fingerprint) throws IOException {
+        header.clear();
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, buckets);
+        header.putLong(CLOCK_OFFSET, 0);
+        header.putLong(FINGERPRINT_OFFSET, fingerprint);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    private int slotOffset(long hash, int slot) {
+        int bucket = (int) (hash >>> 32) & bucketMask;
+        return HEADER_SIZE + (bucket * SLOTS_PER_BUCKET + slot) * SLOT_SIZE;
+    }
+
+    private long clock() {
+        return (long) LONGS.getOpaque(map, CLOCK_OFFSET);
+    }
+
+    /**
+     * Procura a posição no cache, marcando a entrada encontrada como usada agora
+     *
+     * @return os dados da entrada (ver os métodos estáticos de leitura), ou 0 se a posição não estiver no cache
+     */
+    public long probe(long hash) {
+        for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            int offset = slotOffset(hash, slot);
+            long data = (long) LONGS.getOpaque(map, offset + 8);
+            long key = (long) LONGS.getOpaque(map, offset);
+            if (data != 0 && (key ^ data) == hash) {
+                long stamp = clock() & 0xFFFF;
+                if (stamp(data) != stamp) {
+                    write(offset, hash, (data & ~(0xFFFFL << 40)) | (stamp << 40));
+                }
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Guarda o resultado de uma busca. Um resultado já guardado para a mesma posição só é substituído por outro de
+     * profundidade igual ou maior; se o balde estiver cheio, a entrada usada há mais tempo é descartada.
+     */
+    public void store(long hash, int move, int score, int depth) {
+        long clock = clock();
+        long data = (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32)
+                | ((clock & 0xFFFF) << 40) | USED;
+
+        int victim = -1;
+        int victimAge = -1;
+        for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            int offset = slotOffset(hash, slot);
+            long old = (long) LONGS.getOpaque(map, offset + 8);
+            long key = (long) LONGS.getOpaque(map, offset);
+            if (old == 0) {
+                if (victimAge < Integer.MAX_VALUE) {
+                    victim = offset;
+                    victimAge = Integer.MAX_VALUE;
+                }
+                continue;
+            }
+            if ((key ^ old) == hash) {
+                if (depth(old) <= depth) {
+                    write(offset, hash, data);
+                }
+                tick();
+                return;
+            }
+            int age = (int) ((clock - stamp(old)) & 0xFFFF);
+            if (age > victimAge) {
+                victim = offset;
+                victimAge = age;
+            }
+        }
+        write(victim, hash, data);
+        tick();
+    }
+
+    private void write(int offset, long hash, long data) {
+        LONGS.setOpaque(map, offset + 8, data);
+        LONGS.setOpaque(map, offset, hash ^ data);
+    }
+
+    private void tick() {
+        if (++storesSinceTick >= CLOCK_TICK) {
+            storesSinceTick = 0;
+            LONGS.getAndAdd(map, CLOCK_OFFSET, 1L);
+        }
+    }
+
+    /**
+     * Grava no disco as alterações ainda em memória
+     */
+    public void flush() {
+        map.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 32) & 0xFF);
+    }
+
+    private static long stamp(long entry) {
+        return (entry >>> 40) & 0xFFFF;
+    }
+}
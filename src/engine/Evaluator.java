@@ -0,0 +1,398 @@
+package engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Avaliação estática de uma posição em centipeões (1/100 de peão), sempre do ponto de vista do lado que tem a vez.
+ * <p>
+ * A avaliação é a soma do valor material de cada peça com o valor da casa em que ela está (tabelas peça-casa) e da
+ * estrutura de peões (peões passados, isolados, dobrados e atrasados), que pode vir de uma {@link PawnHashTable}.
+ * Os parâmetros podem ser ajustados por {@link analysis.TexelTuner} e lidos de um arquivo; se a propriedade
+ * {@code chess.eval} apontar para um arquivo de parâmetros, ele é carregado ao iniciar.
+ */
+public final class Evaluator {
+
+    /**
+     * Valor material de cada tipo de peça, na ordem de {@link Pieces}. O rei não tem valor material na avaliação
+     */
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    /**
+     * Valor de cada tipo de peça em cada casa, do ponto de vista das brancas: o índice é a casa de {@link Bitboards},
+     * com a linha 0 sendo a última fileira (a das pretas). Para as pretas a tabela é espelhada verticalmente
+     */
+    public static final int[][] PIECE_SQUARE = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0
+            },
+            {
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20
+            },
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20
+            }
+    };
+
+    /**
+     * Quantidade de parâmetros ajustáveis: os valores materiais seguidos das tabelas peça-casa de cada tipo
+     */
+    public static final int PARAMETER_COUNT = 6 + 6 * 64;
+
+    /**
+     * Bônus de um peão passado pela quantidade de casas que ele já avançou desde a fileira inicial das peças da sua cor
+     */
+    public static final int[] PASSED_PAWN = {0, 5, 10, 20, 35, 60, 100, 0};
+
+    /**
+     * Bônus extra de um peão passado cuja casa da frente está livre, também pela quantidade de casas avançadas
+     */
+    public static final int[] FREE_PASSED_PAWN = {0, 0, 5, 10, 15, 25, 40, 0};
+
+    public static final int ISOLATED_PAWN = -15;
+    public static final int DOUBLED_PAWN = -10;
+    public static final int BACKWARD_PAWN = -8;
+
+    /**
+     * Casas à frente de um peão de cada cor, na mesma coluna e nas vizinhas: se nenhum peão adversário estiver
+     * nelas, o peão é passado
+     */
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    /**
+     * Casas das colunas vizinhas na mesma fileira ou atrás de um peão de cada cor: os peões que ainda podem defendê-lo
+     */
+    private static final long[][] SUPPORT_MASKS = new long[2][64];
+
+    private static final long[] ADJACENT_COLS = new long[8];
+
+    private static final String[] TABLE_NAMES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
+
+    static {
+        for (int col = 0; col < 8; col++) {
+            ADJACENT_COLS[col] = (col > 0 ? Bitboards.COL_MASKS[col - 1] : 0) | (col < 7 ? Bitboards.COL_MASKS[col + 1] : 0);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int col = sq & 7;
+            int row = sq >>> 3;
+            long files = Bitboards.COL_MASKS[col] | ADJACENT_COLS[col];
+            for (int r = 0; r < 8; r++) {
+                // As brancas avançam em direção à linha 0 e as pretas em direção à linha 7
+                if (r < row) {
+                    PASSED_MASKS[Pieces.WHITE][sq] |= files & Bitboards.ROW_MASKS[r];
+                    SUPPORT_MASKS[Pieces.BLACK][sq] |= ADJACENT_COLS[col] & Bitboards.ROW_MASKS[r];
+                } else if (r > row) {
+                    PASSED_MASKS[Pieces.BLACK][sq] |= files & Bitboards.ROW_MASKS[r];
+                    SUPPORT_MASKS[Pieces.WHITE][sq] |= ADJACENT_COLS[col] & Bitboards.ROW_MASKS[r];
+                } else {
+                    SUPPORT_MASKS[Pieces.WHITE][sq] |= ADJACENT_COLS[col] & Bitboards.ROW_MASKS[r];
+                    SUPPORT_MASKS[Pieces.BLACK][sq] |= ADJACENT_COLS[col] & Bitboards.ROW_MASKS[r];
+                }
+            }
+        }
+
+        String file = System.getProperty("chess.eval");
+        if (file != null) {
+            try {
+                load(Paths.get(file));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Não foi possível ler os parâmetros de avaliação de " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * Calcula a avaliação da posição para o lado que tem a vez, analisando a estrutura de peões sem cache
+     */
+    public static int evaluate(Position position) {
+        return evaluate(position, null);
+    }
+
+    /**
+     * Calcula a avaliação da posição para o lado que tem a vez
+     *
+     * @param pawns a tabela de onde vem a avaliação da estrutura de peões, ou {@code null} para analisá-la sempre
+     */
+    public static int evaluate(Position position, PawnHashTable pawns) {
+        int score;
+        if (pawns != null) {
+            int entry = pawns.probe(position);
+            score = pawns.score(entry) + freePassedPawns(position, pawns.passed(entry));
+        } else {
+            score = pawnTerms(position);
+        }
+
+        for (int type = Pieces.PAWN; type <= Pieces.KING; type++) {
+            int[] table = PIECE_SQUARE[type];
+            long white = position.pieces(Pieces.WHITE, type);
+            long black = position.pieces(Pieces.BLACK, type);
+            score += PIECE_VALUES[type] * (Long.bitCount(white) - Long.bitCount(black));
+            while (white != 0) {
+                score += table[Long.numberOfTrailingZeros(white)];
+                white &= white - 1;
+            }
+            while (black != 0) {
+                score -= table[Long.numberOfTrailingZeros(black) ^ 56];
+                black &= black - 1;
+            }
+        }
+        return position.sideToMove() == Pieces.WHITE ? score : -score;
+    }
+
+    /**
+     * Soma de todos os termos de peões da posição, do ponto de vista das brancas, sem usar cache. Esses termos não
+     * fazem parte dos {@link #parameters() parâmetros ajustáveis}
+     */
+    public static int pawnTerms(Position position) {
+        long whitePawns = position.pieces(Pieces.WHITE, Pieces.PAWN);
+        long blackPawns = position.pieces(Pieces.BLACK, Pieces.PAWN);
+        return pawnStructure(whitePawns, blackPawns) + freePassedPawns(position, passedPawns(whitePawns, blackPawns));
+    }
+
+    /**
+     * Avalia a estrutura formada pelos peões dados, do ponto de vista das brancas. Depende apenas dos peões, por isso
+     * pode ser guardada em uma {@link PawnHashTable}
+     */
+    public static int pawnStructure(long whitePawns, long blackPawns) {
+        return pawnStructure(Pieces.WHITE, whitePawns, blackPawns) - pawnStructure(Pieces.BLACK, blackPawns, whitePawns);
+    }
+
+    private static int pawnStructure(int color, long own, long enemy) {
+        long enemyAttacks = 0;
+        for (long bb = enemy; bb != 0; bb &= bb - 1) {
+            enemyAttacks |= Bitboards.PAWN_ATTACKS[color ^ 1][Long.numberOfTrailingZeros(bb)];
+        }
+
+        int score = 0;
+        for (int col = 0; col < 8; col++) {
+            int count = Long.bitCount(own & Bitboards.COL_MASKS[col]);
+            if (count > 1) {
+                score += DOUBLED_PAWN * (count - 1);
+            }
+        }
+        for (long bb = own; bb != 0; bb &= bb - 1) {
+            int sq = Long.numberOfTrailingZeros(bb);
+            if ((PASSED_MASKS[color][sq] & enemy) == 0) {
+                score += PASSED_PAWN[advance(color, sq)];
+            }
+            if ((own & ADJACENT_COLS[sq & 7]) == 0) {
+                score += ISOLATED_PAWN;
+            } else if ((own & SUPPORT_MASKS[color][sq]) == 0) {
+                // Nenhum peão vizinho pode mais defendê-lo, e a casa da frente é controlada por um peão adversário
+                int stop = color == Pieces.WHITE ? sq - 8 : sq + 8;
+                if (stop >= 0 && stop < 64 && (enemyAttacks & (1L << stop)) != 0) {
+                    score += BACKWARD_PAWN;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Peões passados das duas cores: os que não têm peões adversários à frente na mesma coluna nem nas vizinhas
+     */
+    public static long passedPawns(long whitePawns, long blackPawns) {
+        long passed = 0;
+        for (long bb = whitePawns; bb != 0; bb &= bb - 1) {
+            int sq = Long.numberOfTrailingZeros(bb);
+            if ((PASSED_MASKS[Pieces.WHITE][sq] & blackPawns) == 0) {
+                passed |= 1L << sq;
+            }
+        }
+        for (long bb = blackPawns; bb != 0; bb &= bb - 1) {
+            int sq = Long.numberOfTrailingZeros(bb);
+            if ((PASSED_MASKS[Pieces.BLACK][sq] & whitePawns) == 0) {
+                passed |= 1L << sq;
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Bônus dos peões passados cuja casa da frente está livre, do ponto de vista das brancas. Depende das outras
+     * peças, então é calculado a cada avaliação a partir da máscara de peões passados
+     */
+    private static int freePassedPawns(Position position, long passed) {
+        int score = 0;
+        long occupied = position.occupied();
+        for (long bb = passed; bb != 0; bb &= bb - 1) {
+            int sq = Long.numberOfTrailingZeros(bb);
+            int color = Pieces.color(position.pieceAt(sq));
+            int stop = color == Pieces.WHITE ? sq - 8 : sq + 8;
+            if (stop >= 0 && stop < 64 && (occupied & (1L << stop)) == 0) {
+                score += color == Pieces.WHITE ? FREE_PASSED_PAWN[advance(color, sq)] : -FREE_PASSED_PAWN[advance(color, sq)];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Quantidade de fileiras que um peão da cor dada na casa dada está à frente da primeira fileira da sua cor
+     */
+    private static int advance(int color, int sq) {
+        return color == Pieces.WHITE ? 7 - (sq >>> 3) : sq >>> 3;
+    }
+
+    /**
+     * Índice do parâmetro da tabela peça-casa para uma peça do tipo dado na casa dada, vista pelas brancas
+     */
+    public static int squareParameter(int type, int sq) {
+        return 6 + type * 64 + sq;
+    }
+
+    /**
+     * Copia os parâmetros atuais para um vetor, na ordem descrita em {@link #PARAMETER_COUNT}
+     */
+    public static int[] parameters() {
+        int[] parameters = new int[PARAMETER_COUNT];
+        System.arraycopy(PIECE_VALUES, 0, parameters, 0, 6);
+        for (int type = 0; type < 6; type++) {
+            System.arraycopy(PIECE_SQUARE[type], 0, parameters, squareParameter(type, 0), 64);
+        }
+        return parameters;
+    }
+
+    /**
+     * Substitui os parâmetros da avaliação. Deve ser chamado antes de iniciar buscas, pois as tabelas são
+     * compartilhadas por todas as threads sem sincronização
+     */
+    public static void setParameters(int[] parameters) {
+        if (parameters.length != PARAMETER_COUNT) {
+            throw new IllegalArgumentException("Quantidade de parâmetros inválida: " + parameters.length);
+        }
+        System.arraycopy(parameters, 0, PIECE_VALUES, 0, 6);
+        for (int type = 0; type < 6; type++) {
+            System.arraycopy(parameters, squareParameter(type, 0), PIECE_SQUARE[type], 0, 64);
+        }
+    }
+
+    /**
+     * Identificação de 64 bits dos parâmetros atuais e dos termos de peões, que muda sempre que algum deles muda;
+     * usada pelo {@link EvalCache} para descartar resultados calculados com outra avaliação
+     */
+    public static long fingerprint() {
+        long hash = 0xCBF29CE484222325L;
+        for (int[] values : new int[][]{parameters(), PASSED_PAWN, FREE_PASSED_PAWN, {ISOLATED_PAWN, DOUBLED_PAWN, BACKWARD_PAWN}}) {
+            for (int value : values) {
+                hash = (hash ^ value) * 0x100000001B3L;
+            }
+            hash = (hash ^ values.length) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Escreve os parâmetros dados em um arquivo de texto: uma linha {@code values} com os valores materiais e uma
+     * tabela de 8x8 para cada tipo de peça, com a linha 0 em cima
+     */
+    public static void save(int[] parameters, Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("values");
+            for (int type = 0; type < 6; type++) {
+                out.write(" " + parameters[type]);
+            }
+            out.write('\n');
+            for (int type = 0; type < 6; type++) {
+                out.write(TABLE_NAMES[type] + '\n');
+                for (int row = 0; row < 8; row++) {
+                    StringBuilder line = new StringBuilder();
+                    for (int col = 0; col < 8; col++) {
+                        line.append(String.format("%5d", parameters[squareParameter(type, Bitboards.square(col, row))]));
+                    }
+                    out.write(line.append('\n').toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lê um arquivo escrito por {@link #save} e passa a usar os parâmetros dele
+     *
+     * @throws IllegalArgumentException se o arquivo não estiver no formato esperado
+     */
+    public static void load(Path file) throws IOException {
+        String[] tokens = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim().split("\\s+");
+        int[] parameters = new int[PARAMETER_COUNT];
+        int next = 0;
+        try {
+            next = expect(tokens, next, "values");
+            for (int type = 0; type < 6; type++) {
+                parameters[type] = Integer.parseInt(tokens[next++]);
+            }
+            for (int type = 0; type < 6; type++) {
+                next = expect(tokens, next, TABLE_NAMES[type]);
+                for (int sq = 0; sq < 64; sq++) {
+                    parameters[squareParameter(type, sq)] = Integer.parseInt(tokens[next++]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Arquivo de parâmetros incompleto ou inválido: " + file);
+        }
+        setParameters(parameters);
+    }
+
+    private static int expect(String[] tokens, int next, String name) {
+        if (next >= tokens.length || !tokens[next].equals(name)) {
+            throw new IllegalArgumentException("Esperado '" + name + "' no arquivo de parâmetros");
+        }
+        return next + 1;
+    }
+}
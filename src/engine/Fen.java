@@ -0,0 +1,109 @@
+package engine;
+
+/**
+ * Leitura e escrita de posições nas notações FEN e EPD.
+ * <p>
+ * Apenas a disposição das peças e o lado que tem a vez são usados; os campos de roque, en passant e contadores
+ * de lances são aceitos mas ignorados, pois essas regras não existem no tabuleiro deste jogo.
+ */
+public final class Fen {
+
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private Fen() {
+    }
+
+    public static Position parse(String fen) {
+        Position position = new Position();
+        parse(fen, position);
+        return position;
+    }
+
+    /**
+     * Lê a posição do texto FEN (ou EPD) para dentro de uma posição já existente, sem alocar uma nova
+     *
+     * @throws IllegalArgumentException se o texto não descrever uma posição válida
+     */
+    public static void parse(String fen, Position position) {
+        position.clear();
+        String text = fen.trim();
+        int space = text.indexOf(' ');
+        String placement = space < 0 ? text : text.substring(0, space);
+
+        int row = 0;
+        int col = 0;
+        for (int i = 0; i < placement.length(); i++) {
+            char c = placement.charAt(i);
+            if (c == '/') {
+                if (col != 8) {
+                    throw new IllegalArgumentException("Linha incompleta no FEN: " + fen);
+                }
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int code = Pieces.fromChar(c);
+                if (code == Pieces.EMPTY || col >= 8 || row >= 8) {
+                    throw new IllegalArgumentException("Caractere inválido no FEN: " + fen);
+                }
+                position.put(Bitboards.square(col, row), code);
+                col++;
+            }
+            if (col > 8) {
+                throw new IllegalArgumentException("Linha longa demais no FEN: " + fen);
+            }
+        }
+        if (row != 7 || col != 8) {
+            throw new IllegalArgumentException("Quantidade de linhas inválida no FEN: " + fen);
+        }
+
+        char side = space < 0 || space + 1 >= text.length() ? 'w' : text.charAt(space + 1);
+        if (side != 'w' && side != 'b') {
+            throw new IllegalArgumentException("Lado a jogar inválido no FEN: " + fen);
+        }
+        position.setSideToMove(side == 'w' ? Pieces.WHITE : Pieces.BLACK);
+    }
+
+    /**
+     * Retorna os quatro primeiros campos de uma linha EPD (a posição), sem as operações que vêm depois
+     */
+    public static String epdPosition(String epd) {
+        String[] fields = epd.trim().split("\\s+", 5);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < Math.min(4, fields.length); i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(fields[i]);
+        }
+        return text.toString();
+    }
+
+    public static String toFen(Position position) {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int code = position.pieceAt(Bitboards.square(col, row));
+                if (code == Pieces.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    text.append(empty);
+                    empty = 0;
+                }
+                text.append(Pieces.toChar(code));
+            }
+            if (empty > 0) {
+                text.append(empty);
+            }
+            if (row < 7) {
+                text.append('/');
+            }
+        }
+        text.append(position.sideToMove() == Pieces.WHITE ? " w" : " b").append(" - -");
+        return text.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Geometria de um tabuleiro retangular de qualquer tamanho (até {@link #MAX_SIZE} casas por lado), com tabelas de
+ * ataque pré-calculadas, para que as regras de variantes maiores que 8x8 (como 10x8 e 10x10) não precisem percorrer
+ * listas de peças casa a casa.
+ * <p>
+ * Uma casa é identificada pelo índice {@code row * cols + col}, com a linha 0 no topo do tabuleiro (lado das pretas),
+ * como em {@link Bitboards}. Como o tabuleiro pode ter mais de 64 casas, um conjunto de casas é um {@code long[]} com
+ * {@link #words} palavras, e o bit {@code sq % 64} da palavra {@code sq / 64} corresponde à casa {@code sq}. As tabelas
+ * guardam um conjunto por casa em um único vetor, a partir da posição {@code sq * words}.
+ * <p>
+ * As instâncias são imutáveis, compartilhadas por todos os tabuleiros do mesmo tamanho e obtidas com {@link #of}.
+ */
+public final class Geometry {
+
+    public static final int MAX_SIZE = 16;
+
+    /**
+     * As direções usam a mesma numeração de {@link Bitboards}
+     */
+    private static final int[] DIR_COL = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final int[] DIR_ROW = {-1, 1, 0, 0, -1, -1, 1, 1};
+
+    private static final Map<Integer, Geometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+    public static final Geometry STANDARD = of(8, 8);
+
+    public final int cols;
+    public final int rows;
+    public final int squares;
+    public final int words;
+
+    /**
+     * Raios a partir de cada casa em cada uma das 8 direções, sem incluir a própria casa, a partir de
+     * {@code (dir * squares + sq) * words}
+     */
+    private final long[] rays;
+    private final long[] knightAttacks;
+    private final long[] kingAttacks;
+
+    /**
+     * Casas atacadas por um peão de cada cor; os peões brancos avançam em direção à linha 0
+     */
+    private final long[][] pawnAttacks = new long[2][];
+
+    private Geometry(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.squares = cols * rows;
+        this.words = (squares + 63) >>> 6;
+        this.rays = new long[8 * squares * words];
+        this.knightAttacks = new long[squares * words];
+        this.kingAttacks = new long[squares * words];
+        this.pawnAttacks[Pieces.WHITE] = new long[squares * words];
+        this.pawnAttacks[Pieces.BLACK] = new long[squares * words];
+
+        int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int sq = 0; sq < squares; sq++) {
+            int col = col(sq);
+            int row = row(sq);
+
+            for (int dir = 0; dir < 8; dir++) {
+                int offset = (dir * squares + sq) * words;
+                for (int c = col + DIR_COL[dir], r = row + DIR_ROW[dir]; contains(c, r); c += DIR_COL[dir], r += DIR_ROW[dir]) {
+                    add(rays, offset, square(c, r));
+                }
+            }
+
+            for (int[] jump : knightJumps) {
+                if (contains(col + jump[0], row + jump[1])) {
+                    add(knightAttacks, sq * words, square(col + jump[0], row + jump[1]));
+                }
+            }
+
+            for (int dc = -1; dc <= 1; dc++) {
+                for (int dr = -1; dr <= 1; dr++) {
+                    if ((dc != 0 || dr != 0) && contains(col + dc, row + dr)) {
+                        add(kingAttacks, sq * words, square(col + dc, row + dr));
+                    }
+                }
+            }
+
+            for (int dc = -1; dc <= 1; dc += 2) {
+                if (contains(col + dc, row - 1)) {
+                    add(pawnAttacks[Pieces.WHITE], sq * words, square(col + dc, row - 1));
+                }
+                if (contains(col + dc, row + 1)) {
+                    add(pawnAttacks[Pieces.BLACK], sq * words, square(col + dc, row + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna a geometria de um tabuleiro com as dimensões dadas, criando suas tabelas na primeira chamada
+     */
+    public static Geometry of(int cols, int rows) {
+        if (cols < 1 || rows < 1 || cols > MAX_SIZE || rows > MAX_SIZE) {
+            throw new IllegalArgumentException("Tamanho de tabuleiro inválido: " + cols + "x" + rows);
+        }
+        return GEOMETRIES.computeIfAbsent(cols * (MAX_SIZE + 1) + rows, key -> new Geometry(cols, rows));
+    }
+
+    public boolean contains(int col, int row) {
+        return col >= 0 && col < cols && row >= 0 && row < rows;
+    }
+
+    public int square(int col, int row) {
+        return row * cols + col;
+    }
+
+    public int col(int sq) {
+        return sq % cols;
+    }
+
+    public int row(int sq) {
+        return sq / cols;
+    }
+
+    /**
+     * Cria um conjunto de casas vazio
+     */
+    public long[] newSet() {
+        return new long[words];
+    }
+
+    public static void add(long[] set, int offset, int sq) {
+        set[offset + (sq >>> 6)] |= 1L << sq;
+    }
+
+    public static void remove(long[] set, int offset, int sq) {
+        set[offset + (sq >>> 6)] &= ~(1L << sq);
+    }
+
+    public static boolean contains(long[] set, int offset, int sq) {
+        return (set[offset + (sq >>> 6)] & 1L << sq) != 0;
+    }
+
+    /**
+     * Retorna a próxima casa do conjunto a partir de {@code from} (inclusive), ou -1 se não houver; percorrer um
+     * conjunto é {@code for (int sq = next(set, offset, 0); sq >= 0; sq = next(set, offset, sq + 1))}
+     */
+    public int next(long[] set, int offset, int from) {
+        for (int word = from >>> 6; word < words; word++) {
+            long bits = set[offset + word];
+            if (word == from >>> 6) {
+                bits &= -1L << from;
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Posição em {@link #knightAttacks()}, {@link #kingAttacks()} e {@link #pawnAttacks(int)} do conjunto da casa dada
+     */
+    public int offset(int sq) {
+        return sq * words;
+    }
+
+    public long[] knightAttacks() {
+        return knightAttacks;
+    }
+
+    public long[] kingAttacks() {
+        return kingAttacks;
+    }
+
+    public long[] pawnAttacks(int color) {
+        return pawnAttacks[color];
+    }
+
+    /**
+     * Retorna a direção (de {@link Bitboards}) que leva da casa {@code from} até a casa {@code to}, ou -1 se as duas
+     * não estiverem na mesma linha, coluna ou diagonal
+     */
+    public int direction(int from, int to) {
+        int dc = col(to) - col(from);
+        int dr = row(to) - row(from);
+        if (dc == 0 && dr == 0 || dc != 0 && dr != 0 && Math.abs(dc) != Math.abs(dr)) {
+            return -1;
+        }
+        int sc = Integer.signum(dc);
+        int sr = Integer.signum(dr);
+        for (int dir = 0; dir < 8; dir++) {
+            if (DIR_COL[dir] == sc && DIR_ROW[dir] == sr) {
+                return dir;
+            }
+        }
+        return -1;
+    }
+
+    public static boolean isDiagonal(int dir) {
+        return dir >= Bitboards.NORTH_EAST;
+    }
+
+    /**
+     * Retorna a primeira casa ocupada ao longo do raio que parte da casa dada na direção dada, ou -1 se o caminho até
+     * a borda estiver livre
+     */
+    public int firstBlocker(int dir, int sq, long[] occupied) {
+        int offset = (dir * squares + sq) * words;
+        // As direções SOUTH, EAST, SOUTH_EAST e SOUTH_WEST aumentam o índice da casa
+        if (dir == Bitboards.SOUTH || dir == Bitboards.EAST || dir == Bitboards.SOUTH_EAST || dir == Bitboards.SOUTH_WEST) {
+            for (int word = 0; word < words; word++) {
+                long blockers = rays[offset + word] & occupied[word];
+                if (blockers != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(blockers);
+                }
+            }
+        } else {
+            for (int word = words - 1; word >= 0; word--) {
+                long blockers = rays[offset + word] & occupied[word];
+                if (blockers != 0) {
+                    return (word << 6) + 63 - Long.numberOfLeadingZeros(blockers);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Verifica se as casas estritamente entre {@code from} e {@code to}, que devem estar alinhadas, estão vazias
+     */
+    public boolean isPathClear(int from, int to, long[] occupied) {
+        int dir = direction(from, to);
+        if (dir < 0) {
+            return true;
+        }
+        int blocker = firstBlocker(dir, from, occupied);
+        if (blocker < 0) {
+            return true;
+        }
+        // Ao longo de um raio o índice da casa só cresce ou só diminui, então basta comparar os índices
+        return to > from ? blocker >= to : blocker <= to;
+    }
+
+    /**
+     * Acrescenta ao conjunto {@code target} as casas atacadas ao longo de um raio, parando na primeira peça encontrada
+     * (que também é incluída)
+     */
+    public void addRayAttacks(int dir, int sq, long[] occupied, long[] target) {
+        int offset = (dir * squares + sq) * words;
+        int blocker = firstBlocker(dir, sq, occupied);
+        int blockerOffset = (dir * squares + blocker) * words;
+        for (int word = 0; word < words; word++) {
+            target[word] |= blocker < 0 ? rays[offset + word] : rays[offset + word] ^ rays[blockerOffset + word];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return cols + "x" + rows;
+    }
+}
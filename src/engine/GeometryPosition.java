@@ -0,0 +1,175 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Posição de um tabuleiro de qualquer {@link Geometry}, com conjuntos de casas de várias palavras, para gerar os
+ * movimentos das variantes maiores que 8x8 com as tabelas de ataque da geometria em vez de percorrer listas de peças.
+ * <p>
+ * Segue a organização de {@link Position}: um conjunto por código de peça, um por cor, o das casas ocupadas e um vetor
+ * com a peça de cada casa, além de uma pilha de capturas para desfazer os movimentos. Os conjuntos de todas as peças
+ * ficam em um único vetor, o da peça {@code code} a partir de {@code code * words}. As regras são as mesmas do tabuleiro
+ * gráfico: os peões brancos avançam em direção à linha 0 e andam duas casas a partir da penúltima linha, os pretos a
+ * partir da linha 1, e não há roque, en passant ou promoção.
+ * <p>
+ * Os movimentos usam a codificação larga de {@link Moves#wide(int, int)}. Não há hash de Zobrist, então a busca, a
+ * avaliação e as tabelas de transposição continuam trabalhando só com {@link Position}, no tabuleiro 8x8.
+ */
+public final class GeometryPosition {
+
+    public final Geometry geometry;
+    final int words;
+
+    final long[] pieces;
+    final long[] colors;
+    final long[] occupied;
+
+    final int[] squares;
+
+    int sideToMove = Pieces.WHITE;
+
+    /**
+     * Pilha com as peças capturadas em cada movimento feito, usada para desfazer os movimentos
+     */
+    private int[] captured = new int[256];
+    private int ply;
+
+    public GeometryPosition(Geometry geometry) {
+        this.geometry = geometry;
+        this.words = geometry.words;
+        this.pieces = new long[12 * words];
+        this.colors = new long[2 * words];
+        this.occupied = new long[words];
+        this.squares = new int[geometry.squares];
+        Arrays.fill(squares, Pieces.EMPTY);
+    }
+
+    public void put(int sq, int code) {
+        Geometry.add(pieces, code * words, sq);
+        Geometry.add(colors, Pieces.color(code) * words, sq);
+        Geometry.add(occupied, 0, sq);
+        squares[sq] = code;
+    }
+
+    public void remove(int sq) {
+        int code = squares[sq];
+        if (code == Pieces.EMPTY) {
+            return;
+        }
+        Geometry.remove(pieces, code * words, sq);
+        Geometry.remove(colors, Pieces.color(code) * words, sq);
+        Geometry.remove(occupied, 0, sq);
+        squares[sq] = Pieces.EMPTY;
+    }
+
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        sideToMove = color;
+    }
+
+    /**
+     * Faz o movimento na posição, guardando a peça capturada para que ele possa ser desfeito com {@link #unmake(int)}
+     */
+    public void make(int move) {
+        int from = Moves.wideFrom(move);
+        int to = Moves.wideTo(move);
+        int piece = squares[from];
+        int victim = squares[to];
+
+        if (ply == captured.length) {
+            captured = Arrays.copyOf(captured, ply * 2);
+        }
+        captured[ply++] = victim;
+
+        if (victim != Pieces.EMPTY) {
+            remove(to);
+        }
+        remove(from);
+        put(to, piece);
+        sideToMove ^= 1;
+    }
+
+    /**
+     * Desfaz o último movimento feito com {@link #make(int)}
+     */
+    public void unmake(int move) {
+        int from = Moves.wideFrom(move);
+        int to = Moves.wideTo(move);
+        int piece = squares[to];
+        int victim = captured[--ply];
+
+        remove(to);
+        put(from, piece);
+        if (victim != Pieces.EMPTY) {
+            put(to, victim);
+        }
+        sideToMove ^= 1;
+    }
+
+    public int kingSquare(int color) {
+        return geometry.next(pieces, Pieces.code(color, Pieces.KING) * words, 0);
+    }
+
+    /**
+     * Verifica se a casa dada é atacada por alguma peça da cor informada, com as tabelas e os raios da geometria
+     */
+    public boolean isAttacked(int sq, int byColor) {
+        int offset = geometry.offset(sq);
+        // A tabela dos peões da outra cor contém as casas de onde um peão da cor informada atacaria a casa dada
+        if (intersects(geometry.pawnAttacks(byColor ^ 1), offset, Pieces.code(byColor, Pieces.PAWN))
+                || intersects(geometry.knightAttacks(), offset, Pieces.code(byColor, Pieces.KNIGHT))
+                || intersects(geometry.kingAttacks(), offset, Pieces.code(byColor, Pieces.KING))) {
+            return true;
+        }
+        for (int dir = 0; dir < 8; dir++) {
+            int blocker = geometry.firstBlocker(dir, sq, occupied);
+            if (blocker < 0) {
+                continue;
+            }
+            int code = squares[blocker];
+            int slider = Geometry.isDiagonal(dir) ? Pieces.BISHOP : Pieces.ROOK;
+            if (Pieces.color(code) == byColor && (Pieces.type(code) == slider || Pieces.type(code) == Pieces.QUEEN)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean intersects(long[] table, int offset, int code) {
+        int pieceOffset = code * words;
+        for (int word = 0; word < words; word++) {
+            if ((table[offset + word] & pieces[pieceOffset + word]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se o rei da cor informada está em xeque (uma posição sem rei nunca está em xeque)
+     */
+    public boolean inCheck(int color) {
+        int king = kingSquare(color);
+        return king >= 0 && isAttacked(king, color ^ 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < geometry.rows; row++) {
+            for (int col = 0; col < geometry.cols; col++) {
+                int code = squares[geometry.square(col, row)];
+                text.append(code == Pieces.EMPTY ? '.' : Pieces.toChar(code));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
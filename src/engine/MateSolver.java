@@ -0,0 +1,260 @@
+package engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Resolve problemas de mate em N lances com busca por números de prova em profundidade (df-pn).
+ * <p>
+ * Cada nó guarda dois números: {@code phi}, o esforço estimado para provar que o lado que tem a vez vence, e
+ * {@code delta}, o esforço para provar que ele perde. Para o atacante, vencer é dar mate dentro do limite de lances;
+ * para o defensor, vencer é chegar ao limite sem levar mate. A busca sempre desce pelo filho mais barato de provar,
+ * com limites que a fazem voltar assim que outro filho passa a ser mais promissor, e guarda os números de cada nó
+ * em uma tabela de tamanho fixo (uma entrada perdida apenas faz o nó ser recalculado).
+ * <p>
+ * As regras são as de {@link MoveGen}, equivalentes às do tabuleiro gráfico. Uma instância guarda vetores e a tabela
+ * reutilizáveis e não deve ser usada por mais de uma thread ao mesmo tempo.
+ */
+public final class MateSolver {
+
+    public static final int MAX_MATE = (Search.MAX_PLY + 1) / 2;
+
+    public static final int PROVEN = 1;
+    public static final int DISPROVEN = 2;
+    public static final int UNKNOWN = 3;
+
+    private static final int INF = 1 << 28;
+
+    /**
+     * Resultado de um problema: se o mate foi provado, refutado ou se o limite de nós acabou antes
+     */
+    public static final class Result {
+        public final int status;
+        public final int[] pv;
+        public final long nodes;
+
+        Result(int status, int[] pv, long nodes) {
+            this.status = status;
+            this.pv = pv;
+            this.nodes = nodes;
+        }
+
+        public int bestMove() {
+            return pv.length > 0 ? pv[0] : Moves.NONE;
+        }
+    }
+
+    /**
+     * Números aleatórios misturados ao hash da posição para separar a mesma posição com limites de lances diferentes
+     */
+    private static final long[] REMAINING_KEYS = new long[2 * MAX_MATE + 1];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x3A7E_5017L);
+        for (int i = 0; i < REMAINING_KEYS.length; i++) {
+            REMAINING_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private final long[] keys;
+    private final long[] values;
+    private final int mask;
+
+    private final int[][] moveBuffers = new int[REMAINING_KEYS.length][MoveGen.MAX_MOVES];
+    private final long[][] childKeys = new long[REMAINING_KEYS.length][MoveGen.MAX_MOVES];
+    private final int[] replyBuffer = new int[MoveGen.MAX_MOVES];
+
+    private long nodes;
+    private long nodeLimit;
+    private boolean aborted;
+
+    /**
+     * Cria um resolvedor com uma tabela do tamanho aproximado dado, arredondado para baixo para uma potência de dois
+     * de entradas (no máximo 2^30, como em {@link TranspositionTable})
+     */
+    public MateSolver(int megabytes) {
+        long bytes = (long) Math.max(1, megabytes) * 1024 * 1024;
+        int entries = (int) Long.highestOneBit(Math.min(bytes / 16, 1 << 30));
+        keys = new long[entries];
+        values = new long[entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * Verifica se o lado que tem a vez dá mate em no máximo {@code mateIn} lances
+     *
+     * @param position  a posição do problema; é modificada durante a busca, mas volta ao estado original no final
+     * @param mateIn    a quantidade de lances do atacante, entre 1 e {@link #MAX_MATE}
+     * @param nodeLimit a quantidade máxima de nós, ou 0 para não limitar
+     */
+    public Result solve(Position position, int mateIn, long nodeLimit) {
+        if (mateIn < 1 || mateIn > MAX_MATE) {
+            throw new IllegalArgumentException("Quantidade de lances fora do limite: " + mateIn);
+        }
+        int remaining = 2 * mateIn - 1;
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.aborted = false;
+
+        mid(position, INF, INF, remaining, 0);
+        long root = probe(position.hash() ^ REMAINING_KEYS[remaining]);
+        if (aborted || (phi(root) != 0 && delta(root) != 0)) {
+            return new Result(UNKNOWN, new int[0], nodes);
+        }
+        if (phi(root) != 0) {
+            return new Result(DISPROVEN, new int[0], nodes);
+        }
+        return new Result(PROVEN, principalVariation(position, remaining), nodes);
+    }
+
+    /**
+     * Expande o nó até que {@code phi} ou {@code delta} alcance o limite dado
+     */
+    private void mid(Position position, int thPhi, int thDelta, int remaining, int ply) {
+        nodes++;
+        if (nodeLimit > 0 && nodes > nodeLimit) {
+            aborted = true;
+            return;
+        }
+
+        long key = position.hash() ^ REMAINING_KEYS[remaining];
+        boolean attacker = (ply & 1) == 0;
+        int[] moves = moveBuffers[ply];
+        int count = MoveGen.generate(position, moves);
+
+        if (count == 0) {
+            // Sem lances o lado que tem a vez perde se estiver em xeque; o afogamento é vitória do defensor
+            boolean lost = attacker || position.inCheck(position.sideToMove());
+            store(key, lost ? INF : 0, lost ? 0 : INF);
+            return;
+        }
+        if (remaining == 0) {
+            // O defensor chegou ao limite sem levar mate
+            store(key, 0, INF);
+            return;
+        }
+        if (remaining == 1) {
+            boolean mates = findMate(position, moves, count) != Moves.NONE;
+            store(key, mates ? 0 : INF, mates ? INF : 0);
+            return;
+        }
+
+        long[] children = childKeys[ply];
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            children[i] = position.hash() ^ REMAINING_KEYS[remaining - 1];
+            position.unmake(moves[i]);
+        }
+
+        while (true) {
+            // phi é o menor delta dos filhos; delta é a soma dos phi dos filhos
+            int phi = INF;
+            int delta = 0;
+            int best = 0;
+            int bestPhi = 0;
+            int secondDelta = INF;
+            for (int i = 0; i < count; i++) {
+                long entry = probe(children[i]);
+                int childPhi = phi(entry);
+                int childDelta = delta(entry);
+                delta = Math.min(INF, delta + childPhi);
+                if (childDelta < phi) {
+                    secondDelta = phi;
+                    phi = childDelta;
+                    best = i;
+                    bestPhi = childPhi;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+
+            if (phi >= thPhi || delta >= thDelta || aborted) {
+                store(key, phi, delta);
+                return;
+            }
+
+            int childThPhi = Math.min(INF, thDelta + bestPhi - delta);
+            int childThDelta = Math.min(thPhi, secondDelta + 1);
+            position.make(moves[best]);
+            mid(position, childThPhi, childThDelta, remaining - 1, ply + 1);
+            position.unmake(moves[best]);
+        }
+    }
+
+    /**
+     * Procura, entre os lances dados, um que deixe o adversário em xeque-mate
+     */
+    private int findMate(Position position, int[] moves, int count) {
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            boolean mate = position.inCheck(position.sideToMove()) && MoveGen.generate(position, replyBuffer) == 0;
+            position.unmake(moves[i]);
+            if (mate) {
+                return moves[i];
+            }
+        }
+        return Moves.NONE;
+    }
+
+    /**
+     * Reconstrói uma variante de mate a partir da tabela, parando se alguma entrada necessária tiver sido substituída
+     */
+    private int[] principalVariation(Position position, int remaining) {
+        int[] pv = new int[remaining];
+        int length = 0;
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        while (remaining > 0) {
+            int count = MoveGen.generate(position, moves);
+            int chosen = Moves.NONE;
+            boolean attacker = (length & 1) == 0;
+            if (attacker && remaining == 1) {
+                chosen = findMate(position, moves, count);
+            } else {
+                for (int i = 0; i < count && chosen == Moves.NONE; i++) {
+                    position.make(moves[i]);
+                    long entry = probe(position.hash() ^ REMAINING_KEYS[remaining - 1]);
+                    position.unmake(moves[i]);
+                    // O atacante escolhe um lance que prova o mate; o defensor, qualquer lance (todos perdem)
+                    if (entry != 0 && (attacker ? delta(entry) == 0 : phi(entry) == 0)) {
+                        chosen = moves[i];
+                    }
+                }
+            }
+            if (chosen == Moves.NONE) {
+                break;
+            }
+            position.make(chosen);
+            pv[length++] = chosen;
+            remaining--;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            position.unmake(pv[i]);
+        }
+        int[] result = new int[length];
+        System.arraycopy(pv, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Procura o nó na tabela
+     *
+     * @return {@code phi} e {@code delta} empacotados, ou 0 se o nó não estiver na tabela (lido como phi = delta = 1)
+     */
+    private long probe(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? values[index] : 0;
+    }
+
+    private void store(long key, int phi, int delta) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        values[index] = (phi & 0xFFFFFFFFL) | ((long) delta << 32) | (1L << 63);
+    }
+
+    private static int phi(long entry) {
+        return entry == 0 ? 1 : (int) entry;
+    }
+
+    private static int delta(long entry) {
+        return entry == 0 ? 1 : (int) (entry >>> 32) & 0x7FFFFFFF;
+    }
+}
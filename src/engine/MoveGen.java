@@ -0,0 +1,271 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Gerador de movimentos legais para a classe {@link Position} e, nos tabuleiros de outras geometrias, para a classe
+ * {@link GeometryPosition}.
+ * <p>
+ * Os movimentos são escritos em um vetor de inteiros fornecido por quem chama, para que a busca possa reutilizar
+ * o mesmo vetor em cada nível da árvore sem alocar memória.
+ */
+public final class MoveGen {
+
+    /**
+     * Quantidade máxima de movimentos em uma posição, com folga
+     */
+    public static final int MAX_MOVES = 256;
+
+    private MoveGen() {
+    }
+
+    /**
+     * Gera todos os movimentos legais do lado que tem a vez
+     *
+     * @return a quantidade de movimentos escritos no vetor
+     */
+    public static int generate(Position position, int[] moves) {
+        return generate(position, moves, false);
+    }
+
+    /**
+     * Gera apenas as capturas legais do lado que tem a vez, usadas pela busca de quiescência
+     */
+    public static int generateCaptures(Position position, int[] moves) {
+        return generate(position, moves, true);
+    }
+
+    private static int generate(Position position, int[] moves, boolean capturesOnly) {
+        int us = position.sideToMove;
+        long own = position.colors[us];
+        long enemy = position.colors[us ^ 1];
+        long occupied = position.occupied;
+        long targets = capturesOnly ? enemy : ~own;
+        int count = 0;
+
+        long pawns = position.pieces[Pieces.code(us, Pieces.PAWN)];
+        int forward = us == Pieces.WHITE ? -8 : 8;
+        int startRow = us == Pieces.WHITE ? 6 : 1;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            long captures = Bitboards.PAWN_ATTACKS[us][from] & enemy;
+            while (captures != 0) {
+                moves[count++] = Moves.of(from, Long.numberOfTrailingZeros(captures));
+                captures &= captures - 1;
+            }
+            if (capturesOnly) {
+                continue;
+            }
+            int to = from + forward;
+            if (to >= 0 && to < 64 && (occupied & (1L << to)) == 0) {
+                moves[count++] = Moves.of(from, to);
+                int doubleTo = to + forward;
+                if ((from >>> 3) == startRow && (occupied & (1L << doubleTo)) == 0) {
+                    moves[count++] = Moves.of(from, doubleTo);
+                }
+            }
+        }
+
+        for (int type = Pieces.KNIGHT; type <= Pieces.KING; type++) {
+            long bb = position.pieces[Pieces.code(us, type)];
+            while (bb != 0) {
+                int from = Long.numberOfTrailingZeros(bb);
+                bb &= bb - 1;
+
+                long attacks = attacks(type, from, occupied) & targets;
+                while (attacks != 0) {
+                    moves[count++] = Moves.of(from, Long.numberOfTrailingZeros(attacks));
+                    attacks &= attacks - 1;
+                }
+            }
+        }
+
+        return filterLegal(position, moves, count);
+    }
+
+    /**
+     * Casas atacadas por uma peça (que não seja peão) na casa dada
+     */
+    public static long attacks(int type, int sq, long occupied) {
+        switch (type) {
+            case Pieces.KNIGHT:
+                return Bitboards.KNIGHT_ATTACKS[sq];
+            case Pieces.BISHOP:
+                return Bitboards.bishopAttacks(sq, occupied);
+            case Pieces.ROOK:
+                return Bitboards.rookAttacks(sq, occupied);
+            case Pieces.QUEEN:
+                return Bitboards.queenAttacks(sq, occupied);
+            case Pieces.KING:
+                return Bitboards.KING_ATTACKS[sq];
+            default:
+                return 0L;
+        }
+    }
+
+    /**
+     * Remove do vetor os movimentos que deixam o próprio rei em xeque, mantendo a ordem dos demais
+     */
+    private static int filterLegal(Position position, int[] moves, int count) {
+        int us = position.sideToMove;
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.make(move);
+            boolean ok = !position.inCheck(us);
+            position.unmake(move);
+            if (ok) {
+                moves[legal++] = move;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Tamanho do vetor de movimentos para a geometria dada, com folga para duas fileiras de peças de cada lado
+     */
+    public static int maxMoves(Geometry geometry) {
+        return Math.max(MAX_MOVES, 8 * geometry.squares);
+    }
+
+    /**
+     * Gera todos os movimentos legais do lado que tem a vez em uma posição de qualquer geometria, na codificação de
+     * {@link Moves#wide(int, int)}. O vetor precisa ter espaço para {@link #maxMoves(Geometry)} movimentos
+     *
+     * @return a quantidade de movimentos escritos no vetor
+     */
+    public static int generate(GeometryPosition position, int[] moves) {
+        return generate(position, moves, false);
+    }
+
+    /**
+     * Gera apenas as capturas legais do lado que tem a vez em uma posição de qualquer geometria
+     */
+    public static int generateCaptures(GeometryPosition position, int[] moves) {
+        return generate(position, moves, true);
+    }
+
+    private static int generate(GeometryPosition position, int[] moves, boolean capturesOnly) {
+        Geometry geometry = position.geometry;
+        int words = position.words;
+        int us = position.sideToMove;
+        long[] colors = position.colors;
+        long[] occupied = position.occupied;
+        long[] attacks = geometry.newSet();
+        int count = 0;
+
+        int forward = us == Pieces.WHITE ? -geometry.cols : geometry.cols;
+        int startRow = us == Pieces.WHITE ? geometry.rows - 2 : 1;
+        long[] pawnAttacks = geometry.pawnAttacks(us);
+        int pawns = Pieces.code(us, Pieces.PAWN) * words;
+        for (int from = geometry.next(position.pieces, pawns, 0); from >= 0; from = geometry.next(position.pieces, pawns, from + 1)) {
+            int offset = geometry.offset(from);
+            for (int word = 0; word < words; word++) {
+                attacks[word] = pawnAttacks[offset + word] & colors[(us ^ 1) * words + word];
+            }
+            count = addMoves(geometry, from, attacks, moves, count);
+            if (capturesOnly) {
+                continue;
+            }
+            int to = from + forward;
+            if (to >= 0 && to < geometry.squares && !Geometry.contains(occupied, 0, to)) {
+                moves[count++] = Moves.wide(from, to);
+                int doubleTo = to + forward;
+                if (geometry.row(from) == startRow && doubleTo >= 0 && doubleTo < geometry.squares
+                        && !Geometry.contains(occupied, 0, doubleTo)) {
+                    moves[count++] = Moves.wide(from, doubleTo);
+                }
+            }
+        }
+
+        for (int type = Pieces.KNIGHT; type <= Pieces.KING; type++) {
+            int offset = Pieces.code(us, type) * words;
+            for (int from = geometry.next(position.pieces, offset, 0); from >= 0; from = geometry.next(position.pieces, offset, from + 1)) {
+                attacks(geometry, type, from, occupied, attacks);
+                for (int word = 0; word < words; word++) {
+                    long targets = capturesOnly ? colors[(us ^ 1) * words + word] : ~colors[us * words + word];
+                    attacks[word] &= targets;
+                }
+                count = addMoves(geometry, from, attacks, moves, count);
+            }
+        }
+
+        return filterLegal(position, moves, count);
+    }
+
+    /**
+     * Preenche {@code target} com as casas atacadas por uma peça (que não seja peão) na casa dada de uma geometria
+     */
+    public static void attacks(Geometry geometry, int type, int sq, long[] occupied, long[] target) {
+        Arrays.fill(target, 0);
+        switch (type) {
+            case Pieces.KNIGHT:
+                System.arraycopy(geometry.knightAttacks(), geometry.offset(sq), target, 0, geometry.words);
+                break;
+            case Pieces.KING:
+                System.arraycopy(geometry.kingAttacks(), geometry.offset(sq), target, 0, geometry.words);
+                break;
+            default:
+                int first = type == Pieces.BISHOP ? Bitboards.NORTH_EAST : Bitboards.NORTH;
+                int last = type == Pieces.ROOK ? Bitboards.WEST : Bitboards.SOUTH_WEST;
+                for (int dir = first; dir <= last; dir++) {
+                    geometry.addRayAttacks(dir, sq, occupied, target);
+                }
+        }
+    }
+
+    private static int addMoves(Geometry geometry, int from, long[] targets, int[] moves, int count) {
+        for (int to = geometry.next(targets, 0, 0); to >= 0; to = geometry.next(targets, 0, to + 1)) {
+            moves[count++] = Moves.wide(from, to);
+        }
+        return count;
+    }
+
+    /**
+     * Remove do vetor os movimentos que deixam o próprio rei em xeque, mantendo a ordem dos demais
+     */
+    private static int filterLegal(GeometryPosition position, int[] moves, int count) {
+        int us = position.sideToMove;
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.make(move);
+            boolean ok = !position.inCheck(us);
+            position.unmake(move);
+            if (ok) {
+                moves[legal++] = move;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Verifica se o movimento dado é legal na posição, gerando a lista de movimentos legais
+     */
+    public static boolean isLegal(Position position, int move) {
+        int[] moves = new int[MAX_MOVES];
+        int count = generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se o movimento dado, na codificação de {@link Moves#wide(int, int)}, é legal na posição
+     */
+    public static boolean isLegal(GeometryPosition position, int move) {
+        int[] moves = new int[maxMoves(position.geometry)];
+        int count = generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
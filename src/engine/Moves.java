@@ -0,0 +1,83 @@
+package engine;
+
+/**
+ * Codificação compacta de movimentos em um único inteiro, evitando a criação de objetos {@link main.Move} durante a busca.
+ * <p>
+ * Os 6 bits inferiores guardam a casa de origem e os 6 bits seguintes a casa de destino. O valor {@link #NONE}
+ * (origem e destino iguais a zero) nunca representa um movimento válido.
+ */
+public final class Moves {
+
+    public static final int NONE = 0;
+
+    private Moves() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Codifica um movimento de um tabuleiro de qualquer {@link Geometry} (até 256 casas), com 8 bits para cada casa,
+     * usado por {@link GeometryPosition}. Como na codificação comum, origem e destino iguais a zero são {@link #NONE}
+     */
+    public static int wide(int from, int to) {
+        return from | (to << 8);
+    }
+
+    public static int wideFrom(int move) {
+        return move & 255;
+    }
+
+    public static int wideTo(int move) {
+        return (move >>> 8) & 255;
+    }
+
+    /**
+     * Converte o movimento para a notação de coordenadas, por exemplo "e2e4"
+     */
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        return squareName(from(move)) + squareName(to(move));
+    }
+
+    /**
+     * Lê um movimento na notação de coordenadas, por exemplo "e2e4"
+     *
+     * @return o movimento codificado, ou {@link #NONE} se o texto não for válido
+     */
+    public static int parse(String text) {
+        if (text.length() < 4) {
+            return NONE;
+        }
+        int from = parseSquare(text.substring(0, 2));
+        int to = parseSquare(text.substring(2, 4));
+        if (from < 0 || to < 0) {
+            return NONE;
+        }
+        return of(from, to);
+    }
+
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (char) ('8' - (sq >>> 3));
+    }
+
+    public static int parseSquare(String name) {
+        int col = name.charAt(0) - 'a';
+        int row = '8' - name.charAt(1);
+        if (!Bitboards.onBoard(col, row)) {
+            return -1;
+        }
+        return Bitboards.square(col, row);
+    }
+}
@@ -0,0 +1,107 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Cache da avaliação da estrutura de peões, indexado pelo {@link Position#pawnHash() hash dos peões}.
+ * <p>
+ * A estrutura de peões muda muito menos que o resto da posição durante a busca, então quase todas as avaliações
+ * encontram aqui o resultado de {@link Evaluator#pawnStructure} e a máscara de peões passados, sem analisar os peões
+ * de novo. Cada entrada guarda a chave completa, a pontuação e a máscara; em uma colisão de índice a entrada antiga é
+ * simplesmente substituída. Uma entrada vazia tem chave 0, que é também o hash de uma posição sem peões, cuja
+ * pontuação e máscara são de fato 0.
+ * <p>
+ * A tabela é pequena e não é compartilhada: cada {@link Search} tem a sua, usada apenas pela thread da busca.
+ */
+public final class PawnHashTable {
+
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    private final long[] passed;
+    private final int[] scores;
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    public PawnHashTable() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    /**
+     * @param entries a quantidade de entradas, arredondada para baixo para uma potência de dois
+     */
+    public PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[size];
+        passed = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Procura a estrutura de peões da posição, analisando-a e guardando o resultado se ela não estiver na tabela
+     *
+     * @return o índice da entrada, para ser lido com {@link #score(int)} e {@link #passed(int)}
+     */
+    public int probe(Position position) {
+        long key = position.pawnHash();
+        int index = (int) key & mask;
+        probes++;
+        if (keys[index] == key) {
+            hits++;
+            return index;
+        }
+        long whitePawns = position.pieces(Pieces.WHITE, Pieces.PAWN);
+        long blackPawns = position.pieces(Pieces.BLACK, Pieces.PAWN);
+        keys[index] = key;
+        scores[index] = Evaluator.pawnStructure(whitePawns, blackPawns);
+        passed[index] = Evaluator.passedPawns(whitePawns, blackPawns);
+        return index;
+    }
+
+    /**
+     * Pontuação da estrutura de peões da entrada, do ponto de vista das brancas
+     */
+    public int score(int index) {
+        return scores[index];
+    }
+
+    /**
+     * Peões passados das duas cores na entrada
+     */
+    public long passed(int index) {
+        return passed[index];
+    }
+
+    public long probes() {
+        return probes;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Fração das consultas que encontraram a estrutura de peões na tabela, entre 0 e 1
+     */
+    public double hitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+
+    /**
+     * Esvazia a tabela e zera as estatísticas
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(passed, 0L);
+        Arrays.fill(scores, 0);
+        resetStatistics();
+    }
+}
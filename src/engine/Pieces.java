@@ -0,0 +1,90 @@
+package engine;
+
+/**
+ * Classe utilitária com as constantes que identificam os tipos e as cores das peças na representação compacta
+ * usada pelo motor de análise (engine).
+ * <p>
+ * Cada peça é codificada como um único inteiro, {@code cor * 6 + tipo}, o que permite indexar diretamente
+ * os vetores de bitboards da classe {@link Position} sem criar objetos {@link pieces.Piece}.
+ */
+public final class Pieces {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /**
+     * Código usado para uma casa vazia no vetor de casas (mailbox)
+     */
+    public static final int EMPTY = -1;
+
+    private static final String NAMES = "PNBRQK";
+
+    private Pieces() {
+    }
+
+    /**
+     * Monta o código de uma peça a partir da sua cor e do seu tipo
+     */
+    public static int code(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int type(int code) {
+        return code % 6;
+    }
+
+    public static int color(int code) {
+        return code / 6;
+    }
+
+    /**
+     * Converte o nome usado pelas classes do pacote pieces ("Pawn", "Knight", ...) no tipo compacto correspondente
+     *
+     * @param name o nome da peça, como definido em {@link pieces.Piece#name}
+     * @return o tipo da peça, ou {@link #EMPTY} se o nome não for reconhecido
+     */
+    public static int typeOf(String name) {
+        switch (name) {
+            case "Pawn":
+                return PAWN;
+            case "Knight":
+                return KNIGHT;
+            case "Bishop":
+                return BISHOP;
+            case "Rook":
+                return ROOK;
+            case "Queen":
+                return QUEEN;
+            case "King":
+                return KING;
+            default:
+                return EMPTY;
+        }
+    }
+
+    /**
+     * Retorna o caractere FEN da peça: maiúsculo para as brancas e minúsculo para as pretas
+     */
+    public static char toChar(int code) {
+        char c = NAMES.charAt(type(code));
+        return color(code) == WHITE ? c : Character.toLowerCase(c);
+    }
+
+    /**
+     * Converte um caractere FEN no código da peça, ou {@link #EMPTY} se o caractere não representar uma peça
+     */
+    public static int fromChar(char c) {
+        int type = NAMES.indexOf(Character.toUpperCase(c));
+        if (type < 0) {
+            return EMPTY;
+        }
+        return code(Character.isUpperCase(c) ? WHITE : BLACK, type);
+    }
+}
@@ -0,0 +1,317 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Representação compacta e sem interface gráfica de uma posição de xadrez, baseada em bitboards.
+ * <p>
+ * Diferente de {@link main.Board}, que guarda objetos {@link pieces.Piece} com sprites e coordenadas de tela,
+ * esta classe guarda apenas um {@code long} por tipo de peça e um vetor de casas, permitindo fazer e desfazer
+ * movimentos milhões de vezes por segundo. As regras seguem as do tabuleiro gráfico: peões avançam duas casas
+ * apenas a partir da linha inicial, e não há roque, en passant ou promoção.
+ */
+public final class Position {
+
+    final long[] pieces = new long[12];
+    final long[] colors = new long[2];
+    long occupied;
+
+    final int[] squares = new int[64];
+
+    int sideToMove = Pieces.WHITE;
+
+    /**
+     * Hash de Zobrist da posição, atualizado a cada peça colocada, removida ou movida
+     */
+    long hash;
+
+    /**
+     * Hash de Zobrist apenas dos peões, que só muda quando um peão se move ou é capturado
+     */
+    long pawnHash;
+
+    /**
+     * Pilha com as peças capturadas em cada movimento feito, usada para desfazer os movimentos
+     */
+    private int[] captured = new int[256];
+    private int ply;
+
+    public Position() {
+        Arrays.fill(squares, Pieces.EMPTY);
+    }
+
+    /**
+     * Cria uma posição com a configuração inicial das peças, equivalente a {@link main.Board#addPieces()}
+     */
+    public static Position startPosition() {
+        Position position = new Position();
+        int[] backRank = {Pieces.ROOK, Pieces.KNIGHT, Pieces.BISHOP, Pieces.QUEEN, Pieces.KING, Pieces.BISHOP, Pieces.KNIGHT, Pieces.ROOK};
+        for (int col = 0; col < 8; col++) {
+            position.put(Bitboards.square(col, 0), Pieces.code(Pieces.BLACK, backRank[col]));
+            position.put(Bitboards.square(col, 1), Pieces.code(Pieces.BLACK, Pieces.PAWN));
+            position.put(Bitboards.square(col, 7), Pieces.code(Pieces.WHITE, backRank[col]));
+            position.put(Bitboards.square(col, 6), Pieces.code(Pieces.WHITE, Pieces.PAWN));
+        }
+        return position;
+    }
+
+    /**
+     * Remove todas as peças e volta a vez para as brancas
+     */
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(squares, Pieces.EMPTY);
+        occupied = 0L;
+        sideToMove = Pieces.WHITE;
+        hash = 0L;
+        pawnHash = 0L;
+        ply = 0;
+    }
+
+    /**
+     * Copia o estado de outra posição para esta, sem alocar memória (exceto se a pilha de capturas precisar crescer)
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, 12);
+        System.arraycopy(other.squares, 0, squares, 0, 64);
+        colors[0] = other.colors[0];
+        colors[1] = other.colors[1];
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        hash = other.hash;
+        pawnHash = other.pawnHash;
+        if (captured.length < other.captured.length) {
+            captured = new int[other.captured.length];
+        }
+        System.arraycopy(other.captured, 0, captured, 0, other.ply);
+        ply = other.ply;
+    }
+
+    /**
+     * Quantidade de palavras usadas por {@link #writeTo(long[], int)}: os 12 bitboards e o lado que tem a vez
+     */
+    public static final int PACKED_WORDS = 13;
+
+    /**
+     * Grava a posição de forma compacta em um vetor de longs, a partir do índice dado
+     */
+    public void writeTo(long[] target, int offset) {
+        System.arraycopy(pieces, 0, target, offset, 12);
+        target[offset + 12] = sideToMove;
+    }
+
+    /**
+     * Restaura uma posição gravada com {@link #writeTo(long[], int)}, sem alocar memória
+     */
+    public void readFrom(long[] source, int offset) {
+        clear();
+        for (int code = 0; code < 12; code++) {
+            long bb = source[offset + code];
+            while (bb != 0) {
+                put(Long.numberOfTrailingZeros(bb), code);
+                bb &= bb - 1;
+            }
+        }
+        setSideToMove((int) source[offset + 12]);
+    }
+
+    public void put(int sq, int code) {
+        long bit = 1L << sq;
+        pieces[code] |= bit;
+        colors[Pieces.color(code)] |= bit;
+        occupied |= bit;
+        squares[sq] = code;
+        hash ^= Zobrist.PIECE_SQUARE[code][sq];
+        if (Pieces.type(code) == Pieces.PAWN) {
+            pawnHash ^= Zobrist.PIECE_SQUARE[code][sq];
+        }
+    }
+
+    public void remove(int sq) {
+        int code = squares[sq];
+        if (code == Pieces.EMPTY) {
+            return;
+        }
+        long bit = 1L << sq;
+        pieces[code] &= ~bit;
+        colors[Pieces.color(code)] &= ~bit;
+        occupied &= ~bit;
+        squares[sq] = Pieces.EMPTY;
+        hash ^= Zobrist.PIECE_SQUARE[code][sq];
+        if (Pieces.type(code) == Pieces.PAWN) {
+            pawnHash ^= Zobrist.PIECE_SQUARE[code][sq];
+        }
+    }
+
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        if (color != sideToMove) {
+            hash ^= Zobrist.SIDE_TO_MOVE;
+        }
+        sideToMove = color;
+    }
+
+    /**
+     * Hash de Zobrist da posição, que identifica a disposição das peças e o lado que tem a vez
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Hash de Zobrist apenas dos peões das duas cores, usado para indexar a {@link PawnHashTable}
+     */
+    public long pawnHash() {
+        return pawnHash;
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[Pieces.code(color, type)];
+    }
+
+    public long colorPieces(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * Faz o movimento na posição, guardando a peça capturada para que ele possa ser desfeito com {@link #unmake(int)}
+     */
+    public void make(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = squares[from];
+        int victim = squares[to];
+
+        if (ply == captured.length) {
+            captured = Arrays.copyOf(captured, ply * 2);
+        }
+        captured[ply++] = victim;
+
+        long fromTo = (1L << from) | (1L << to);
+        if (victim != Pieces.EMPTY) {
+            long toBit = 1L << to;
+            pieces[victim] ^= toBit;
+            colors[Pieces.color(victim)] ^= toBit;
+            occupied ^= toBit;
+            hash ^= Zobrist.PIECE_SQUARE[victim][to];
+            if (Pieces.type(victim) == Pieces.PAWN) {
+                pawnHash ^= Zobrist.PIECE_SQUARE[victim][to];
+            }
+        }
+        pieces[piece] ^= fromTo;
+        colors[Pieces.color(piece)] ^= fromTo;
+        occupied ^= fromTo;
+        squares[from] = Pieces.EMPTY;
+        squares[to] = piece;
+        hash ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to] ^ Zobrist.SIDE_TO_MOVE;
+        if (Pieces.type(piece) == Pieces.PAWN) {
+            pawnHash ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+        }
+
+        sideToMove ^= 1;
+    }
+
+    /**
+     * Desfaz o último movimento feito com {@link #make(int)}
+     */
+    public void unmake(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = squares[to];
+        int victim = captured[--ply];
+
+        long fromTo = (1L << from) | (1L << to);
+        pieces[piece] ^= fromTo;
+        colors[Pieces.color(piece)] ^= fromTo;
+        occupied ^= fromTo;
+        squares[from] = piece;
+        squares[to] = victim;
+
+        if (victim != Pieces.EMPTY) {
+            long toBit = 1L << to;
+            pieces[victim] ^= toBit;
+            colors[Pieces.color(victim)] ^= toBit;
+            occupied ^= toBit;
+            hash ^= Zobrist.PIECE_SQUARE[victim][to];
+            if (Pieces.type(victim) == Pieces.PAWN) {
+                pawnHash ^= Zobrist.PIECE_SQUARE[victim][to];
+            }
+        }
+        hash ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to] ^ Zobrist.SIDE_TO_MOVE;
+        if (Pieces.type(piece) == Pieces.PAWN) {
+            pawnHash ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+        }
+
+        sideToMove ^= 1;
+    }
+
+    /**
+     * Retorna a peça que o movimento capturaria, ou {@link Pieces#EMPTY}
+     */
+    public int capturedBy(int move) {
+        return squares[Moves.to(move)];
+    }
+
+    public int kingSquare(int color) {
+        long king = pieces[Pieces.code(color, Pieces.KING)];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Calcula todas as peças, de ambas as cores, que atacam a casa dada considerando a ocupação informada
+     * (a ocupação pode ser diferente da atual, o que permite revelar ataques em raio-x durante a avaliação de trocas)
+     */
+    public long attackersTo(int sq, long occ) {
+        long rooksQueens = pieces[Pieces.code(Pieces.WHITE, Pieces.ROOK)] | pieces[Pieces.code(Pieces.BLACK, Pieces.ROOK)]
+                | pieces[Pieces.code(Pieces.WHITE, Pieces.QUEEN)] | pieces[Pieces.code(Pieces.BLACK, Pieces.QUEEN)];
+        long bishopsQueens = pieces[Pieces.code(Pieces.WHITE, Pieces.BISHOP)] | pieces[Pieces.code(Pieces.BLACK, Pieces.BISHOP)]
+                | pieces[Pieces.code(Pieces.WHITE, Pieces.QUEEN)] | pieces[Pieces.code(Pieces.BLACK, Pieces.QUEEN)];
+
+        return (Bitboards.PAWN_ATTACKS[Pieces.BLACK][sq] & pieces[Pieces.code(Pieces.WHITE, Pieces.PAWN)])
+                | (Bitboards.PAWN_ATTACKS[Pieces.WHITE][sq] & pieces[Pieces.code(Pieces.BLACK, Pieces.PAWN)])
+                | (Bitboards.KNIGHT_ATTACKS[sq] & (pieces[Pieces.code(Pieces.WHITE, Pieces.KNIGHT)] | pieces[Pieces.code(Pieces.BLACK, Pieces.KNIGHT)]))
+                | (Bitboards.KING_ATTACKS[sq] & (pieces[Pieces.code(Pieces.WHITE, Pieces.KING)] | pieces[Pieces.code(Pieces.BLACK, Pieces.KING)]))
+                | (Bitboards.rookAttacks(sq, occ) & rooksQueens)
+                | (Bitboards.bishopAttacks(sq, occ) & bishopsQueens);
+    }
+
+    /**
+     * Verifica se a casa dada é atacada por alguma peça da cor informada
+     */
+    public boolean isAttacked(int sq, int byColor) {
+        return (attackersTo(sq, occupied) & colors[byColor]) != 0;
+    }
+
+    /**
+     * Verifica se o rei da cor informada está em xeque (uma posição sem rei nunca está em xeque)
+     */
+    public boolean inCheck(int color) {
+        int king = kingSquare(color);
+        return king >= 0 && isAttacked(king, color ^ 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int code = squares[Bitboards.square(col, row)];
+                text.append(code == Pieces.EMPTY ? '.' : Pieces.toChar(code));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
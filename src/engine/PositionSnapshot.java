@@ -0,0 +1,206 @@
+package engine;
+
+/**
+ * Posição imutável e compacta, para ser lida por várias threads ao mesmo tempo sem travas e sem cópias.
+ * <p>
+ * A posição inteira cabe em quatro {@code long} e uma palavra de estado: um bitboard com as peças brancas e três
+ * bitboards com os bits de {@code tipo + 1} de cada casa (uma casa vazia tem os três bits zerados). A palavra de estado
+ * guarda o lado que tem a vez, se o jogo acabou e um número de sequência que cresce a cada alteração do tabuleiro.
+ * O hash de Zobrist é guardado junto, para que a posição possa ser usada direto como chave de tabelas.
+ * <p>
+ * Como todos os campos são {@code final}, uma instância publicada por uma referência {@code volatile} é vista por
+ * qualquer thread sempre completa e consistente. Para publicar a posição seguinte basta criar outra instância com
+ * {@link #after(int)}, em tempo constante, sem alterar a anterior.
+ */
+public final class PositionSnapshot {
+
+    private final long white;
+    private final long type0;
+    private final long type1;
+    private final long type2;
+    private final long hash;
+
+    /**
+     * Bit 0: o lado que tem a vez; bit 1: se o jogo acabou; os demais bits: o número de sequência
+     */
+    private final int state;
+
+    private PositionSnapshot(long white, long type0, long type1, long type2, long hash, int state) {
+        this.white = white;
+        this.type0 = type0;
+        this.type1 = type1;
+        this.type2 = type2;
+        this.hash = hash;
+        this.state = state;
+    }
+
+    /**
+     * Cria um retrato da posição dada
+     *
+     * @param sequence o número de sequência, que identifica a alteração do tabuleiro que gerou esta posição
+     * @param gameOver se o jogo já acabou nesta posição
+     */
+    public static PositionSnapshot of(Position position, int sequence, boolean gameOver) {
+        long white = position.colorPieces(Pieces.WHITE);
+        long type0 = 0;
+        long type1 = 0;
+        long type2 = 0;
+        for (int type = Pieces.PAWN; type <= Pieces.KING; type++) {
+            long pieces = position.pieces(Pieces.WHITE, type) | position.pieces(Pieces.BLACK, type);
+            int bits = type + 1;
+            if ((bits & 1) != 0) {
+                type0 |= pieces;
+            }
+            if ((bits & 2) != 0) {
+                type1 |= pieces;
+            }
+            if ((bits & 4) != 0) {
+                type2 |= pieces;
+            }
+        }
+        return new PositionSnapshot(white, type0, type1, type2, position.hash(), state(position.sideToMove(), gameOver, sequence));
+    }
+
+    private static int state(int sideToMove, boolean gameOver, int sequence) {
+        return sideToMove | (gameOver ? 2 : 0) | (sequence << 2);
+    }
+
+    /**
+     * Retorna a posição depois do movimento dado, com o número de sequência seguinte. O movimento não é validado
+     */
+    public PositionSnapshot after(int move) {
+        return after(move, false);
+    }
+
+    /**
+     * Como {@link #after(int)}, marcando se o jogo acabou na posição resultante
+     */
+    public PositionSnapshot after(int move, boolean gameOver) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = pieceAt(from);
+        int victim = pieceAt(to);
+        long fromBit = 1L << from;
+        long toBit = 1L << to;
+
+        long newHash = hash ^ Zobrist.SIDE_TO_MOVE;
+        if (victim != Pieces.EMPTY) {
+            newHash ^= Zobrist.PIECE_SQUARE[victim][to];
+        }
+        newHash ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+
+        int bits = Pieces.type(piece) + 1;
+        long clear = ~(fromBit | toBit);
+        long newWhite = (white & clear) | (Pieces.color(piece) == Pieces.WHITE ? toBit : 0);
+        long newType0 = (type0 & clear) | ((bits & 1) != 0 ? toBit : 0);
+        long newType1 = (type1 & clear) | ((bits & 2) != 0 ? toBit : 0);
+        long newType2 = (type2 & clear) | ((bits & 4) != 0 ? toBit : 0);
+        return new PositionSnapshot(newWhite, newType0, newType1, newType2, newHash,
+                state(sideToMove() ^ 1, gameOver, sequence() + 1));
+    }
+
+    /**
+     * Código da peça na casa dada, ou {@link Pieces#EMPTY}
+     */
+    public int pieceAt(int sq) {
+        int bits = (int) (type0 >>> sq & 1) | (int) (type1 >>> sq & 1) << 1 | (int) (type2 >>> sq & 1) << 2;
+        if (bits == 0) {
+            return Pieces.EMPTY;
+        }
+        return Pieces.code((white >>> sq & 1) != 0 ? Pieces.WHITE : Pieces.BLACK, bits - 1);
+    }
+
+    public long pieces(int color, int type) {
+        int bits = type + 1;
+        long mask = ((bits & 1) != 0 ? type0 : ~type0) & ((bits & 2) != 0 ? type1 : ~type1)
+                & ((bits & 4) != 0 ? type2 : ~type2);
+        return mask & colorPieces(color);
+    }
+
+    public long colorPieces(int color) {
+        return color == Pieces.WHITE ? white : occupied() & ~white;
+    }
+
+    public long occupied() {
+        return type0 | type1 | type2;
+    }
+
+    /**
+     * Retorna as casas cujo conteúdo é diferente nas duas posições, como um bitboard
+     */
+    public long difference(PositionSnapshot other) {
+        return (white ^ other.white) | (type0 ^ other.type0) | (type1 ^ other.type1) | (type2 ^ other.type2);
+    }
+
+    public int sideToMove() {
+        return state & 1;
+    }
+
+    public boolean isGameOver() {
+        return (state & 2) != 0;
+    }
+
+    /**
+     * Número da alteração do tabuleiro que gerou esta posição; posições publicadas depois têm números maiores
+     */
+    public int sequence() {
+        return state >>> 2;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Copia a posição para uma {@link Position} existente, sem alocar memória
+     */
+    public void writeTo(Position position) {
+        position.clear();
+        for (long bb = occupied(); bb != 0; bb &= bb - 1) {
+            int sq = Long.numberOfTrailingZeros(bb);
+            position.put(sq, pieceAt(sq));
+        }
+        position.setSideToMove(sideToMove());
+    }
+
+    /**
+     * Cria uma {@link Position} nova, que pode ser modificada livremente, com esta posição
+     */
+    public Position toPosition() {
+        Position position = new Position();
+        writeTo(position);
+        return position;
+    }
+
+    /**
+     * Duas posições são iguais se têm as mesmas peças nas mesmas casas e o mesmo lado com a vez, qualquer que seja o
+     * número de sequência
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof PositionSnapshot)) {
+            return false;
+        }
+        PositionSnapshot snapshot = (PositionSnapshot) other;
+        return white == snapshot.white && type0 == snapshot.type0 && type1 == snapshot.type1
+                && type2 == snapshot.type2 && sideToMove() == snapshot.sideToMove();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int code = pieceAt(Bitboards.square(col, row));
+                text.append(code == Pieces.EMPTY ? '.' : Pieces.toChar(code));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,416 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Busca alfa-beta com aprofundamento iterativo e busca de quiescência.
+ * <p>
+ * Nas folhas da árvore principal a busca continua apenas com capturas (quiescência) até que a posição fique "calma",
+ * evitando o efeito horizonte. Capturas que perdem material segundo a {@link See avaliação estática de trocas}
+ * são descartadas na quiescência, o que mantém a quantidade de nós sob controle.
+ * <p>
+ * Uma instância guarda vetores reutilizáveis e não deve ser usada por mais de uma thread ao mesmo tempo.
+ */
+public final class Search {
+
+    public static final int INFINITE = 32000;
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 64;
+
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][MoveGen.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY + 1][MoveGen.MAX_MOVES];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[] previousPv = new int[MAX_PLY + 1];
+    private int previousPvLength;
+
+    /**
+     * Lances da raiz ignorados pela busca, usados para encontrar as variantes seguintes na análise com várias linhas
+     */
+    private final int[] excludedRoot = new int[MoveGen.MAX_MOVES];
+    private int excludedCount;
+
+    private final TranspositionTable table;
+    private final PawnHashTable pawnTable = new PawnHashTable();
+    private EvalCache cache;
+
+    private volatile boolean cancelled;
+    private volatile long deadline;
+    private boolean stopped;
+    private long nodes;
+    private long nodeLimit;
+
+    public Search() {
+        this(null);
+    }
+
+    /**
+     * Cria uma busca que consulta e preenche a tabela de transposição dada, que pode ser compartilhada com outras buscas
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Pede que a busca em andamento termine o quanto antes; pode ser chamado de outra thread.
+     * O cancelamento é definitivo: buscas iniciadas depois com esta instância também terminam imediatamente,
+     * o que evita que um cancelamento feito logo antes do início da busca seja perdido
+     */
+    public void stop() {
+        cancelled = true;
+    }
+
+    /**
+     * Passa a usar o cache persistente dado: uma posição já buscada até a profundidade pedida é respondida direto do
+     * cache, e uma buscada com menos profundidade começa pelo melhor movimento guardado
+     */
+    public void setCache(EvalCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Tabela da estrutura de peões usada pela avaliação desta busca, com as estatísticas de acertos
+     */
+    public PawnHashTable pawnTable() {
+        return pawnTable;
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Define um novo limite de tempo, contado a partir de agora, para a busca em andamento (por exemplo, quando uma
+     * busca sem limite feita no tempo do adversário passa a valer como a busca do próximo lance)
+     */
+    public void setTimeLimit(long timeMillis) {
+        deadline = System.currentTimeMillis() + timeMillis;
+    }
+
+    /**
+     * Busca a posição até a profundidade dada, ou até estourar o limite de nós ou de tempo
+     *
+     * @param position   a posição a analisar; é modificada durante a busca, mas volta ao estado original no final
+     * @param maxDepth   a profundidade máxima, em meios-lances
+     * @param nodeLimit  a quantidade máxima de nós, ou 0 para não limitar
+     * @param timeMillis o tempo máximo em milissegundos, ou 0 para não limitar
+     * @return o resultado da última iteração completa (ou da primeira, se nenhuma terminou)
+     */
+    public SearchResult search(Position position, int maxDepth, long nodeLimit, long timeMillis) {
+        begin(nodeLimit, timeMillis);
+
+        if (cache != null) {
+            long entry = cache.probe(position.hash());
+            int move = EvalCache.move(entry);
+            if (entry != 0 && MoveGen.isLegal(position, move)) {
+                if (EvalCache.depth(entry) >= maxDepth || Math.abs(EvalCache.score(entry)) >= MATE - MAX_PLY) {
+                    return new SearchResult(move, EvalCache.score(entry), EvalCache.depth(entry), 0, new int[]{move});
+                }
+                previousPv[0] = move;
+                previousPvLength = 1;
+            }
+        }
+
+        SearchResult result = null;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = alphaBeta(position, depth, -INFINITE, INFINITE, 0);
+            if (stopped && result != null) {
+                break;
+            }
+            int[] pv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+            result = new SearchResult(pv.length > 0 ? pv[0] : Moves.NONE, score, depth, nodes, pv);
+            System.arraycopy(pv, 0, previousPv, 0, pv.length);
+            previousPvLength = pv.length;
+            if (stopped || Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+        }
+        // Um resultado da primeira iteração interrompida não é completo o bastante para ser reaproveitado
+        if (cache != null && result != null && result.bestMove != Moves.NONE && !(stopped && result.depth == 1)) {
+            cache.store(position.hash(), result.bestMove, result.score, result.depth);
+        }
+        return result;
+    }
+
+    /**
+     * Busca as melhores variantes da posição (análise com várias linhas), aprofundando até a profundidade dada ou até
+     * estourar o limite de tempo. A primeira linha é a busca normal; cada linha seguinte repete a busca ignorando os
+     * lances da raiz das linhas já encontradas nesta iteração.
+     * <p>
+     * O ouvinte é chamado na thread da busca sempre que uma linha termina, com as linhas da iteração atual seguidas
+     * das linhas ainda não refeitas da iteração anterior; a lista passada é imutável e pode ser guardada ou enviada
+     * para outra thread.
+     *
+     * @param position   a posição a analisar; é modificada durante a busca, mas volta ao estado original no final
+     * @param lineCount  a quantidade de variantes desejada
+     * @param maxDepth   a profundidade máxima, em meios-lances
+     * @param timeMillis o tempo máximo em milissegundos, ou 0 para não limitar
+     * @param listener   recebe as linhas parciais de cada iteração, ou {@code null}
+     * @return as linhas da última iteração completa, da melhor para a pior
+     */
+    public List<SearchResult> searchLines(Position position, int lineCount, int maxDepth, long timeMillis, SearchListener listener) {
+        begin(0, timeMillis);
+
+        List<SearchResult> previous = Collections.emptyList();
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            List<SearchResult> lines = new ArrayList<>(lineCount);
+            excludedCount = 0;
+            for (int line = 0; line < lineCount; line++) {
+                if (line < previous.size()) {
+                    int[] pv = previous.get(line).pv;
+                    System.arraycopy(pv, 0, previousPv, 0, pv.length);
+                    previousPvLength = pv.length;
+                } else {
+                    previousPvLength = 0;
+                }
+
+                int score = alphaBeta(position, depth, -INFINITE, INFINITE, 0);
+                if (stopped || pvLength[0] == 0) {
+                    break;
+                }
+                int[] pv = new int[pvLength[0]];
+                System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+                lines.add(new SearchResult(pv[0], score, depth, nodes, pv));
+                excludedRoot[excludedCount++] = pv[0];
+
+                if (listener != null) {
+                    List<SearchResult> snapshot = new ArrayList<>(lines);
+                    for (int i = lines.size(); i < previous.size(); i++) {
+                        if (!isExcluded(previous.get(i).bestMove)) {
+                            snapshot.add(previous.get(i));
+                        }
+                    }
+                    listener.linesUpdated(depth, Collections.unmodifiableList(snapshot), nodes);
+                }
+            }
+            excludedCount = 0;
+            if (stopped) {
+                break;
+            }
+            previous = Collections.unmodifiableList(lines);
+            if (lines.isEmpty()) {
+                break;
+            }
+        }
+        return previous;
+    }
+
+    private void begin(long nodeLimit, long timeMillis) {
+        this.stopped = cancelled;
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.deadline = timeMillis > 0 ? System.currentTimeMillis() + timeMillis : 0;
+        this.previousPvLength = 0;
+        this.excludedCount = 0;
+        if (table != null) {
+            table.newSearch();
+        }
+    }
+
+    private boolean isExcluded(int move) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excludedRoot[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean shouldStop() {
+        if (cancelled) {
+            stopped = true;
+        } else if ((nodes & 1023) == 0) {
+            long limit = deadline;
+            if ((nodeLimit > 0 && nodes >= nodeLimit) || (limit > 0 && System.currentTimeMillis() >= limit)) {
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    private int alphaBeta(Position position, int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(position, alpha, beta, ply);
+        }
+        nodes++;
+        if (ply > 0 && shouldStop()) {
+            return 0;
+        }
+
+        int hashMove = Moves.NONE;
+        if (table != null) {
+            long entry = table.probe(position.hash());
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = MoveGen.generate(position, moves);
+        if (count == 0) {
+            return position.inCheck(position.sideToMove()) ? -MATE + ply : 0;
+        }
+        int pvMove = ply < previousPvLength ? previousPv[ply] : Moves.NONE;
+        scoreMoves(position, moves, scoreBuffers[ply], count, pvMove, hashMove);
+
+        int originalAlpha = alpha;
+        int bestMove = Moves.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scoreBuffers[ply], i, count);
+            if (ply == 0 && excludedCount > 0 && isExcluded(move)) {
+                continue;
+            }
+            position.make(move);
+            int score = -alphaBeta(position, depth - 1, -beta, -alpha, ply + 1);
+            position.unmake(move);
+
+            if (stopped && ply > 0) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+
+        if (table != null && !stopped && (ply > 0 || excludedCount == 0)) {
+            int bound = alpha >= beta ? TranspositionTable.LOWER : alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(position.hash(), bestMove, toTable(alpha, ply), depth, bound);
+        }
+        return alpha;
+    }
+
+    /**
+     * Ajusta uma nota de mate para ser guardada na tabela relativa à posição, e não à raiz da busca
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Busca apenas capturas a partir de uma folha, até não haver mais capturas vantajosas
+     */
+    private int quiescence(Position position, int alpha, int beta, int ply) {
+        nodes++;
+        pvLength[ply] = 0;
+        if (shouldStop()) {
+            return 0;
+        }
+
+        int standPat = Evaluator.evaluate(position, pawnTable);
+        if (standPat >= beta || ply >= MAX_PLY) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = MoveGen.generateCaptures(position, moves);
+        for (int i = 0; i < count; i++) {
+            scores[i] = See.see(position, moves[i]);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            if (scores[i] < 0) {
+                // As capturas estão ordenadas pela troca, então todas as restantes também perdem material
+                break;
+            }
+            position.make(move);
+            int score = -quiescence(position, -beta, -alpha, ply + 1);
+            position.unmake(move);
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Ordena os movimentos: primeiro o movimento da tabela de transposição e o da variante principal, depois as
+     * capturas vantajosas, os movimentos calmos e, por último, as capturas que perdem material
+     */
+    private static void scoreMoves(Position position, int[] moves, int[] scores, int count, int pvMove, int hashMove) {
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == hashMove) {
+                scores[i] = 2_000_000;
+            } else if (move == pvMove) {
+                scores[i] = 1_000_000;
+            } else if (position.capturedBy(move) != Pieces.EMPTY) {
+                int see = See.see(position, move);
+                scores[i] = see >= 0 ? 100_000 + see : -100_000 + see;
+            } else {
+                scores[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Seleciona o movimento de maior nota entre as posições {@code index} e {@code count} e o traz para a posição {@code index}
+     */
+    private static int pickNext(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+}
@@ -0,0 +1,18 @@
+package engine;
+
+import java.util.List;
+
+/**
+ * Recebe os resultados parciais de uma análise com várias linhas ({@link Search#searchLines}).
+ * <p>
+ * É chamado na thread da busca, então deve retornar rápido e não mexer diretamente em componentes do Swing.
+ */
+public interface SearchListener {
+
+    /**
+     * @param depth a profundidade da iteração em andamento
+     * @param lines as melhores linhas conhecidas até agora, da melhor para a pior
+     * @param nodes a quantidade de nós buscados desde o início da análise
+     */
+    void linesUpdated(int depth, List<SearchResult> lines, long nodes);
+}
@@ -0,0 +1,40 @@
+package engine;
+
+/**
+ * Resultado de uma busca: o melhor movimento encontrado, sua avaliação e a variante principal
+ */
+public final class SearchResult {
+
+    public final int bestMove;
+    public final int score;
+    public final int depth;
+    public final long nodes;
+    public final int[] pv;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, int[] pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.pv = pv;
+    }
+
+    /**
+     * Converte a variante principal para texto, com os movimentos em notação de coordenadas
+     */
+    public String pvString() {
+        StringBuilder text = new StringBuilder();
+        for (int move : pv) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(Moves.toString(move));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + " score " + score + " nodes " + nodes + " pv " + pvString();
+    }
+}
@@ -0,0 +1,79 @@
+package engine;
+
+/**
+ * Avaliação estática de trocas (Static Exchange Evaluation).
+ * <p>
+ * Resolve toda a sequência de capturas em uma casa, sempre recapturando com a peça de menor valor disponível,
+ * e retorna o saldo material para o lado que inicia a troca. Peças escondidas atrás de outras na mesma linha
+ * (ataques em raio-x) entram na troca assim que a peça da frente captura.
+ */
+public final class See {
+
+    /**
+     * Valores usados na troca; o rei recebe um valor alto para que nunca seja "trocado" por outra peça
+     */
+    static final int[] SEE_VALUES = {100, 320, 330, 500, 900, 20000};
+
+    private See() {
+    }
+
+    /**
+     * Calcula o saldo material do movimento, considerando todas as recapturas possíveis na casa de destino
+     *
+     * @param position a posição antes do movimento
+     * @param move     o movimento a avaliar, normalmente uma captura
+     * @return o ganho (positivo) ou a perda (negativo) de material em centipeões para quem faz o movimento
+     */
+    public static int see(Position position, int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = position.pieceAt(from);
+        int victim = position.pieceAt(to);
+
+        int[] gain = new int[32];
+        int depth = 0;
+        int side = Pieces.color(piece);
+        int attackerType = Pieces.type(piece);
+        long fromBit = 1L << from;
+        long occupied = position.occupied();
+        long attackers = position.attackersTo(to, occupied);
+
+        long rooksQueens = position.pieces(Pieces.WHITE, Pieces.ROOK) | position.pieces(Pieces.BLACK, Pieces.ROOK)
+                | position.pieces(Pieces.WHITE, Pieces.QUEEN) | position.pieces(Pieces.BLACK, Pieces.QUEEN);
+        long bishopsQueens = position.pieces(Pieces.WHITE, Pieces.BISHOP) | position.pieces(Pieces.BLACK, Pieces.BISHOP)
+                | position.pieces(Pieces.WHITE, Pieces.QUEEN) | position.pieces(Pieces.BLACK, Pieces.QUEEN);
+
+        gain[0] = victim == Pieces.EMPTY ? 0 : SEE_VALUES[Pieces.type(victim)];
+        do {
+            depth++;
+            gain[depth] = SEE_VALUES[attackerType] - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                // Nenhum dos lados melhora continuando a troca
+                break;
+            }
+
+            occupied ^= fromBit;
+            attackers &= ~fromBit;
+            // Revela atacantes em raio-x atrás da peça que acabou de capturar
+            attackers |= ((Bitboards.rookAttacks(to, occupied) & rooksQueens)
+                    | (Bitboards.bishopAttacks(to, occupied) & bishopsQueens)) & occupied;
+
+            side ^= 1;
+            fromBit = 0;
+            long sideAttackers = attackers & position.colorPieces(side);
+            for (int type = Pieces.PAWN; type <= Pieces.KING; type++) {
+                long candidates = sideAttackers & position.pieces(side, type);
+                if (candidates != 0) {
+                    fromBit = candidates & -candidates;
+                    attackerType = type;
+                    break;
+                }
+            }
+        } while (fromBit != 0 && depth < gain.length - 1);
+
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+}
@@ -0,0 +1,91 @@
+package engine;
+
+/**
+ * Tabela de transposição: guarda, para cada posição já buscada, a avaliação, a profundidade e o melhor movimento,
+ * indexados pelo {@link Position#hash() hash de Zobrist}.
+ * <p>
+ * Cada entrada ocupa dois {@code long}: a chave, guardada em "ou exclusivo" com os dados, e os dados. Uma entrada
+ * escrita pela metade por outra thread simplesmente não confere com a chave e é ignorada, então a tabela pode ser
+ * compartilhada entre a busca em segundo plano e uma nova busca sem nenhuma trava.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * Cria uma tabela com o tamanho aproximado dado, arredondado para baixo para uma potência de dois de entradas (no
+     * máximo 2^30, o maior vetor possível com um tamanho potência de dois)
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = (long) Math.max(1, megabytes) * 1024 * 1024;
+        int entries = (int) Long.highestOneBit(Math.min(bytes / 16, 1 << 30));
+        keys = new long[entries];
+        data = new long[entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * Avança a geração da tabela; entradas de buscas anteriores passam a ser substituídas com prioridade
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Procura a posição na tabela
+     *
+     * @return os dados da entrada (ver os métodos estáticos de leitura), ou 0 se a posição não estiver na tabela
+     */
+    public long probe(long hash) {
+        int index = (int) hash & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) != hash || entry == 0) {
+            return 0;
+        }
+        return entry;
+    }
+
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int index = (int) hash & mask;
+        long old = data[index];
+        boolean sameKey = (keys[index] ^ old) == hash;
+        if (old != 0 && !sameKey && generation(old) == generation && depth(old) > depth) {
+            // Preserva a entrada mais profunda da busca atual
+            return;
+        }
+        if (move == Moves.NONE && sameKey) {
+            move = move(old);
+        }
+        long entry = (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40) | ((long) generation << 48);
+        data[index] = entry;
+        keys[index] = hash ^ entry;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 32) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 40) & 0x3);
+    }
+
+    private static int generation(long entry) {
+        return (int) ((entry >>> 48) & 0xFF);
+    }
+}
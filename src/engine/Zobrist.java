@@ -0,0 +1,28 @@
+package engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chaves de Zobrist usadas para calcular o hash de uma posição de forma incremental.
+ * <p>
+ * As chaves são geradas com uma semente fixa, então o mesmo hash identifica a mesma posição em qualquer execução
+ * do programa (o que permite guardar resultados indexados por hash em disco).
+ */
+public final class Zobrist {
+
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long SIDE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (int code = 0; code < 12; code++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECE_SQUARE[code][sq] = random.nextLong();
+            }
+        }
+        SIDE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
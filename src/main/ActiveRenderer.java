@@ -0,0 +1,82 @@
+package main;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Renderização ativa do tabuleiro: uma thread própria desenha o {@link Board} em um {@link Canvas} com
+ * {@link BufferStrategy}, a uma taxa fixa de quadros, sem depender dos pedidos de repaint do Swing.
+ * <p>
+ * Os eventos de mouse do canvas são repassados para o mesmo {@link Input} do tabuleiro, que continua tratando
+ * a entrada na thread do Swing; a entrada e o desenho ficam assim desacoplados.
+ */
+public class ActiveRenderer extends Canvas {
+
+    public static final int DEFAULT_FPS = 60;
+
+    private final Board board;
+    private final long frameNanos;
+    private final FrameStats frameStats = new FrameStats("ativo");
+    private volatile boolean running;
+
+    public ActiveRenderer(Board board, int fps) {
+        this.board = board;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / fps;
+
+        setPreferredSize(board.getPreferredSize());
+        setIgnoreRepaint(true);
+        addMouseListener(board.input);
+        addMouseMotionListener(board.input);
+    }
+
+    /**
+     * Cria a estratégia de buffers e inicia a thread de renderização; o canvas já precisa estar visível
+     */
+    public void start() {
+        createBufferStrategy(2);
+        board.setActiveRendering(true);
+        running = true;
+
+        Thread thread = new Thread(this::loop, "active-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        board.setActiveRendering(false);
+    }
+
+    private void loop() {
+        BufferStrategy strategy = getBufferStrategy();
+        long next = System.nanoTime();
+
+        while (running) {
+            long start = frameStats.begin();
+            do {
+                do {
+                    Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                    try {
+                        board.render(g2d);
+                    } finally {
+                        g2d.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+            frameStats.end(start);
+
+            // Taxa fixa: espera até o próximo quadro, sem acumular atraso se um quadro demorar demais
+            next += frameNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+}
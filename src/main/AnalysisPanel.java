@@ -0,0 +1,175 @@
+package main;
+
+import engine.Pieces;
+import engine.Position;
+import engine.Search;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Painel de análise exibido ao lado do tabuleiro, com as N melhores variantes da posição atual e suas avaliações.
+ * <p>
+ * A análise roda sem limite de tempo em uma thread própria e é reiniciada a cada movimento ou troca de posição do
+ * tabuleiro. As linhas parciais saem da busca por um {@link CoalescingPublisher}, que entrega ao Swing no máximo
+ * {@link #UPDATES_PER_SECOND} atualizações por segundo, independentemente de quantas a busca produz.
+ */
+public class AnalysisPanel extends JPanel implements MoveListener {
+
+    public static final int UPDATES_PER_SECOND = 10;
+    public static final int MAX_LINES = 8;
+
+    /**
+     * Estado da análise em um instante, montado na thread da busca e exibido na thread do Swing
+     */
+    private static final class Snapshot {
+        final int generation;
+        final boolean whiteToMove;
+        final int depth;
+        final List<SearchResult> lines;
+        final long nodes;
+        final long elapsedMillis;
+        final double pawnHitRate;
+
+        Snapshot(int generation, boolean whiteToMove, int depth, List<SearchResult> lines, long nodes, long elapsedMillis,
+                 double pawnHitRate) {
+            this.generation = generation;
+            this.whiteToMove = whiteToMove;
+            this.depth = depth;
+            this.lines = lines;
+            this.nodes = nodes;
+            this.elapsedMillis = elapsedMillis;
+            this.pawnHitRate = pawnHitRate;
+        }
+    }
+
+    private final Board board;
+    private final TranspositionTable table = new TranspositionTable(64);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analysis-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CoalescingPublisher<Snapshot> publisher = new CoalescingPublisher<>(UPDATES_PER_SECOND, this::show);
+
+    private final JToggleButton toggle = new JToggleButton("Analisar");
+    private final JSpinner lineCount = new JSpinner(new SpinnerNumberModel(3, 1, MAX_LINES, 1));
+    private final JLabel status = new JLabel(" ");
+    private final JTextArea text = new JTextArea();
+
+    /**
+     * Identifica a análise atual; atualizações de análises anteriores (canceladas) são descartadas
+     */
+    private volatile int generation;
+    private Search current;
+
+    public AnalysisPanel(Board board) {
+        this.board = board;
+
+        setLayout(new BorderLayout());
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(300, board.rows * board.tileSize));
+        status.setForeground(Color.WHITE);
+
+        JPanel controls = new JPanel();
+        controls.setOpaque(false);
+        controls.add(toggle);
+        controls.add(lineCount);
+        toggle.addActionListener(e -> restart());
+        lineCount.addChangeListener(e -> restart());
+
+        text.setEditable(false);
+        text.setLineWrap(true);
+        text.setWrapStyleWord(true);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+
+        add(controls, BorderLayout.NORTH);
+        add(new JScrollPane(text), BorderLayout.CENTER);
+        add(status, BorderLayout.SOUTH);
+    }
+
+    @Override
+    public void moveMade(Board board, Move move) {
+        restart();
+    }
+
+    @Override
+    public void positionSet(Board board, Position position) {
+        restart();
+    }
+
+    @Override
+    public void positionViewed(Board board, Position position) {
+        restart();
+    }
+
+    /**
+     * Cancela a análise em andamento (sem esperar por ela) e, se o painel estiver ativo, começa a analisar a posição
+     * atual do tabuleiro
+     */
+    private void restart() {
+        int analysis = ++generation;
+        if (current != null) {
+            current.stop();
+            current = null;
+        }
+        publisher.clear();
+        if (!toggle.isSelected()) {
+            text.setText("");
+            status.setText(" ");
+            return;
+        }
+
+        Position position = board.toPosition();
+        boolean whiteToMove = position.sideToMove() == Pieces.WHITE;
+        int lines = (Integer) lineCount.getValue();
+        Search search = new Search(table);
+        current = search;
+        executor.submit(() -> {
+            long start = System.currentTimeMillis();
+            search.searchLines(position, lines, Search.MAX_PLY, 0, (depth, partial, nodes) -> {
+                if (analysis == generation) {
+                    publisher.publish(new Snapshot(analysis, whiteToMove, depth, partial, nodes,
+                            System.currentTimeMillis() - start, search.pawnTable().hitRate()));
+                }
+            });
+        });
+    }
+
+    private void show(Snapshot snapshot) {
+        if (snapshot.generation != generation) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < snapshot.lines.size(); i++) {
+            SearchResult line = snapshot.lines.get(i);
+            lines.append(i + 1).append(". ").append(formatScore(line.score, snapshot.whiteToMove))
+                    .append("  d").append(line.depth).append("  ").append(line.pvString()).append("\n\n");
+        }
+        text.setText(lines.toString());
+        text.setCaretPosition(0);
+
+        long nodesPerSecond = snapshot.nodes * 1000 / Math.max(1, snapshot.elapsedMillis);
+        status.setText("profundidade " + snapshot.depth + "   " + snapshot.nodes / 1000 + " mil nós   "
+                + nodesPerSecond / 1000 + " mil nós/s   peões " + Math.round(snapshot.pawnHitRate * 100) + "%");
+    }
+
+    /**
+     * Converte a nota da busca (do ponto de vista de quem tem a vez) para o ponto de vista das brancas, em peões,
+     * ou para "#N" quando há mate em N lances
+     */
+    static String formatScore(int score, boolean whiteToMove) {
+        int white = whiteToMove ? score : -score;
+        if (Math.abs(white) >= Search.MATE - Search.MAX_PLY) {
+            int plies = Search.MATE - Math.abs(white);
+            int moves = (plies + 1) / 2;
+            return (white > 0 ? "#" : "#-") + moves;
+        }
+        return String.format("%+.2f", white / 100.0);
+    }
+}
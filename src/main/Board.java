@@ -3,10 +3,21 @@
  */
 package main;
 
+import engine.Bitboards;
+import engine.Geometry;
+import engine.GeometryPosition;
+import engine.Pieces;
+import engine.Position;
+import engine.PositionSnapshot;
+import engine.See;
 import pieces.*;
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Criação da classe pública principal representando o tabuleiro do jogo de xadrez
@@ -19,10 +30,11 @@ public class Board extends JPanel {
     public int tileSize = 85;
 
     /**
-     * Define as 8 colunas (cols) e 8 linhas (rows) no tabuleiro
+     * Geometria do tabuleiro, com as colunas (cols) e linhas (rows) e as tabelas de ataque usadas pelas regras
      */
-    int cols = 8;
-    int rows = 8;
+    public final Geometry geometry;
+    final int cols;
+    final int rows;
 
     /**
      * Lista criada para armazenar as peças presentes no respectivo tabuleiro
@@ -30,10 +42,47 @@ public class Board extends JPanel {
     ArrayList<Piece> pieceList = new ArrayList<>();
 
     /**
-     * Peça selecionada atualmente
+     * Peça em cada casa (ou null), indexada como em {@link Geometry#square}, e o conjunto das casas ocupadas;
+     * mantidos junto com {@link #pieceList} para que as regras consultem uma casa sem percorrer a lista
+     */
+    private final Piece[] squares;
+    final long[] occupied;
+
+    /**
+     * Fileira inicial das peças, da coluna 0 em diante, para cada largura de tabuleiro suportada. Na largura 10 o
+     * arranjo é o da variante Capablanca, com o arcebispo e o chanceler trocados por um bispo e uma torre, já que
+     * as regras e os sprites só conhecem as seis peças do xadrez comum
+     */
+    private static final String[] BACK_RANKS = {"RNBQKBNR", "RNBBQKBRNR"};
+
+    /**
+     * Peça selecionada atualmente; só é usada pela thread do Swing. A thread de renderização lê a seleção por
+     * {@link #selection}
      */
     public Piece selectedPiece;
 
+    /**
+     * Peça sendo arrastada, com a casa de origem, o código, a posição do sprite e as casas válidas. É substituída
+     * inteira a cada alteração, então a thread de renderização a lê sem trava
+     */
+    private static final class Selection {
+        final int square;
+        final int code;
+        final int x;
+        final int y;
+        final boolean[] validSquares;
+
+        Selection(int square, int code, int x, int y, boolean[] validSquares) {
+            this.square = square;
+            this.code = code;
+            this.x = x;
+            this.y = y;
+            this.validSquares = validSquares;
+        }
+    }
+
+    private volatile Selection selection;
+
 
     /**
      * Cria um manipulador de entrada específica para esta instância da classe tabuleiro (Board)
@@ -45,13 +94,67 @@ public class Board extends JPanel {
      */
     CheckScanner checkscanner = new CheckScanner(this);
 
+    /**
+     * Ouvintes notificados a cada movimento feito no tabuleiro
+     */
+    private final List<MoveListener> moveListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Peças fora do tabuleiro (capturadas ou removidas por {@link #setPosition(Position)}), separadas por código, para reaproveitamento
+     */
+    private final List<ArrayDeque<Piece>> piecePool = new ArrayList<>(12);
+
+    {
+        for (int code = 0; code < 12; code++) {
+            piecePool.add(new ArrayDeque<>());
+        }
+    }
+
+    private static final Color HIGHLIGHT_COLOR = new Color(68, 180, 57, 190);
+
+    /**
+     * Trava que protege a lista de peças enquanto ela é desenhada por outra thread no modo de renderização ativa. Só é
+     * usada nos tabuleiros maiores que 8x8, que não têm {@link #snapshot}; no tabuleiro 8x8 o desenho não trava
+     */
+    final Object stateLock = new Object();
+    private volatile boolean activeRendering;
+    private final FrameStats frameStats = new FrameStats("passivo");
+
+    /**
+     * Indica se o mouse pode mover as peças; desligado enquanto um jogador automático pensa
+     */
+    private volatile boolean inputEnabled = true;
+
     private boolean isWhiteToMove = true;
     private boolean isGameOver = false;
 
+    /**
+     * Retrato imutável da posição, publicado depois de cada alteração das peças. Pode ser lido por qualquer thread
+     * sem trava, ao contrário de {@link #pieceList} e dos campos das peças, que só podem ser usados pela thread do Swing
+     */
+    private volatile PositionSnapshot snapshot;
+    private int sequence;
+
     /**
      * Construtor da classe tabuleiro, definindo as configurações iniciais do tabuleiro
      */
     public Board() {
+        this(Geometry.STANDARD);
+    }
+
+    /**
+     * Cria um tabuleiro com a geometria dada, para variantes maiores que 8x8. As regras e a geração de movimentos
+     * ({@link #toGeometryPosition()}) funcionam em qualquer geometria; o motor de análise ({@link #toPosition()} e tudo
+     * que depende dele: busca, avaliação, retratos, diário, histórico e transmissão) só trabalha com a geometria
+     * {@link Geometry#STANDARD}
+     */
+    public Board(Geometry geometry) {
+        this.geometry = geometry;
+        this.cols = geometry.cols;
+        this.rows = geometry.rows;
+        this.squares = new Piece[geometry.squares];
+        this.occupied = geometry.newSet();
+
         this.setPreferredSize(new Dimension(cols * tileSize, rows * tileSize));
         this.addMouseListener(input);
         this.addMouseMotionListener(input);
@@ -60,20 +163,57 @@ public class Board extends JPanel {
          * Adiciona a configuração inicial das peças ao tabuleiro
          */
         addPieces();
+        publishSnapshot();
     }
 
     /**
      * Getter para todas as peças adicionadas na lista de peças pieceList
      */
     public Piece getPiece(int col, int row) {
+        return geometry.contains(col, row) ? squares[geometry.square(col, row)] : null;
+    }
 
-        for (Piece piece : pieceList) {
-            if (piece.col == col && piece.row == row) {
-                return piece;
-            }
-        }
+    Piece pieceAt(int sq) {
+        return squares[sq];
+    }
 
-        return null;
+    /**
+     * Verifica se as casas entre a origem e o destino, que devem estar na mesma linha, coluna ou diagonal, estão vazias
+     */
+    public boolean isPathClear(int fromCol, int fromRow, int toCol, int toRow) {
+        return geometry.isPathClear(geometry.square(fromCol, fromRow), geometry.square(toCol, toRow), occupied);
+    }
+
+    /**
+     * Coloca a peça na casa dada, atualizando a casa e o conjunto de casas ocupadas
+     */
+    private void relocate(Piece piece, int col, int row) {
+        vacate(piece);
+        place(piece, col, row);
+    }
+
+    private void place(Piece piece, int col, int row) {
+        piece.col = col;
+        piece.row = row;
+        piece.xPos = col * tileSize;
+        piece.yPos = row * tileSize;
+        int sq = geometry.square(col, row);
+        squares[sq] = piece;
+        Geometry.add(occupied, 0, sq);
+    }
+
+    /**
+     * Retira a peça da sua casa, se ela ainda estiver lá (uma peça capturada já foi substituída pela que a capturou)
+     */
+    private void vacate(Piece piece) {
+        if (!geometry.contains(piece.col, piece.row)) {
+            return;
+        }
+        int sq = geometry.square(piece.col, piece.row);
+        if (squares[sq] == piece) {
+            squares[sq] = null;
+            Geometry.remove(occupied, 0, sq);
+        }
     }
 
     /**
@@ -81,16 +221,26 @@ public class Board extends JPanel {
      * realiza o método movePawn (Mover peão), além de implementar a lógica de captura com o método capture, atríbuida à classe move (movimento)
      */
     public void makeMove(Move move) {
+        int engineMove = geometry == Geometry.STANDARD ? move.toEngineMove() : 0;
+        synchronized (stateLock) {
+            applyMove(move);
+        }
+        refreshSelection();
+        publishMove(engineMove);
+
+        for (MoveListener listener : moveListeners) {
+            listener.moveMade(this, move);
+        }
+    }
+
+    private void applyMove(Move move) {
 
         if (move.piece.name.equals("Pawn")) {
             movePawn(move);
 
         } else {
 
-        move.piece.col = move.newCol;
-        move.piece.row = move.newRow;
-        move.piece.xPos = move.newCol * tileSize;
-        move.piece.yPos = move.newRow * tileSize;
+        relocate(move.piece, move.newCol, move.newRow);
 
         move.piece.isFirstMove = false;
 
@@ -110,14 +260,31 @@ public class Board extends JPanel {
 
     }
 
+    public boolean isWhiteToMove() {
+        return isWhiteToMove;
+    }
+
+    public boolean isInputEnabled() {
+        return inputEnabled;
+    }
+
+    public void setInputEnabled(boolean inputEnabled) {
+        this.inputEnabled = inputEnabled;
+    }
+
+    public void addMoveListener(MoveListener listener) {
+        moveListeners.add(listener);
+    }
+
+    public void removeMoveListener(MoveListener listener) {
+        moveListeners.remove(listener);
+    }
+
     /**
      * Método para mover o peão, fazendo a atribuição de falso ao Booleano isFirstMove (Condicional para verificar se é o primeiro movimento)
      */
     public void movePawn(Move move) {
-        move.piece.col = move.newCol;
-        move.piece.row = move.newRow;
-        move.piece.xPos = move.newCol * tileSize;
-        move.piece.yPos = move.newRow * tileSize;
+        relocate(move.piece, move.newCol, move.newRow);
 
         move.piece.isFirstMove = false;
 
@@ -132,6 +299,10 @@ public class Board extends JPanel {
      */
     public void capture(Piece piece) {
         pieceList.remove(piece);
+        if (piece != null) {
+            vacate(piece);
+            releasePiece(piece);
+        }
         if (piece != null && piece.name.equals("King")) {
             System.out.println(piece.isWhite ? "Black Wins!" : "White Wins!");
             isGameOver = true;
@@ -147,6 +318,9 @@ public class Board extends JPanel {
         if (isGameOver) {
             return false;
         }
+        if (!geometry.contains(move.newCol, move.newRow)) {
+            return false;
+        }
         if(move.piece.isWhite != isWhiteToMove){
             return false;
         }
@@ -181,6 +355,171 @@ public class Board extends JPanel {
         return p1.isWhite == p2.isWhite;
     }
 
+    /**
+     * Avalia a sequência completa de capturas na casa de destino do movimento, usando a avaliação estática de trocas (SEE)
+     *
+     * @return o saldo de material em centipeões para quem faz o movimento; negativo se a troca perde material
+     */
+    public int staticExchange(Move move) {
+        return See.see(toPosition(), move.toEngineMove());
+    }
+
+    /**
+     * Converte o estado atual do tabuleiro para a representação compacta usada pelo motor de análise. Pode ser chamado
+     * de qualquer thread, pois parte do último {@link #snapshot() retrato publicado}
+     */
+    public Position toPosition() {
+        PositionSnapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("O motor de análise só trabalha com o tabuleiro " + Geometry.STANDARD);
+        }
+        return current.toPosition();
+    }
+
+    /**
+     * Converte o estado atual do tabuleiro, de qualquer geometria, para a posição de várias palavras usada pelo
+     * {@link engine.MoveGen gerador de movimentos} nas variantes. Lê a lista de peças, então só pode ser chamado pela
+     * thread do Swing
+     */
+    public GeometryPosition toGeometryPosition() {
+        GeometryPosition position = new GeometryPosition(geometry);
+        for (Piece piece : pieceList) {
+            position.put(geometry.square(piece.col, piece.row), codeOf(piece));
+        }
+        position.setSideToMove(isWhiteToMove ? Pieces.WHITE : Pieces.BLACK);
+        return position;
+    }
+
+    /**
+     * Retorna o último retrato imutável da posição, publicado depois do último movimento ou da última chamada de
+     * {@link #setPosition(Position)}, ou null se o tabuleiro não for 8x8. Pode ser lido de qualquer thread, sem trava e
+     * sem cópia
+     */
+    public PositionSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publica o retrato seguinte derivando-o do anterior com {@link PositionSnapshot#after(int, boolean)}, sem percorrer
+     * as peças. Se o movimento não passou a vez (o rei de quem jogou sumiu do tabuleiro), o retrato é montado do zero
+     */
+    private void publishMove(int move) {
+        PositionSnapshot previous = snapshot;
+        if (previous == null) {
+            return;
+        }
+        PositionSnapshot next = previous.after(move, isGameOver);
+        if (next.sideToMove() != (isWhiteToMove ? Pieces.WHITE : Pieces.BLACK)) {
+            publishSnapshot();
+            return;
+        }
+        sequence = next.sequence();
+        snapshot = next;
+    }
+
+    /**
+     * Monta um retrato novo a partir das peças e o publica; deve ser chamado com as peças já no estado final
+     */
+    private void publishSnapshot() {
+        if (geometry != Geometry.STANDARD) {
+            return;
+        }
+        Position position = new Position();
+        for (Piece piece : pieceList) {
+            int color = piece.isWhite ? Pieces.WHITE : Pieces.BLACK;
+            position.put(Bitboards.square(piece.col, piece.row), Pieces.code(color, Pieces.typeOf(piece.name)));
+        }
+        position.setSideToMove(isWhiteToMove ? Pieces.WHITE : Pieces.BLACK);
+        snapshot = PositionSnapshot.of(position, ++sequence, isGameOver);
+    }
+
+    /**
+     * Substitui as peças do tabuleiro pelas da posição informada, definindo também o lado que tem a vez.
+     * <p>
+     * As peças são reaproveitadas de um conjunto (pool) por tipo e cor, então depois das primeiras chamadas nenhuma
+     * peça nova é criada e nenhum sprite é decodificado de novo, o que permite percorrer o histórico rapidamente.
+     */
+    public void setPosition(Position position) {
+        replacePieces(position);
+        for (MoveListener listener : moveListeners) {
+            listener.positionSet(this, position);
+        }
+        requestRender();
+    }
+
+    /**
+     * Exibe a posição informada sem alterar a partida, por exemplo ao navegar no histórico. As peças são trocadas como
+     * em {@link #setPosition(Position)}, mas os ouvintes recebem {@link MoveListener#positionViewed} em vez de
+     * {@link MoveListener#positionSet}
+     */
+    public void showPosition(Position position) {
+        replacePieces(position);
+        for (MoveListener listener : moveListeners) {
+            listener.positionViewed(this, position);
+        }
+        requestRender();
+    }
+
+    private void replacePieces(Position position) {
+        if (geometry != Geometry.STANDARD) {
+            throw new IllegalStateException("Posições do motor só podem ser usadas no tabuleiro " + Geometry.STANDARD);
+        }
+        synchronized (stateLock) {
+            for (Piece piece : pieceList) {
+                releasePiece(piece);
+            }
+            pieceList.clear();
+            Arrays.fill(squares, null);
+            Arrays.fill(occupied, 0);
+            for (int sq = 0; sq < 64; sq++) {
+                int code = position.pieceAt(sq);
+                if (code != Pieces.EMPTY) {
+                    pieceList.add(acquirePiece(code, sq & 7, sq >>> 3));
+                }
+            }
+            isWhiteToMove = position.sideToMove() == Pieces.WHITE;
+            isGameOver = false;
+        }
+        clearSelection();
+        publishSnapshot();
+    }
+
+    private void releasePiece(Piece piece) {
+        piecePool.get(codeOf(piece)).push(piece);
+    }
+
+    /**
+     * Retira uma peça do pool (ou cria uma, se o pool estiver vazio) e a coloca na casa dada
+     */
+    private Piece acquirePiece(int code, int col, int row) {
+        Piece piece = piecePool.get(code).poll();
+        if (piece == null) {
+            piece = createPiece(code, col, row);
+        }
+        place(piece, col, row);
+        // Só o peão usa o primeiro movimento, e um peão na linha inicial nunca se moveu
+        piece.isFirstMove = row == (piece.isWhite ? rows - 2 : 1);
+        return piece;
+    }
+
+    private Piece createPiece(int code, int col, int row) {
+        boolean isWhite = Pieces.color(code) == Pieces.WHITE;
+        switch (Pieces.type(code)) {
+            case Pieces.PAWN:
+                return new Pawn(this, col, row, isWhite);
+            case Pieces.KNIGHT:
+                return new Knight(this, col, row, isWhite);
+            case Pieces.BISHOP:
+                return new Bishop(this, col, row, isWhite);
+            case Pieces.ROOK:
+                return new Rook(this, col, row, isWhite);
+            case Pieces.QUEEN:
+                return new Queen(this, col, row, isWhite);
+            default:
+                return new King(this, col, row, isWhite);
+        }
+    }
+
     Piece findKing(boolean isWhite) {
         for (Piece piece : pieceList) {
             if (isWhite == piece.isWhite && piece.name.equals("King")) {
@@ -191,46 +530,38 @@ public class Board extends JPanel {
     }
 
     /**
-     * Adiciona todas as peças no tabuleiro nas posições iniciais.
+     * Adiciona todas as peças no tabuleiro nas posições iniciais: a fileira de {@link #BACK_RANKS} correspondente à
+     * largura do tabuleiro nas linhas das bordas e uma fileira de peões à frente de cada uma.
      */
     public void addPieces() {
+        String backRank = null;
+        for (String rank : BACK_RANKS) {
+            if (rank.length() == cols) {
+                backRank = rank;
+            }
+        }
+        if (backRank == null) {
+            throw new IllegalArgumentException("Não há arranjo inicial para tabuleiros com " + cols + " colunas");
+        }
 
-        pieceList.add(new Rook(this, 0, 0, false));
-        pieceList.add(new Knight(this, 1, 0, false));
-        pieceList.add(new Bishop(this, 2, 0, false));
-        pieceList.add(new Queen(this, 3, 0, false));
-        pieceList.add(new King(this, 4, 0, false));
-        pieceList.add(new Bishop(this, 5, 0, false));
-        pieceList.add(new Knight(this, 6, 0, false));
-        pieceList.add(new Rook(this, 7, 0, false));
-
-        pieceList.add(new Pawn(this, 0, 1, false));
-        pieceList.add(new Pawn(this, 1, 1, false));
-        pieceList.add(new Pawn(this, 2, 1, false));
-        pieceList.add(new Pawn(this, 3, 1, false));
-        pieceList.add(new Pawn(this, 4, 1, false));
-        pieceList.add(new Pawn(this, 5, 1, false));
-        pieceList.add(new Pawn(this, 6, 1, false));
-        pieceList.add(new Pawn(this, 7, 1, false));
-
-        pieceList.add(new Rook(this, 0, 7, true));
-        pieceList.add(new Knight(this, 1, 7, true));
-        pieceList.add(new Bishop(this, 2, 7, true));
-        pieceList.add(new Queen(this, 3, 7, true));
-        pieceList.add(new King(this, 4, 7, true));
-        pieceList.add(new Bishop(this, 5, 7, true));
-        pieceList.add(new Knight(this, 6, 7, true));
-        pieceList.add(new Rook(this, 7, 7, true));
-
-        pieceList.add(new Pawn(this, 0, 6, true));
-        pieceList.add(new Pawn(this, 1, 6, true));
-        pieceList.add(new Pawn(this, 2, 6, true));
-        pieceList.add(new Pawn(this, 3, 6, true));
-        pieceList.add(new Pawn(this, 4, 6, true));
-        pieceList.add(new Pawn(this, 5, 6, true));
-        pieceList.add(new Pawn(this, 6, 6, true));
-        pieceList.add(new Pawn(this, 7, 6, true));
+        for (int col = 0; col < cols; col++) {
+            addPiece(Pieces.code(Pieces.BLACK, Pieces.type(Pieces.fromChar(backRank.charAt(col)))), col, 0);
+        }
+        for (int col = 0; col < cols; col++) {
+            addPiece(Pieces.code(Pieces.BLACK, Pieces.PAWN), col, 1);
+        }
+        for (int col = 0; col < cols; col++) {
+            addPiece(Pieces.fromChar(backRank.charAt(col)), col, rows - 1);
+        }
+        for (int col = 0; col < cols; col++) {
+            addPiece(Pieces.code(Pieces.WHITE, Pieces.PAWN), col, rows - 2);
+        }
+    }
 
+    private void addPiece(int code, int col, int row) {
+        Piece piece = createPiece(code, col, row);
+        pieceList.add(piece);
+        place(piece, col, row);
     }
 
     /**
@@ -253,37 +584,138 @@ public class Board extends JPanel {
      * Método com o propósito de renderizar o tabuleiro, as peças destacadas e as peças no JFrame criado na classe Match (Partida)
      */
     public void paintComponent(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
+        long start = frameStats.begin();
+        render((Graphics2D) g);
+        frameStats.end(start);
+    }
 
+    /**
+     * Pede que o tabuleiro seja desenhado de novo. No modo de renderização ativa o laço de renderização já desenha
+     * continuamente, então nada precisa ser feito
+     */
+    public void requestRender() {
+        if (!activeRendering) {
+            repaint();
+        }
+    }
 
-        /**
-         * Função dentro de laço com o propósito de pintar o tabuleiro no frame
-         */
+    /**
+     * Liga ou desliga o modo de renderização ativa, em que o tabuleiro é desenhado por um {@link ActiveRenderer}
+     * em vez de pelo {@link #paintComponent(Graphics)}
+     */
+    public void setActiveRendering(boolean activeRendering) {
+        this.activeRendering = activeRendering;
+    }
+
+    public FrameStats frameStats() {
+        return frameStats;
+    }
+
+    /**
+     * Seleciona a peça dada para ser arrastada e calcula as casas para onde ela pode se mover, usando as mesmas regras de
+     * {@link #isValidMove(Move)}. Deve ser chamado pela thread do Swing
+     */
+    public void select(Piece piece) {
+        boolean[] validSquares = new boolean[rows * cols];
         for (int r = 0; r < rows; r++)
             for (int c = 0; c < cols; c++) {
-                g2d.setColor((c + r) % 2 == 0 ? new Color(255, 255, 255) : new Color(29, 93, 120));
-                g2d.fillRect(c * tileSize, r * tileSize, tileSize, tileSize);
+                validSquares[r * cols + c] = isValidMove(new Move(this, piece, c, r));
             }
+        selectedPiece = piece;
+        selection = new Selection(geometry.square(piece.col, piece.row), codeOf(piece), piece.col * tileSize,
+                piece.row * tileSize, validSquares);
+    }
+
+    /**
+     * Move o sprite da peça selecionada para a posição dada, em pixels; deve ser chamado pela thread do Swing
+     */
+    public void dragSelected(int x, int y) {
+        Selection current = selection;
+        if (current != null) {
+            selection = new Selection(current.square, current.code, x, y, current.validSquares);
+        }
+    }
+
+    public void clearSelection() {
+        selectedPiece = null;
+        selection = null;
+    }
+
+    /**
+     * Depois de um movimento, recalcula as casas válidas da peça selecionada mantendo o arrasto, ou desfaz a seleção se
+     * a peça foi capturada
+     */
+    private void refreshSelection() {
+        Piece piece = selectedPiece;
+        Selection current = selection;
+        if (piece == null || current == null) {
+            return;
+        }
+        if (getPiece(piece.col, piece.row) != piece) {
+            clearSelection();
+            return;
+        }
+        select(piece);
+        dragSelected(current.x, current.y);
+    }
+
+    private static int codeOf(Piece piece) {
+        return Pieces.code(piece.isWhite ? Pieces.WHITE : Pieces.BLACK, Pieces.typeOf(piece.name));
+    }
+
+    /**
+     * Desenha o tabuleiro, as casas válidas da peça selecionada e as peças no contexto gráfico dado.
+     * Pode ser chamado tanto pela thread do Swing quanto pela thread do {@link ActiveRenderer}: no tabuleiro 8x8 as
+     * peças vêm do último {@link #snapshot() retrato} e a seleção de {@link #selection}, ambos imutáveis, sem trava;
+     * nos tabuleiros maiores a lista de peças é percorrida com a trava do tabuleiro
+     */
+    public void render(Graphics2D g2d) {
+        SpriteAtlas atlas = SpriteAtlas.forTileSize(tileSize);
 
         /**
-         * Função condicional dependente da peça selecionada ser ou não nula, e com o propósito de destacar as posições válidas para a peça selecionada
+         * Desenha a camada estática do tabuleiro, pré-renderizada uma única vez para cada tamanho de casa e
+         * compartilhada com os demais tabuleiros
          */
-        if (selectedPiece != null)
+        g2d.drawImage(atlas.background(cols, rows), 0, 0, null);
+
+        /**
+         * Destaca as posições válidas para a peça selecionada, calculadas uma vez quando a seleção foi feita
+         */
+        Selection selected = selection;
+        if (selected != null) {
+            g2d.setColor(HIGHLIGHT_COLOR);
             for (int r = 0; r < rows; r++)
                 for (int c = 0; c < cols; c++) {
-
-                    if (isValidMove(new Move(this, selectedPiece, c, r))) {
-                        g2d.setColor(new Color(68, 180, 57, 190));
+                    if (selected.validSquares[r * cols + c]) {
                         g2d.fillRect(c * tileSize, r * tileSize, tileSize, tileSize);
                     }
                 }
+        }
 
         /**
-         * Função dentro de laço com o propósito de pintar as peças no tabuleiro já impresso no frame
+         * Pinta as peças paradas; a peça arrastada é pintada por último, na posição do mouse
          */
-        for (Piece piece : pieceList) {
-                piece.paint(g2d);
+        int dragged = selected != null ? selected.square : -1;
+        PositionSnapshot current = snapshot;
+        if (current != null) {
+            for (long occupied = current.occupied(); occupied != 0; occupied &= occupied - 1) {
+                int sq = Long.numberOfTrailingZeros(occupied);
+                int code = current.pieceAt(sq);
+                if (sq != dragged || code != selected.code) {
+                    atlas.draw(g2d, code, (sq & 7) * tileSize, (sq >>> 3) * tileSize);
+                }
+            }
+        } else {
+            synchronized (stateLock) {
+                for (Piece piece : pieceList) {
+                    if (geometry.square(piece.col, piece.row) != dragged) {
+                        piece.paint(g2d);
+                    }
+                }
             }
         }
+        if (selected != null) {
+            atlas.draw(g2d, selected.code, selected.x, selected.y);
+        }
     }
-
+}
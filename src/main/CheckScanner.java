@@ -1,7 +1,12 @@
 package main;
 
+import engine.Bitboards;
+import engine.Geometry;
+import engine.Pieces;
 import pieces.Piece;
 
+import java.util.Arrays;
+
 
 /**
  * Classe pública "CheckScanner" que tem como função principal fazer a checagem dos movimentos realizados no tabuleiro, verificando se o rei está em Cheque
@@ -36,8 +41,9 @@ public class CheckScanner {
      * <p>
      * Este método valida se o rei está sob ameaça de alguma peça adversária
      * com base no movimento mais recente. Ele verifica vários tipos de peças, incluindo
-     * torres, bispos, cavaleiros, peões e reis adversários para determinar se alguma delas pode atacar
-     * o rei a partir de suas respectivas posições.
+     * torres, bispos, cavalos, peões e o rei adversário, usando as tabelas de ataque da
+     * geometria do tabuleiro para verificar se há uma ameaça direta ao rei a partir de
+     * suas respectivas posições.
      *
      * @param move O último movimento realizado, que contém detalhes sobre
      *             a peça envolvida, suas novas posições de coluna e linha.
@@ -51,206 +57,160 @@ public class CheckScanner {
         Piece king = board.findKing(move.piece.isWhite);
         assert king != null;
 
-        int kingCol = king.col;
-        int kingRow = king.row;
-
-        if (board.selectedPiece != null && board.selectedPiece.name.equals("King")) {
-            kingCol = move.newCol;
-            kingRow = move.newRow;
-        }
-
-        return hitByRook(move.newCol, move.newRow, king, kingCol, kingRow, 0, 1) || // cima
-                hitByRook(move.newCol, move.newRow, king, kingCol, kingRow, 1, 0) || // direita
-                hitByRook(move.newCol, move.newRow, king, kingCol, kingRow, 0, -1) || // baixo
-                hitByRook(move.newCol, move.newRow, king, kingCol, kingRow, -1, 0) || // esquerda
+        Geometry geometry = board.geometry;
+        int from = geometry.square(move.oldCol, move.oldRow);
+        int to = geometry.square(move.newCol, move.newRow);
+        int kingSquare = move.piece == king ? to : geometry.square(king.col, king.row);
 
-                hitByBishop(move.newCol, move.newRow, king, kingCol, kingRow, -1, -1) || // diagonal superior esquerda
-                hitByBishop(move.newCol, move.newRow, king, kingCol, kingRow, 1, -1) || // diagonal superior direita
-                hitByBishop(move.newCol, move.newRow, king, kingCol, kingRow, 1, 1) || // diagonal inferior direita
-                hitByBishop(move.newCol, move.newRow, king, kingCol, kingRow, -1, 1) || // diagonal inferior esquerda
-
-                hitByKnight(move.newCol, move.newRow, king, kingCol, kingRow) ||
-                hitByPawn(move.newCol, move.newRow, king, kingCol, kingRow) ||
-                hitByKing(king, kingCol, kingRow);
+        /**
+         * Casas ocupadas como ficam depois do movimento: a origem fica vazia e o destino, ocupado. O conjunto é local
+         * (no máximo 4 palavras) porque os movimentos são validados por mais de uma thread ao mesmo tempo
+         */
+        long[] occupied = board.occupied.clone();
+        Geometry.remove(occupied, 0, from);
+        Geometry.add(occupied, 0, to);
+
+        return hitByRook(geometry, occupied, king, kingSquare, to) ||
+                hitByBishop(geometry, occupied, king, kingSquare, to) ||
+                hitBy(geometry, geometry.knightAttacks(), king, kingSquare, to, "Knight") ||
+                hitBy(geometry, geometry.pawnAttacks(king.isWhite ? Pieces.WHITE : Pieces.BLACK), king, kingSquare, to, "Pawn") ||
+                hitBy(geometry, geometry.kingAttacks(), king, kingSquare, to, "King");
     }
 
     /**
-     * Determina se um dado rei está ameaçado por uma torre ou uma rainha ao longo de um caminho reto.
+     * Determina se o rei está ameaçado por uma torre ou uma rainha ao longo de uma linha ou coluna.
      * <p>
-     * Este método verifica as linhas retas (horizontais e verticais) de onde uma torre ou uma rainha pode ameaçar o rei.
+     * Para cada direção reta, procura a primeira casa ocupada a partir do rei nas tabelas de raios da geometria; se
+     * ela tiver uma torre ou rainha adversária, o rei está ameaçado.
      *
-     * @param col     a coluna da posição a ser verificada quanto a ameaças
-     * @param row     a linha da posição a ser verificada quanto a ameaças
-     * @param King    a peça do rei que está potencialmente ameaçada
-     * @param kingCol a posição da coluna do rei
-     * @param kingRow a posição da linha do rei
-     * @param colVal  o valor do incremento de coluna para traçar o caminho reto
-     * @param rowVal  o valor do incremento de linha para traçar o caminho reto
-     * @return true se o rei estiver ameaçado por uma torre ou uma rainha ao longo do caminho reto especificado; false caso contrário
+     * @param occupied   as casas ocupadas depois do movimento
+     * @param king       a peça do rei que está potencialmente ameaçada
+     * @param kingSquare a casa do rei depois do movimento
+     * @param to         o destino do movimento, ocupado pela peça que se moveu
+     * @return true se o rei estiver ameaçado por uma torre ou uma rainha; false caso contrário
      */
-    private boolean hitByRook(int col, int row, Piece King, int kingCol, int kingRow, int colVal, int rowVal) {
-        for (int i = 1; i < 8; i++) {
-            if (kingCol + (i * colVal) == col && kingRow + (i * rowVal) == row) {
-                break;
-            }
-
-            Piece piece = board.getPiece(kingCol + (i * colVal), kingRow + (i * rowVal));
-
-            if (piece != null && piece != board.selectedPiece) {
-                if (!board.sameTeam(piece, King) && (piece.name.equals("Rook") || piece.name.equals("Queen"))) {
-                    return true;
-                }
-                break;
+    private boolean hitByRook(Geometry geometry, long[] occupied, Piece king, int kingSquare, int to) {
+        for (int dir = Bitboards.NORTH; dir <= Bitboards.WEST; dir++) {
+            if (hitBySlider(geometry, occupied, dir, king, kingSquare, to, "Rook")) {
+                return true;
             }
         }
         return false;
     }
 
     /**
-     * Determina se um dado rei está sob ameaça de um bispo ou uma rainha nas coordenadas especificadas.
-     * <p>
-     * Este método verifica os caminhos diagonais de onde um bispo ou uma rainha pode ameaçar o rei.
+     * Determina se o rei está ameaçado por um bispo ou uma rainha ao longo de uma diagonal, da mesma forma que
+     * {@link #hitByRook}.
      *
-     * @param col     a coluna da posição a ser verificada quanto a ameaças
-     * @param row     a linha da posição a ser verificada quanto a ameaças
-     * @param King    a peça do rei que está potencialmente ameaçada
-     * @param kingCol a posição da coluna do rei
-     * @param kingRow a posição da linha do rei
-     * @param colVal  o valor do incremento de coluna para traçar o caminho diagonal
-     * @param rowVal  o valor do incremento de linha para traçar o caminho diagonal
-     * @return true se o rei estiver ameaçado por um bispo ou uma rainha ao longo do caminho diagonal especificado; false caso contrário
+     * @return true se o rei estiver ameaçado por um bispo ou uma rainha; false caso contrário
      */
-    private boolean hitByBishop(int col, int row, Piece King, int kingCol, int kingRow, int colVal, int rowVal) {
-        for (int i = 1; i < 8; i++) {
-            if (kingCol - (i * colVal) == col && kingRow - (i * rowVal) == row) {
-                break;
-            }
-
-            Piece piece = board.getPiece(kingCol - (i * colVal), kingRow - (i * rowVal));
-            if (piece != null && piece != board.selectedPiece) {
-                if (!board.sameTeam(piece, King) && (piece.name.equals("Bishop") || piece.name.equals("Queen"))) {
-                    return true;
-                }
-                break;
+    private boolean hitByBishop(Geometry geometry, long[] occupied, Piece king, int kingSquare, int to) {
+        for (int dir = Bitboards.NORTH_EAST; dir <= Bitboards.SOUTH_WEST; dir++) {
+            if (hitBySlider(geometry, occupied, dir, king, kingSquare, to, "Bishop")) {
+                return true;
             }
         }
         return false;
     }
 
-    /**
-     * Determina se um dado rei está sob ameaça de um cavaleiro nas coordenadas especificadas.
-     * <p>
-     * Este método verifica todas as posições possíveis de onde um cavaleiro pode ameaçar o rei.
-     *
-     * @param col a coluna atual
-     */
-    private boolean hitByKnight(int col, int row, Piece king, int kingCol, int kingRow) {
-        return checkKnight(board.getPiece(kingCol - 1, kingRow - 2), king, kingCol - 1, kingRow - 2) ||
-                checkKnight(board.getPiece(kingCol + 1, kingRow - 2), king, kingCol + 1, kingRow - 2) ||
-                checkKnight(board.getPiece(kingCol + 2, kingRow - 1), king, kingCol + 2, kingRow - 1) ||
-                checkKnight(board.getPiece(kingCol + 2, kingRow + 1), king, kingCol + 2, kingRow + 1) ||
-                checkKnight(board.getPiece(kingCol + 1, kingRow + 2), king, kingCol + 1, kingRow + 2) ||
-                checkKnight(board.getPiece(kingCol - 1, kingRow + 2), king, kingCol - 1, kingRow + 2) ||
-                checkKnight(board.getPiece(kingCol - 2, kingRow + 1), king, kingCol - 2, kingRow + 1) ||
-                checkKnight(board.getPiece(kingCol - 2, kingRow - 1), king, kingCol - 2, kingRow - 1);
-    }
-
-    /**
-     * Verifica se um cavaleiro especificado está em uma determinada posição e não está na mesma equipe de outra peça.
-     *
-     * @param p   a peça a ser verificada, que deve ser um cavaleiro potencial
-     * @param k   a peça contra a qual a verificação da equipe é realizada
-     * @param col a posição de coluna do cavaleiro
-     * @param row a posição de linha do cavaleiro
-     * @return true se a peça for um cavaleiro e não estiver na mesma equipe do rei
-     */
-    private boolean checkKnight(Piece p, Piece k, int col, int row) {
-        return p != null && !board.sameTeam(p, k) && p.name.equals("Knight") && p.col == col && p.row == row;
+    private boolean hitBySlider(Geometry geometry, long[] occupied, int dir, Piece king, int kingSquare, int to, String name) {
+        int blocker = geometry.firstBlocker(dir, kingSquare, occupied);
+        if (blocker < 0 || blocker == to) {
+            return false;
+        }
+        Piece piece = board.pieceAt(blocker);
+        return piece != null && !board.sameTeam(piece, king) && (piece.name.equals(name) || piece.name.equals("Queen"));
     }
 
     /**
-     * Verifica se um Rei pode atacar a posição de outra peça.
+     * Determina se o rei está ameaçado por uma peça adversária do tipo dado em uma das casas da tabela de ataques.
      * <p>
-     * Este método verifica os ataques potenciais a uma peça dada por um Rei localizado nas coordenadas especificadas
-     * verificando todas as posições possíveis para onde o Rei pode se mover a partir de sua localização atual.
+     * As tabelas de cavalo e rei são simétricas; para os peões, a tabela usada é a dos peões da cor do rei, que
+     * contém exatamente as casas de onde um peão adversário atacaria a casa do rei. A peça capturada pelo
+     * movimento, no destino, não ameaça mais ninguém.
      *
-     * @param king    A peça Rei que está sendo verificada para possíveis ataques.
-     * @param kingCol A posição da coluna do Rei.
-     * @param kingRow A posição da linha do Rei.
-     * @return true se pelo menos uma das posições ao redor do Rei contiver uma peça pertencente à equipe oposta, indicando captura potencial; falso caso contrário.
+     * @param attacks    a tabela de ataques da geometria
+     * @param king       a peça Rei que está potencialmente ameaçada
+     * @param kingSquare a casa do rei depois do movimento
+     * @param to         o destino do movimento
+     * @param name       o nome da peça atacante
+     * @return true se houver uma peça adversária do tipo dado atacando o rei; falso caso contrário
      */
-    private boolean hitByKing(Piece king, int kingCol, int kingRow) {
-        return checkKing(board.getPiece(kingCol - 1, kingRow - 1), king) ||
-                checkKing(board.getPiece(kingCol + 1, kingRow - 1), king) ||
-                checkKing(board.getPiece(kingCol, kingRow - 1), king) ||
-                checkKing(board.getPiece(kingCol - 1, kingRow), king) ||
-                checkKing(board.getPiece(kingCol + 1, kingRow), king) ||
-                checkKing(board.getPiece(kingCol - 1, kingRow + 1), king) ||
-                checkKing(board.getPiece(kingCol + 1, kingRow + 1), king) ||
-                checkKing(board.getPiece(kingCol, kingRow + 1), king);
-    }
-
-    /**
-     * Verifica se a peça especificada é um Rei que não está na mesma equipe que outra peça.
-     *
-     * @param p a peça a ser verificada, que se espera que seja potencialmente um Rei
-     * @param k a peça contra a qual a verificação de equipe está sendo realizada
-     * @return true se a peça 'p' for um Rei e não estiver na mesma equipe que a peça 'k'; falso caso contrário
-     */
-    private boolean checkKing(Piece p, Piece k) {
-        return p != null && !board.sameTeam(p, k) && p.name.equals("King");
-    }
-
-    /**
-     * Determina se um Rei dado está ameaçado por um peão.
-     *
-     * @param col     a posição da coluna para verificar peões ameaçando o Rei
-     * @param row     a posição da linha para verificar peões ameaçando o Rei
-     * @param king    a peça Rei que está potencialmente ameaçada
-     * @param kingCol a posição da coluna do Rei
-     * @param kingRow a posição da linha do Rei
-     * @return true se o Rei estiver ameaçado por um peão de qualquer posição diagonal adjacente; falso caso contrário
-     */
-    private boolean hitByPawn(int col, int row, Piece king, int kingCol, int kingRow) {
-        int colorVal = king.isWhite ? -1 : 1;
-        return checkPawn(board.getPiece(kingCol + 1, kingRow + colorVal), king, kingCol + 1, kingRow + colorVal) ||
-                checkPawn(board.getPiece(kingCol - 1, kingRow + colorVal), king, kingCol - 1, kingRow + colorVal);
-    }
-
-    /**
-     * Verifica se um peão especificado está em uma posição específica, não estando na mesma equipe que outra peça.
-     *
-     * @param p   a peça a ser verificada, esperada para ser um peão potencial
-     * @param k   a peça contra a qual a equipe é verificada
-     * @param col a posição da coluna para verificar o peão
-     * @param row a posição da linha para verificar o peão
-     * @return true se a peça for um peão na posição especificada e não estiver na mesma equipe que a peça 'k'; falso caso contrário
-     */
-    private boolean checkPawn(Piece p, Piece k, int col, int row) {
-        return p != null && !board.sameTeam(p, k) && p.name.equals("Pawn") && p.col == col && p.row == row;
+    private boolean hitBy(Geometry geometry, long[] attacks, Piece king, int kingSquare, int to, String name) {
+        int offset = geometry.offset(kingSquare);
+        for (int sq = geometry.next(attacks, offset, 0); sq >= 0; sq = geometry.next(attacks, offset, sq + 1)) {
+            Piece piece = board.pieceAt(sq);
+            if (sq != to && piece != null && !board.sameTeam(piece, king) && piece.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Determina se o jogo acabou verificando se ainda há movimentos válidos restantes
      * para as peças da mesma equipe que o Rei especificado.
+     * <p>
+     * Só os destinos que a peça alcança segundo as tabelas de ataque são validados, em vez de todas as casas do
+     * tabuleiro.
      *
      * @param king a peça Rei a ser verificada para possíveis movimentos válidos por sua equipe
      * @return true se não houver movimentos válidos disponíveis para a equipe do Rei, indicando que o jogo acabou; falso caso contrário
      */
     public boolean isGameOver(Piece king) {
+        Geometry geometry = board.geometry;
+        long[] targets = geometry.newSet();
         for (Piece piece : board.pieceList) {
             if (board.sameTeam(piece, king)) {
-                board.selectedPiece = piece == king ? king : null;
-                for (int row = 0; row < board.rows; row++) {
-                    for (int col = 0; col < board.cols; col++) {
-                        Move move = new Move(board, piece, col, row);
-                        if (board.isValidMove(move)) {
-                            return false;
-                        }
+                candidateSquares(geometry, piece, targets);
+                for (int sq = geometry.next(targets, 0, 0); sq >= 0; sq = geometry.next(targets, 0, sq + 1)) {
+                    Move move = new Move(board, piece, geometry.col(sq), geometry.row(sq));
+                    if (board.isValidMove(move)) {
+                        return false;
                     }
                 }
             }
         }
         return true;
     }
+
+    /**
+     * Preenche {@code targets} com as casas para onde a peça poderia se mover, sem considerar o cheque
+     */
+    private void candidateSquares(Geometry geometry, Piece piece, long[] targets) {
+        Arrays.fill(targets, 0);
+        int sq = geometry.square(piece.col, piece.row);
+        int offset = geometry.offset(sq);
+        switch (piece.name) {
+            case "Knight":
+                System.arraycopy(geometry.knightAttacks(), offset, targets, 0, geometry.words);
+                break;
+            case "King":
+                System.arraycopy(geometry.kingAttacks(), offset, targets, 0, geometry.words);
+                break;
+            case "Pawn":
+                System.arraycopy(geometry.pawnAttacks(piece.isWhite ? Pieces.WHITE : Pieces.BLACK), offset, targets, 0, geometry.words);
+                int forward = piece.isWhite ? -1 : 1;
+                for (int step = 1; step <= 2; step++) {
+                    if (geometry.contains(piece.col, piece.row + step * forward)) {
+                        Geometry.add(targets, 0, geometry.square(piece.col, piece.row + step * forward));
+                    }
+                }
+                break;
+            case "Rook":
+                for (int dir = Bitboards.NORTH; dir <= Bitboards.WEST; dir++) {
+                    geometry.addRayAttacks(dir, sq, board.occupied, targets);
+                }
+                break;
+            case "Bishop":
+                for (int dir = Bitboards.NORTH_EAST; dir <= Bitboards.SOUTH_WEST; dir++) {
+                    geometry.addRayAttacks(dir, sq, board.occupied, targets);
+                }
+                break;
+            default:
+                for (int dir = 0; dir < 8; dir++) {
+                    geometry.addRayAttacks(dir, sq, board.occupied, targets);
+                }
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package main;
+
+import javax.swing.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Leva valores produzidos por outras threads (por exemplo, a busca) até a thread do Swing, limitando a frequência
+ * das atualizações.
+ * <p>
+ * Cada {@link #publish(Object)} apenas substitui o último valor guardado; no máximo uma entrega fica pendente na fila
+ * de eventos por vez, e duas entregas seguidas ficam separadas por pelo menos o intervalo configurado. Valores
+ * publicados entre duas entregas são descartados, e o consumidor recebe sempre o mais recente.
+ */
+public class CoalescingPublisher<T> {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ui-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<T> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final long intervalNanos;
+    private final Consumer<T> consumer;
+    private volatile long lastDelivery;
+
+    /**
+     * @param maxUpdatesPerSecond a quantidade máxima de entregas por segundo
+     * @param consumer            recebe os valores na thread do Swing
+     */
+    public CoalescingPublisher(int maxUpdatesPerSecond, Consumer<T> consumer) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxUpdatesPerSecond);
+        this.consumer = consumer;
+        this.lastDelivery = System.nanoTime() - intervalNanos;
+    }
+
+    /**
+     * Publica um novo valor; pode ser chamado de qualquer thread e nunca bloqueia
+     */
+    public void publish(T value) {
+        latest.set(value);
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = lastDelivery + intervalNanos - System.nanoTime();
+        if (delay <= 0) {
+            SwingUtilities.invokeLater(this::deliver);
+        } else {
+            SCHEDULER.schedule(() -> SwingUtilities.invokeLater(this::deliver), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Descarta o valor ainda não entregue
+     */
+    public void clear() {
+        latest.set(null);
+    }
+
+    private void deliver() {
+        lastDelivery = System.nanoTime();
+        scheduled.set(false);
+        T value = latest.getAndSet(null);
+        if (value != null) {
+            consumer.accept(value);
+        }
+    }
+}
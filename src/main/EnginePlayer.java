@@ -0,0 +1,206 @@
+package main;
+
+import engine.MoveGen;
+import engine.Moves;
+import engine.Position;
+import engine.Search;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import pieces.Piece;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Jogador automático que controla uma das cores do tabuleiro e pensa também no tempo do adversário (ponder).
+ * <p>
+ * Assim que faz o seu lance, o jogador começa a buscar, em segundo plano, a posição depois da resposta esperada
+ * (o melhor lance guardado na tabela de transposição para a posição do adversário). Quando o adversário joga:
+ * <ul>
+ *     <li>se ele fez a resposta esperada (ponder hit), a busca em andamento continua e apenas recebe um limite de tempo;</li>
+ *     <li>caso contrário, a busca é cancelada (o cancelamento é percebido pela busca no próximo nó) e uma nova busca
+ *     é iniciada, aproveitando as entradas já preenchidas na tabela de transposição.</li>
+ * </ul>
+ * Todos os métodos são chamados na thread do Swing e nenhum deles espera pela busca; os resultados voltam para a
+ * thread do Swing com {@link SwingUtilities#invokeLater(Runnable)}.
+ */
+public class EnginePlayer implements MoveListener {
+
+    public static final long DEFAULT_THINK_MILLIS = 1000;
+
+    private final Board board;
+    private final boolean playsWhite;
+    private final long thinkMillis;
+
+    private final TranspositionTable table = new TranspositionTable(64);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "engine-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Identifica a busca atual; resultados de buscas anteriores (canceladas) são descartados
+     */
+    private int generation;
+    private Search current;
+
+    private boolean pondering;
+    private int ponderMove = Moves.NONE;
+    private SearchResult ponderResult;
+
+    public EnginePlayer(Board board, boolean playsWhite, long thinkMillis) {
+        this.board = board;
+        this.playsWhite = playsWhite;
+        this.thinkMillis = thinkMillis;
+    }
+
+    /**
+     * Começa a jogar: se for a vez do jogador automático, inicia a busca do primeiro lance
+     */
+    public void start() {
+        if (isEngineTurn()) {
+            think(board.toPosition());
+        }
+    }
+
+    private boolean isEngineTurn() {
+        return board.isWhiteToMove() == playsWhite;
+    }
+
+    @Override
+    public void moveMade(Board board, Move move) {
+        if (!isEngineTurn()) {
+            // O lance foi do próprio jogador automático: passa a pensar no tempo do adversário
+            startPondering();
+            return;
+        }
+
+        if (pondering && move.toEngineMove() == ponderMove) {
+            pondering = false;
+            board.setInputEnabled(false);
+            if (ponderResult != null) {
+                play(ponderResult);
+            } else {
+                current.setTimeLimit(thinkMillis);
+            }
+            return;
+        }
+
+        cancel();
+        think(board.toPosition());
+    }
+
+    @Override
+    public void positionSet(Board board, Position position) {
+        cancel();
+        board.setInputEnabled(true);
+        if (isEngineTurn()) {
+            think(board.toPosition());
+        }
+    }
+
+    /**
+     * Uma posição apenas exibida (navegação no histórico) não é um lance da partida: a busca é cancelada e o jogador
+     * automático volta a pensar só quando um movimento for feito a partir dela
+     */
+    @Override
+    public void positionViewed(Board board, Position position) {
+        cancel();
+        board.setInputEnabled(true);
+    }
+
+    /**
+     * Cancela a busca em andamento sem esperar por ela
+     */
+    private void cancel() {
+        generation++;
+        if (current != null) {
+            current.stop();
+        }
+        pondering = false;
+        ponderMove = Moves.NONE;
+        ponderResult = null;
+    }
+
+    private void think(Position position) {
+        board.setInputEnabled(false);
+        submit(position, thinkMillis);
+    }
+
+    /**
+     * Faz, em uma cópia da posição, o lance esperado do adversário e busca a posição resultante sem limite de tempo
+     */
+    private void startPondering() {
+        board.setInputEnabled(true);
+        Position position = board.toPosition();
+        int expected = expectedReply(position);
+        if (expected == Moves.NONE) {
+            return;
+        }
+        position.make(expected);
+        pondering = true;
+        ponderMove = expected;
+        ponderResult = null;
+        submit(position, 0);
+    }
+
+    /**
+     * O lance esperado do adversário é o melhor lance guardado na tabela de transposição para a posição atual
+     */
+    private int expectedReply(Position position) {
+        long entry = table.probe(position.hash());
+        int move = entry == 0 ? Moves.NONE : TranspositionTable.move(entry);
+        return move != Moves.NONE && MoveGen.isLegal(position, move) ? move : Moves.NONE;
+    }
+
+    private void submit(Position position, long timeMillis) {
+        int searchGeneration = ++generation;
+        Search search = new Search(table);
+        current = search;
+        executor.submit(() -> {
+            SearchResult result = search.search(position, Search.MAX_PLY, 0, timeMillis);
+            SwingUtilities.invokeLater(() -> searchFinished(searchGeneration, result));
+        });
+    }
+
+    private void searchFinished(int searchGeneration, SearchResult result) {
+        if (searchGeneration != generation) {
+            return;
+        }
+        if (pondering) {
+            // A busca no tempo do adversário terminou antes do lance dele; o resultado fica guardado para um ponder hit
+            ponderResult = result;
+            return;
+        }
+        play(result);
+    }
+
+    /**
+     * Aplica no tabuleiro o lance encontrado pela busca, validando-o com as regras do próprio tabuleiro
+     */
+    private void play(SearchResult result) {
+        if (result == null || result.bestMove == Moves.NONE) {
+            board.setInputEnabled(true);
+            return;
+        }
+        int from = Moves.from(result.bestMove);
+        int to = Moves.to(result.bestMove);
+        Piece piece = board.getPiece(from & 7, from >>> 3);
+        if (piece == null) {
+            board.setInputEnabled(true);
+            return;
+        }
+
+        Move move = new Move(board, piece, to & 7, to >>> 3);
+        if (board.isValidMove(move)) {
+            System.out.println("Motor: " + Moves.toString(result.bestMove) + " (" + result + ")");
+            board.makeMove(move);
+        } else {
+            System.out.println("Lance do motor recusado pelo tabuleiro: " + Moves.toString(result.bestMove));
+            board.setInputEnabled(true);
+        }
+        board.requestRender();
+    }
+}
@@ -0,0 +1,76 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Mede o tempo de cada quadro desenhado e a memória alocada durante o desenho, para acompanhar o custo da
+ * renderização durante arrastos e animações.
+ * <p>
+ * As medições só são feitas se a propriedade "chess.render.stats" estiver definida como "true"; a cada
+ * {@link #REPORT_INTERVAL} quadros um resumo é impresso no console.
+ */
+public class FrameStats {
+
+    public static final int REPORT_INTERVAL = 120;
+
+    private static final boolean ENABLED = Boolean.getBoolean("chess.render.stats");
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String name;
+
+    private int frames;
+    private long totalNanos;
+    private long maxNanos;
+    private long allocatedBytes;
+    private long startAllocated;
+
+    public FrameStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Marca o início de um quadro
+     *
+     * @return o instante inicial, a ser passado para {@link #end(long)}
+     */
+    public long begin() {
+        if (!ENABLED) {
+            return 0;
+        }
+        startAllocated = allocatedBytes();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marca o fim de um quadro iniciado com {@link #begin()}
+     */
+    public void end(long start) {
+        if (!ENABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        totalNanos += elapsed;
+        maxNanos = Math.max(maxNanos, elapsed);
+        allocatedBytes += Math.max(0, allocatedBytes() - startAllocated);
+
+        if (++frames == REPORT_INTERVAL) {
+            System.out.printf("[render %s] %d quadros, média %.3f ms, máximo %.3f ms, %d bytes alocados por quadro%n",
+                    name, frames, totalNanos / 1e6 / frames, maxNanos / 1e6, allocatedBytes / frames);
+            frames = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+            allocatedBytes = 0;
+        }
+    }
+
+    /**
+     * Bytes alocados até agora pela thread atual, quando a JVM oferece essa medição
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,395 @@
+package main;
+
+import engine.Fen;
+import engine.Pieces;
+import engine.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Diário binário, somente de acréscimo, com todos os movimentos de uma partida, para que ela possa ser retomada
+ * depois de uma queda do processo.
+ * <p>
+ * Cada movimento ocupa 2 bytes no arquivo. O movimento é apenas copiado para um vetor em memória na thread que o fez;
+ * a escrita no disco e a sincronização ({@code fsync}) são feitas pelo {@link JournalWriter}, que junta em uma única
+ * sincronização todos os movimentos acumulados no intervalo (group commit), de todas as partidas abertas.
+ * <p>
+ * A cada {@link #CHECKPOINT_INTERVAL} movimentos é gravado, em um arquivo separado, um ponto de controle com a posição
+ * completa e o deslocamento do diário correspondente, de modo que a recuperação só precisa refazer os movimentos
+ * gravados depois dele.
+ */
+public class GameJournal implements MoveListener, AutoCloseable {
+
+    public static final int CHECKPOINT_INTERVAL = 256;
+
+    static final byte MOVE_TAG = (byte) 0x80;
+    static final byte POSITION_TAG = 0x40;
+    private static final int POSITION_RECORD_SIZE = 1 + 64 + 1;
+
+    private static final int CHECKPOINT_MAGIC = 0x434B5054; // "CKPT"
+    private static final int CHECKPOINT_SIZE = 4 + 8 + 4 + 64 + 1 + 8;
+
+    private final Path file;
+    private final Path checkpointFile;
+    private final FileChannel channel;
+    private final JournalWriter writer;
+
+    /**
+     * Movimentos ainda não escritos, trocados pelo escritor a cada lote
+     */
+    private int[] pending = new int[64];
+    private int pendingCount;
+    private Position pendingReset;
+
+    /**
+     * Posição no final do que já foi registrado, mantida pela thread que faz os movimentos, e a posição exibida por
+     * uma navegação no histórico (ou null), usadas para saber se um movimento parte de outra posição
+     */
+    private final Position head = new Position();
+    private Position viewed;
+
+    /**
+     * Estado mantido apenas pela thread do escritor, usado para gravar os pontos de controle
+     */
+    private final Position mirror = new Position();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private int[] drained = new int[64];
+    private int movesSinceCheckpoint;
+    private int ply;
+    private boolean dirty;
+    private final Object ioLock = new Object();
+
+    /**
+     * Abre (ou cria) um diário, posicionando a escrita no final do conteúdo válido
+     *
+     * @param file    o arquivo do diário
+     * @param current a posição atual da partida, que deve corresponder ao final do diário
+     * @param ply     a quantidade de meios-lances já jogados na posição atual
+     */
+    public GameJournal(Path file, Position current, int ply, JournalWriter writer) throws IOException {
+        this.file = file;
+        this.checkpointFile = checkpointPath(file);
+        this.writer = writer;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mirror.copyFrom(current);
+        this.head.copyFrom(current);
+        this.ply = ply;
+
+        long end = validLength(channel);
+        channel.truncate(end);
+        channel.position(end);
+        if (end == 0) {
+            // Diário novo: começa com a posição inicial da partida, e um ponto de controle antigo não vale mais
+            Files.deleteIfExists(checkpointFile);
+            synchronized (this) {
+                pendingReset = copyOf(current);
+            }
+        }
+        writer.register(this);
+    }
+
+    /**
+     * Abre um diário usando o escritor compartilhado padrão
+     */
+    public static GameJournal open(Path file, Position current, int ply) throws IOException {
+        return new GameJournal(file, current, ply, JournalWriter.shared());
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public void moveMade(Board board, Move move) {
+        if (viewed != null && viewed.hash() != head.hash()) {
+            // O movimento foi feito em um ponto anterior do histórico: a partida continua a partir dele
+            reset(viewed);
+        }
+        viewed = null;
+        append(move.toEngineMove());
+    }
+
+    @Override
+    public void positionSet(Board board, Position position) {
+        viewed = null;
+        reset(position);
+    }
+
+    /**
+     * Navegar no histórico não altera a partida gravada; a posição exibida só é registrada se um movimento for feito
+     * a partir dela
+     */
+    @Override
+    public void positionViewed(Board board, Position position) {
+        viewed = copyOf(position);
+    }
+
+    /**
+     * Acrescenta um movimento ao diário; retorna imediatamente, sem esperar pela escrita no disco
+     */
+    public synchronized void append(int move) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        pending[pendingCount++] = move;
+        head.make(move);
+    }
+
+    /**
+     * Registra que a partida passou para uma posição arbitrária (por exemplo, ao voltar no histórico)
+     */
+    public synchronized void reset(Position position) {
+        pendingCount = 0;
+        pendingReset = copyOf(position);
+        head.copyFrom(position);
+    }
+
+    /**
+     * Escreve no arquivo os registros pendentes e sincroniza o arquivo com o disco, se algo foi escrito.
+     * Chamado periodicamente pelo {@link JournalWriter}, de modo que uma única sincronização cobre todos os
+     * movimentos feitos desde a chamada anterior
+     */
+    void commit() throws IOException {
+        synchronized (ioLock) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            if (drain()) {
+                dirty = true;
+            }
+            if (dirty) {
+                sync();
+                dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Escreve os registros pendentes no arquivo, sem sincronizar
+     *
+     * @return verdadeiro se algo foi escrito
+     */
+    private boolean drain() throws IOException {
+        Position reset;
+        int count;
+        synchronized (this) {
+            reset = pendingReset;
+            pendingReset = null;
+            count = pendingCount;
+            int[] swap = drained;
+            drained = pending;
+            pending = swap;
+            pendingCount = 0;
+        }
+        if (reset == null && count == 0) {
+            return false;
+        }
+
+        if (reset != null) {
+            mirror.copyFrom(reset);
+            ply = 0;
+            buffer.put(POSITION_TAG);
+            writeSquares(buffer, mirror);
+            flushIfFull();
+        }
+        for (int i = 0; i < count; i++) {
+            int move = drained[i];
+            buffer.put((byte) (MOVE_TAG | (move >>> 8)));
+            buffer.put((byte) move);
+            mirror.make(move);
+            ply++;
+            movesSinceCheckpoint++;
+            flushIfFull();
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return true;
+    }
+
+    private void flushIfFull() throws IOException {
+        if (buffer.remaining() < POSITION_RECORD_SIZE) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Sincroniza o arquivo com o disco e, se for a hora, grava um novo ponto de controle
+     */
+    private void sync() throws IOException {
+        channel.force(false);
+        if (movesSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+            writeCheckpoint(channel.position());
+            movesSinceCheckpoint = 0;
+        }
+    }
+
+    /**
+     * Grava o ponto de controle em um arquivo temporário e o move sobre o anterior, para nunca deixar um ponto de controle pela metade
+     */
+    private void writeCheckpoint(long offset) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(CHECKPOINT_SIZE);
+        data.putInt(CHECKPOINT_MAGIC).putLong(offset).putInt(ply);
+        writeSquares(data, mirror);
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, data.position());
+        data.putLong(crc.getValue());
+        data.flip();
+
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+            out.force(true);
+        }
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Escreve o que estiver pendente, sincroniza com o disco e fecha o arquivo
+     */
+    @Override
+    public void close() throws IOException {
+        writer.unregister(this);
+        synchronized (ioLock) {
+            commit();
+            channel.close();
+        }
+    }
+
+    /**
+     * Resultado da recuperação de um diário
+     */
+    public static final class Recovered {
+        public final Position position;
+        public final int ply;
+
+        Recovered(Position position, int ply) {
+            this.position = position;
+            this.ply = ply;
+        }
+    }
+
+    /**
+     * Reconstrói a partida gravada no diário, partindo do último ponto de controle válido e refazendo os movimentos seguintes
+     *
+     * @return a posição e a quantidade de meios-lances, ou {@code null} se o diário não existir ou estiver vazio
+     */
+    public static Recovered recover(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return null;
+        }
+        Position position = Fen.parse(Fen.START);
+        int ply = 0;
+        long start = 0;
+
+        ByteBuffer checkpoint = readCheckpoint(checkpointPath(file));
+        if (checkpoint != null && checkpoint.getLong(4) <= Files.size(file)) {
+            start = checkpoint.getLong(4);
+            ply = checkpoint.getInt(12);
+            checkpoint.position(16);
+            readSquares(checkpoint, position);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size() - start;
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            while (data.hasRemaining()) {
+                byte tag = data.get(data.position());
+                if ((tag & MOVE_TAG) != 0 && data.remaining() >= 2) {
+                    int move = ((data.get() & 0x0F) << 8) | (data.get() & 0xFF);
+                    position.make(move);
+                    ply++;
+                } else if (tag == POSITION_TAG && data.remaining() >= POSITION_RECORD_SIZE) {
+                    data.get();
+                    readSquares(data, position);
+                    ply = 0;
+                } else {
+                    // Final do conteúdo válido (registro incompleto de uma escrita interrompida)
+                    break;
+                }
+            }
+        }
+        return new Recovered(position, ply);
+    }
+
+    /**
+     * Calcula até onde o diário contém registros completos, para descartar um final escrito pela metade
+     */
+    private static long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        while (data.hasRemaining()) {
+            byte tag = data.get(data.position());
+            int length = (tag & MOVE_TAG) != 0 ? 2 : tag == POSITION_TAG ? POSITION_RECORD_SIZE : 0;
+            if (length == 0 || data.remaining() < length) {
+                break;
+            }
+            data.position(data.position() + length);
+        }
+        return data.position();
+    }
+
+    private static ByteBuffer readCheckpoint(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) != CHECKPOINT_SIZE) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, CHECKPOINT_SIZE - 8);
+        if (data.getInt(0) != CHECKPOINT_MAGIC || data.getLong(CHECKPOINT_SIZE - 8) != crc.getValue()) {
+            return null;
+        }
+        return data;
+    }
+
+    static Path checkpointPath(Path file) {
+        return file.resolveSibling(file.getFileName() + ".ckpt");
+    }
+
+    /**
+     * Escreve as 64 casas (código da peça mais um, ou zero se vazia) seguidas do lado que tem a vez
+     */
+    private static void writeSquares(ByteBuffer out, Position position) {
+        for (int sq = 0; sq < 64; sq++) {
+            out.put((byte) (position.pieceAt(sq) + 1));
+        }
+        out.put((byte) position.sideToMove());
+    }
+
+    private static void readSquares(ByteBuffer in, Position position) {
+        position.clear();
+        for (int sq = 0; sq < 64; sq++) {
+            int code = in.get() - 1;
+            if (code != Pieces.EMPTY) {
+                position.put(sq, code);
+            }
+        }
+        position.setSideToMove(in.get());
+    }
+
+    private static Position copyOf(Position position) {
+        Position copy = new Position();
+        copy.copyFrom(position);
+        return copy;
+    }
+}
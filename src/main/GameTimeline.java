@@ -0,0 +1,151 @@
+package main;
+
+import engine.Position;
+
+import java.util.Arrays;
+
+/**
+ * Histórico navegável de uma partida, que permite ir para qualquer meio-lance instantaneamente.
+ * <p>
+ * Os movimentos são guardados em um vetor de inteiros e, a cada {@link #KEYFRAME_INTERVAL} meios-lances, uma posição
+ * completa (quadro-chave) é gravada de forma compacta com {@link Position#writeTo(long[], int)}. Para ir a um meio-lance
+ * qualquer basta restaurar o quadro-chave anterior e refazer no máximo {@code KEYFRAME_INTERVAL - 1} movimentos,
+ * em vez de refazer a partida inteira desde a posição inicial.
+ */
+public class GameTimeline implements MoveListener {
+
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    private final Board board;
+
+    private int[] moves = new int[256];
+    private int length;
+    private long[] keyframes = new long[16 * Position.PACKED_WORDS];
+
+    /**
+     * Meio-lance exibido atualmente no tabuleiro
+     */
+    private int current;
+
+    /**
+     * Posição no final do histórico, atualizada a cada movimento para gravar os quadros-chave
+     */
+    private final Position head = new Position();
+
+    /**
+     * Posição reutilizada em cada navegação, para não alocar memória
+     */
+    private final Position cursor = new Position();
+
+    private Runnable changeListener = () -> { };
+
+    public GameTimeline(Board board) {
+        this.board = board;
+        start(board.toPosition());
+    }
+
+    /**
+     * Recomeça o histórico a partir da posição dada
+     */
+    public void start(Position position) {
+        head.copyFrom(position);
+        length = 0;
+        current = 0;
+        head.writeTo(keyframes, 0);
+        changeListener.run();
+    }
+
+    /**
+     * Carrega de uma vez uma partida inteira (por exemplo, importada de um arquivo), gerando os quadros-chave
+     */
+    public void load(Position start, int[] gameMoves) {
+        start(start);
+        for (int move : gameMoves) {
+            append(move);
+        }
+        seek(length);
+    }
+
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int current() {
+        return current;
+    }
+
+    @Override
+    public void moveMade(Board board, Move move) {
+        if (current < length) {
+            // Um movimento feito no meio do histórico descarta os movimentos seguintes
+            seekHead(current);
+        }
+        append(move.toEngineMove());
+        current = length;
+        changeListener.run();
+    }
+
+    @Override
+    public void positionSet(Board board, Position position) {
+        start(position);
+    }
+
+    private void append(int move) {
+        if (length == moves.length) {
+            moves = Arrays.copyOf(moves, length * 2);
+        }
+        moves[length++] = move;
+        head.make(move);
+
+        if (length % KEYFRAME_INTERVAL == 0) {
+            int offset = (length / KEYFRAME_INTERVAL) * Position.PACKED_WORDS;
+            if (offset + Position.PACKED_WORDS > keyframes.length) {
+                keyframes = Arrays.copyOf(keyframes, keyframes.length * 2);
+            }
+            head.writeTo(keyframes, offset);
+        }
+    }
+
+    /**
+     * Reconstrói na posição dada o meio-lance pedido, a partir do quadro-chave anterior
+     */
+    private void restore(int ply, Position target) {
+        int keyframe = ply / KEYFRAME_INTERVAL;
+        target.readFrom(keyframes, keyframe * Position.PACKED_WORDS);
+        for (int i = keyframe * KEYFRAME_INTERVAL; i < ply; i++) {
+            target.make(moves[i]);
+        }
+    }
+
+    /**
+     * Descarta os movimentos depois do meio-lance dado, voltando o final do histórico para ele
+     */
+    private void seekHead(int ply) {
+        restore(ply, head);
+        length = ply;
+    }
+
+    /**
+     * Exibe no tabuleiro a posição do meio-lance dado
+     */
+    public void seek(int ply) {
+        ply = Math.max(0, Math.min(length, ply));
+        restore(ply, cursor);
+        current = ply;
+
+        board.showPosition(cursor);
+        changeListener.run();
+    }
+
+    public void back() {
+        seek(current - 1);
+    }
+
+    public void forward() {
+        seek(current + 1);
+    }
+}
@@ -0,0 +1,144 @@
+package main;
+
+import analysis.GameTree;
+import engine.Fen;
+import engine.Moves;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Painel para navegar em uma {@link GameTree} ao lado de um tabuleiro.
+ * <p>
+ * A lista mostra os filhos do nó atual com o lance, a avaliação e as visitas; um clique duplo desce para o filho
+ * escolhido e o tabuleiro passa a exibir a posição correspondente.
+ */
+public class GameTreeBrowser extends JPanel {
+
+    private final Board board;
+    private GameTree tree;
+    private int node = GameTree.ROOT;
+
+    private final DefaultListModel<String> children = new DefaultListModel<>();
+    private final JList<String> childList = new JList<>(children);
+    private final JLabel status = new JLabel();
+
+    public GameTreeBrowser(Board board, GameTree initialTree) {
+        this.board = board;
+        this.tree = initialTree;
+
+        setLayout(new BorderLayout());
+        setPreferredSize(new Dimension(260, board.rows * board.tileSize));
+
+        childList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = childList.getSelectedIndex();
+                if (e.getClickCount() == 2 && index >= 0) {
+                    show(tree.child(node, index));
+                }
+            }
+        });
+        add(new JScrollPane(childList), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new GridLayout(0, 2));
+        buttons.add(button("Voltar", () -> {
+            if (tree.parent(node) != GameTree.NO_NODE) {
+                show(tree.parent(node));
+            }
+        }));
+        buttons.add(button("Raiz", () -> show(GameTree.ROOT)));
+        buttons.add(button("Expandir", () -> {
+            tree.expandAll(node, 1);
+            show(node);
+        }));
+        buttons.add(button("Expandir 3", () -> {
+            tree.expandAll(node, 3);
+            tree.propagate();
+            show(node);
+        }));
+        buttons.add(button("Podar", () -> {
+            tree.prune(4, 0);
+            show(GameTree.ROOT);
+        }));
+        buttons.add(button("Salvar", this::save));
+        buttons.add(button("Abrir", this::open));
+
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(buttons, BorderLayout.CENTER);
+        south.add(status, BorderLayout.SOUTH);
+        add(south, BorderLayout.SOUTH);
+
+        show(GameTree.ROOT);
+    }
+
+    private JButton button(String text, Runnable action) {
+        JButton button = new JButton(text);
+        button.addActionListener(e -> action.run());
+        return button;
+    }
+
+    /**
+     * Torna o nó dado o nó atual, atualizando a lista de filhos e o tabuleiro. Navegar não conta como visita, para
+     * não alterar a ordem usada pela poda
+     */
+    private void show(int node) {
+        this.node = node;
+
+        children.clear();
+        for (int i = 0; i < tree.childCount(node); i++) {
+            int child = tree.child(node, i);
+            children.addElement(String.format("%s   %+d   (%d)", Moves.toString(tree.move(child)), tree.eval(child), tree.visits(child)));
+        }
+        status.setText("Nós: " + tree.size() + "   profundidade: " + tree.depthOf(node));
+        board.setPosition(tree.positionOf(node));
+    }
+
+    private void save() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                tree.save(chooser.getSelectedFile().toPath());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage());
+            }
+        }
+    }
+
+    private void open() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                tree = GameTree.load(chooser.getSelectedFile().toPath());
+                show(GameTree.ROOT);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Abre uma janela com o tabuleiro e o navegador; recebe opcionalmente o caminho de uma árvore salva
+     */
+    public static void main(String[] args) throws IOException {
+        GameTree tree = args.length > 0 ? GameTree.load(Paths.get(args[0])) : new GameTree(Fen.START);
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame();
+            frame.getContentPane().setBackground(Color.BLACK);
+            frame.setLayout(new GridBagLayout());
+            frame.setMinimumSize(new Dimension(1000, 1000));
+            frame.setLocationRelativeTo(null);
+
+            Board board = new Board();
+            frame.add(board);
+            frame.add(new GameTreeBrowser(board, tree));
+
+            frame.setVisible(true);
+        });
+    }
+}
@@ -31,27 +31,32 @@ public class Input extends MouseAdapter {
      */
     @Override
     public void mousePressed(MouseEvent e) {
+        if (!board.isInputEnabled()) {
+            return;
+        }
+
         int col = e.getX() / board.tileSize;
         int row = e.getY() / board.tileSize;
 
         Piece pieceXY = board.getPiece(col, row);
         if (pieceXY != null) {
-            board.selectedPiece = pieceXY;
+            board.select(pieceXY);
+            board.requestRender();
         }
     }
 
     /**
-     * Permite o movimento de "arrastar" uma peça
+     * Permite o movimento de "arrastar" uma peça. O tabuleiro publica a nova posição do sprite para a thread de
+     * renderização, então a peça em si não é alterada
      */
     @Override
     public void mouseDragged(MouseEvent e) {
 
-        if (board.selectedPiece != null) {
-            board.selectedPiece.xPos = e.getX() - board.tileSize / 2;
-            board.selectedPiece.yPos = e.getY() - board.tileSize / 2;
-
-            board.repaint();
+        if (board.selectedPiece == null) {
+            return;
         }
+        board.dragSelected(e.getX() - board.tileSize / 2, e.getY() - board.tileSize / 2);
+        board.requestRender();
 
     }
 
@@ -64,20 +69,17 @@ public class Input extends MouseAdapter {
         int col = e.getX() / board.tileSize;
         int row = e.getY() / board.tileSize;
 
-        if (board.selectedPiece != null) {
-            Move move = new Move(board, board.selectedPiece, col, row);
+        Piece selected = board.selectedPiece;
+        board.clearSelection();
+        if (selected != null) {
+            Move move = new Move(board, selected, col, row);
 
             if (board.isValidMove(move)) {
                 board.makeMove(move);
-            } else {
-                board.selectedPiece.xPos = board.selectedPiece.col * board.tileSize;
-                board.selectedPiece.yPos = board.selectedPiece.row * board.tileSize;
-
             }
         }
 
-        board.selectedPiece = null;
-        board.repaint();
+        board.requestRender();
 
     }
 
@@ -0,0 +1,63 @@
+package main;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread única que escreve e sincroniza com o disco os diários de todas as partidas abertas.
+ * <p>
+ * A cada intervalo, todos os movimentos acumulados em cada {@link GameJournal} são escritos de uma vez e o arquivo
+ * é sincronizado uma única vez (group commit). Assim o custo do {@code fsync} é dividido entre muitos movimentos
+ * e nunca é pago pela thread que fez o movimento.
+ */
+public class JournalWriter {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 10;
+
+    private static JournalWriter shared;
+
+    private final List<GameJournal> journals = new CopyOnWriteArrayList<>();
+    private final long intervalNanos;
+
+    public JournalWriter(long intervalMillis) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+
+        Thread thread = new Thread(this::run, "journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Retorna o escritor compartilhado do processo, criando-o na primeira chamada
+     */
+    public static synchronized JournalWriter shared() {
+        if (shared == null) {
+            shared = new JournalWriter(DEFAULT_INTERVAL_MILLIS);
+        }
+        return shared;
+    }
+
+    void register(GameJournal journal) {
+        journals.add(journal);
+    }
+
+    void unregister(GameJournal journal) {
+        journals.remove(journal);
+    }
+
+    private void run() {
+        while (true) {
+            LockSupport.parkNanos(intervalNanos);
+            for (GameJournal journal : journals) {
+                try {
+                    journal.commit();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package main;
 
+import engine.Geometry;
+import net.BroadcastServer;
+
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Match {
 
@@ -18,13 +24,138 @@ public class Match {
         frame.setMinimumSize(new Dimension(1000, 1000));
         frame.setLocationRelativeTo(null);
 
-        Board board = new Board();
-        frame.add(board);
+        /**
+         * Com a propriedade "chess.variant=capablanca" (10x8) ou "chess.variant=grand" (10x10) o jogo usa um tabuleiro
+         * maior; o motor de análise, o diário, a transmissão e a linha do tempo só trabalham com o tabuleiro 8x8
+         */
+        Geometry geometry = variantGeometry(System.getProperty("chess.variant", "standard"));
+        Board board = new Board(geometry);
+        if (geometry != Geometry.STANDARD) {
+            frame.add(board);
+            frame.setVisible(true);
+            System.out.println("Partida inicializada no tabuleiro " + geometry + ".");
+            return;
+        }
+        openJournal(board);
+
+        GameTimeline timeline = new GameTimeline(board);
+        board.addMoveListener(timeline);
+
+        GridBagConstraints constraints = new GridBagConstraints();
+        constraints.gridx = 0;
+        constraints.gridy = 0;
+
+        /**
+         * Com a propriedade "chess.render=active" o tabuleiro é desenhado por uma thread própria em vez do repaint do Swing
+         */
+        ActiveRenderer renderer = null;
+        if ("active".equals(System.getProperty("chess.render"))) {
+            renderer = new ActiveRenderer(board, ActiveRenderer.DEFAULT_FPS);
+            frame.add(renderer, constraints);
+        } else {
+            frame.add(board, constraints);
+        }
+
+        /**
+         * Com a propriedade "chess.analysis=true" um painel com as melhores variantes da posição fica ao lado do tabuleiro
+         */
+        if (Boolean.getBoolean("chess.analysis")) {
+            AnalysisPanel analysis = new AnalysisPanel(board);
+            board.addMoveListener(analysis);
+            constraints.gridx = 1;
+            constraints.fill = GridBagConstraints.VERTICAL;
+            frame.add(analysis, constraints);
+            constraints.gridx = 0;
+        }
+
+        constraints.gridy = 1;
+        constraints.fill = GridBagConstraints.HORIZONTAL;
+        frame.add(new TimelinePanel(timeline), constraints);
 
         frame.setVisible(true);
+        if (renderer != null) {
+            renderer.start();
+        }
+
+        /**
+         * Com a propriedade "chess.engine=white" ou "chess.engine=black" uma das cores é jogada pelo computador
+         */
+        String engineColor = System.getProperty("chess.engine");
+        if (engineColor != null) {
+            EnginePlayer engine = new EnginePlayer(board, engineColor.equals("white"),
+                    Long.getLong("chess.engine.time", EnginePlayer.DEFAULT_THINK_MILLIS));
+            board.addMoveListener(engine);
+            engine.start();
+        }
+
+        openBroadcast(board);
 
         System.out.println("Partida inicializada.");
 
 
     }
+
+    private static Geometry variantGeometry(String variant) {
+        switch (variant) {
+            case "standard":
+                return Geometry.STANDARD;
+            case "capablanca":
+                return Geometry.of(10, 8);
+            case "grand":
+                return Geometry.of(10, 10);
+            default:
+                throw new IllegalArgumentException("Variante desconhecida: " + variant);
+        }
+    }
+
+    /**
+     * Se a propriedade "chess.broadcast.port" estiver definida, transmite a partida para os espectadores conectados
+     * nessa porta.
+     */
+    private void openBroadcast(Board board) {
+        Integer port = Integer.getInteger("chess.broadcast.port");
+        if (port == null) {
+            return;
+        }
+        try {
+            BroadcastServer broadcast = BroadcastServer.start(port, board.snapshot());
+            board.addMoveListener(broadcast);
+            System.out.println("Transmitindo a partida na porta " + broadcast.port() + ".");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Se a propriedade "chess.journal" estiver definida, retoma a partida gravada nesse diário (se existir)
+     * e passa a gravar nele todos os movimentos feitos no tabuleiro.
+     */
+    private void openJournal(Board board) {
+        String property = System.getProperty("chess.journal");
+        if (property == null) {
+            return;
+        }
+        Path path = Paths.get(property);
+        try {
+            GameJournal.Recovered recovered = GameJournal.recover(path);
+            int ply = 0;
+            if (recovered != null) {
+                board.setPosition(recovered.position);
+                ply = recovered.ply;
+                System.out.println("Partida retomada do diário (" + ply + " meios-lances).");
+            }
+
+            GameJournal journal = GameJournal.open(path, board.toPosition(), ply);
+            board.addMoveListener(journal);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package main;
 
+import engine.Bitboards;
+import engine.Geometry;
+import engine.Moves;
 import pieces.Piece;
 
 import java.time.Period;
@@ -45,4 +48,19 @@ public class Move {
 
     }
 
+    /**
+     * Converte o movimento para a codificação compacta usada pelo motor de análise (ver {@link Moves})
+     */
+    public int toEngineMove() {
+        return Moves.of(Bitboards.square(oldCol, oldRow), Bitboards.square(newCol, newRow));
+    }
+
+    /**
+     * Converte o movimento para a codificação larga de {@link Moves#wide(int, int)}, usada nos tabuleiros de qualquer
+     * geometria
+     */
+    public int toWideMove(Geometry geometry) {
+        return Moves.wide(geometry.square(oldCol, oldRow), geometry.square(newCol, newRow));
+    }
+
 }
@@ -0,0 +1,28 @@
+package main;
+
+import engine.Position;
+
+/**
+ * Interface para quem precisa ser avisado dos movimentos feitos em um {@link Board}, como o diário da partida
+ */
+public interface MoveListener {
+
+    /**
+     * Chamado depois que o movimento foi aplicado ao tabuleiro, na mesma thread que chamou {@link Board#makeMove(Move)}
+     */
+    void moveMade(Board board, Move move);
+
+    /**
+     * Chamado quando a partida passa para uma posição arbitrária, sem um movimento (ver {@link Board#setPosition(Position)})
+     */
+    default void positionSet(Board board, Position position) {
+    }
+
+    /**
+     * Chamado quando o tabuleiro apenas exibe outra posição, sem alterar a partida, como ao navegar no histórico (ver
+     * {@link Board#showPosition(Position)}). Quem grava a partida deve ignorar esta chamada; se um movimento for feito
+     * em seguida, ele parte da posição exibida
+     */
+    default void positionViewed(Board board, Position position) {
+    }
+}
@@ -0,0 +1,347 @@
+package main;
+
+import engine.MoveGen;
+import engine.Pieces;
+import engine.Position;
+import engine.PositionSnapshot;
+import net.SpectatorClient;
+import pieces.SpriteAtlas;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Visão de simultânea: mostra dezenas de partidas ao vivo em uma única janela, em uma grade de tabuleiros pequenos.
+ * <p>
+ * Os tabuleiros não são {@link Board}s: cada partida é apenas o último {@link PositionSnapshot} recebido, que qualquer
+ * thread pode entregar com {@link #update(int, PositionSnapshot)} sem bloquear. As atualizações são levadas para a
+ * thread do Swing por um {@link CoalescingPublisher}, que junta as que chegam em rajada. Ali, cada partida compara o
+ * retrato novo com o último desenhado e redesenha só as casas que mudaram (normalmente duas) em uma imagem com a
+ * grade inteira, usando o fundo e o atlas de sprites compartilhados por todos os tabuleiros. Só os retângulos dessas
+ * casas são pedidos ao Swing, e pintar a janela é copiar o trecho correspondente da imagem.
+ */
+public class SimulView extends JComponent {
+
+    public static final int DEFAULT_TILE_SIZE = 32;
+    public static final int MAX_UPDATES_PER_SECOND = 30;
+
+    /**
+     * Quantidade de meios-lances depois da qual uma partida aleatória é encerrada e recomeçada
+     */
+    private static final int MAX_RANDOM_PLIES = 200;
+
+    private static final int GAP = 8;
+    private static final int CAPTION = 16;
+    private static final Color BACKGROUND_COLOR = new Color(24, 24, 24);
+    private static final Color CAPTION_COLOR = new Color(200, 200, 200);
+    private static final Color GAME_OVER_COLOR = new Color(200, 60, 60);
+
+    private final int games;
+    private final int columns;
+    private final int tileSize;
+    private final SpriteAtlas atlas;
+
+    /**
+     * Último retrato recebido de cada partida, escrito por qualquer thread
+     */
+    private final AtomicReferenceArray<PositionSnapshot> latest;
+
+    /**
+     * Último retrato desenhado de cada partida; só é usado pela thread do Swing
+     */
+    private final PositionSnapshot[] drawn;
+
+    private final CoalescingPublisher<Boolean> publisher;
+
+    /**
+     * Imagem com a grade inteira, atualizada casa a casa; só é usada pela thread do Swing
+     */
+    private BufferedImage frame;
+    private long drawnSquares;
+
+    /**
+     * @param games    a quantidade de partidas
+     * @param columns  a quantidade de tabuleiros por linha da grade
+     * @param tileSize o tamanho de cada casa em pixels
+     */
+    public SimulView(int games, int columns, int tileSize) {
+        this.games = games;
+        this.columns = columns;
+        this.tileSize = tileSize;
+        this.atlas = SpriteAtlas.forTileSize(tileSize);
+        this.latest = new AtomicReferenceArray<>(games);
+        this.drawn = new PositionSnapshot[games];
+        this.publisher = new CoalescingPublisher<>(MAX_UPDATES_PER_SECOND, ignored -> flush());
+
+        int gridRows = (games + columns - 1) / columns;
+        setPreferredSize(new Dimension(GAP + columns * (cellWidth() + GAP), GAP + gridRows * (cellHeight() + GAP)));
+        setOpaque(true);
+    }
+
+    /**
+     * Entrega a posição atual de uma partida; pode ser chamado de qualquer thread e nunca bloqueia
+     */
+    public void update(int game, PositionSnapshot snapshot) {
+        latest.set(game, snapshot);
+        publisher.publish(Boolean.TRUE);
+    }
+
+    public int games() {
+        return games;
+    }
+
+    /**
+     * Quantidade de casas redesenhadas desde a criação da visão, para acompanhar o custo das atualizações
+     */
+    public long drawnSquares() {
+        return drawnSquares;
+    }
+
+    private int cellWidth() {
+        return 8 * tileSize;
+    }
+
+    private int cellHeight() {
+        return CAPTION + 8 * tileSize;
+    }
+
+    private int boardX(int game) {
+        return GAP + (game % columns) * (cellWidth() + GAP);
+    }
+
+    private int boardY(int game) {
+        return GAP + (game / columns) * (cellHeight() + GAP) + CAPTION;
+    }
+
+    /**
+     * Desenha na imagem da grade as casas que mudaram desde o último desenho e pede ao Swing que pinte só elas
+     */
+    void flush() {
+        Graphics2D g2d = frame().createGraphics();
+        for (int game = 0; game < games; game++) {
+            PositionSnapshot snapshot = latest.get(game);
+            PositionSnapshot previous = drawn[game];
+            if (snapshot == null || snapshot == previous) {
+                continue;
+            }
+            long changed = previous == null ? -1L : previous.difference(snapshot);
+            if (previous == null || previous.isGameOver() != snapshot.isGameOver()) {
+                drawCaption(g2d, game, snapshot);
+            }
+            drawn[game] = snapshot;
+            if (changed == 0) {
+                continue;
+            }
+
+            int x = boardX(game);
+            int y = boardY(game);
+            int minCol = 7, maxCol = 0, minRow = 7, maxRow = 0;
+            for (long bb = changed; bb != 0; bb &= bb - 1) {
+                int sq = Long.numberOfTrailingZeros(bb);
+                int col = sq & 7;
+                int row = sq >>> 3;
+                drawSquare(g2d, x + col * tileSize, y + row * tileSize, col, row, snapshot.pieceAt(sq));
+                minCol = Math.min(minCol, col);
+                maxCol = Math.max(maxCol, col);
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                drawnSquares++;
+            }
+            repaint(x + minCol * tileSize, y + minRow * tileSize,
+                    (maxCol - minCol + 1) * tileSize, (maxRow - minRow + 1) * tileSize);
+        }
+        g2d.dispose();
+    }
+
+    private void drawSquare(Graphics2D g2d, int x, int y, int col, int row, int code) {
+        BufferedImage background = atlas.background(8, 8);
+        int sx = col * tileSize;
+        int sy = row * tileSize;
+        g2d.drawImage(background, x, y, x + tileSize, y + tileSize, sx, sy, sx + tileSize, sy + tileSize, null);
+        if (code != Pieces.EMPTY) {
+            atlas.draw(g2d, code, x, y);
+        }
+    }
+
+    private void drawCaption(Graphics2D g2d, int game, PositionSnapshot snapshot) {
+        int x = boardX(game);
+        int y = boardY(game) - CAPTION;
+        g2d.setColor(BACKGROUND_COLOR);
+        g2d.fillRect(x, y, cellWidth(), CAPTION);
+        g2d.setColor(snapshot.isGameOver() ? GAME_OVER_COLOR : CAPTION_COLOR);
+        g2d.drawString("Partida " + (game + 1) + (snapshot.isGameOver() ? " (fim)" : ""), x, y + CAPTION - 4);
+        repaint(x, y, cellWidth(), CAPTION);
+    }
+
+    /**
+     * Retorna a imagem da grade, criando-a com o fundo e os tabuleiros vazios na primeira chamada
+     */
+    private BufferedImage frame() {
+        if (frame == null) {
+            Dimension size = getPreferredSize();
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            frame = configuration != null
+                    ? configuration.createCompatibleImage(size.width, size.height)
+                    : new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+
+            Graphics2D g2d = frame.createGraphics();
+            g2d.setColor(BACKGROUND_COLOR);
+            g2d.fillRect(0, 0, size.width, size.height);
+            BufferedImage background = atlas.background(8, 8);
+            for (int game = 0; game < games; game++) {
+                g2d.drawImage(background, boardX(game), boardY(game), null);
+            }
+            g2d.dispose();
+        }
+        return frame;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.drawImage(frame(), 0, 0, null);
+    }
+
+    /**
+     * Joga lances aleatórios em todas as partidas, um de cada vez, para demonstrar a visão sem conexões de rede
+     */
+    private static void playRandomGames(SimulView view, long delayMillis) {
+        Random random = new Random();
+        Position[] positions = new Position[view.games()];
+        PositionSnapshot[] snapshots = new PositionSnapshot[view.games()];
+        int[] plies = new int[view.games()];
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        for (int game = 0; game < positions.length; game++) {
+            positions[game] = Position.startPosition();
+            snapshots[game] = PositionSnapshot.of(positions[game], 0, false);
+            view.update(game, snapshots[game]);
+        }
+
+        while (true) {
+            LockSupport.parkNanos(delayMillis * 1_000_000L);
+            int game = random.nextInt(positions.length);
+            Position position = positions[game];
+            PositionSnapshot snapshot = snapshots[game];
+            if (snapshot.isGameOver()) {
+                position.copyFrom(Position.startPosition());
+                plies[game] = 0;
+                snapshot = PositionSnapshot.of(position, snapshot.sequence() + 1, false);
+            } else {
+                int count = MoveGen.generate(position, moves);
+                List<Integer> legal = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    if (MoveGen.isLegal(position, moves[i])) {
+                        legal.add(moves[i]);
+                    }
+                }
+                if (legal.isEmpty() || plies[game] >= MAX_RANDOM_PLIES) {
+                    snapshot = PositionSnapshot.of(position, snapshot.sequence() + 1, true);
+                } else {
+                    int move = legal.get(random.nextInt(legal.size()));
+                    position.make(move);
+                    plies[game]++;
+                    snapshot = snapshot.after(move);
+                }
+            }
+            snapshots[game] = snapshot;
+            view.update(game, snapshot);
+        }
+    }
+
+    /**
+     * Acompanha uma partida transmitida por um {@link net.BroadcastServer}, entregando cada posição recebida à visão
+     */
+    private static void watch(SimulView view, int game, String host, int port) {
+        SpectatorClient client = new SpectatorClient();
+        try (Socket socket = new Socket(host, port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                client.apply(in);
+                view.update(game, PositionSnapshot.of(client.position(), client.sequence(), false));
+            }
+        } catch (IOException e) {
+            PositionSnapshot last = PositionSnapshot.of(client.position(), client.sequence() + 1, true);
+            view.update(game, last);
+            System.out.println("Partida " + (game + 1) + " (" + host + ":" + port + ") encerrada: " + e);
+        }
+    }
+
+    /**
+     * Ponto de entrada da linha de comando:
+     * {@code SimulView [--games N] [--watch host:porta]... [--columns N] [--tile N] [--delay ms]}.
+     * Com {@code --watch}, cada endereço é uma partida transmitida; sem ele, são jogadas {@code --games} partidas
+     * com lances aleatórios
+     */
+    public static void main(String[] args) {
+        int games = 24;
+        int columns = 0;
+        int tileSize = DEFAULT_TILE_SIZE;
+        long delay = 20;
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--watch":
+                    addresses.add(args[++i]);
+                    break;
+                case "--columns":
+                    columns = Integer.parseInt(args[++i]);
+                    break;
+                case "--tile":
+                    tileSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--delay":
+                    delay = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (!addresses.isEmpty()) {
+            games = addresses.size();
+        }
+        if (columns <= 0) {
+            columns = (int) Math.ceil(Math.sqrt(games * 1.5));
+        }
+
+        SimulView view = new SimulView(games, columns, tileSize);
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Simultânea: " + view.games() + " partidas");
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(new JScrollPane(view));
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+        });
+
+        if (addresses.isEmpty()) {
+            long gameDelay = delay;
+            Thread thread = new Thread(() -> playRandomGames(view, gameDelay), "simul-games");
+            thread.setDaemon(true);
+            thread.start();
+            return;
+        }
+        for (int game = 0; game < addresses.size(); game++) {
+            String address = addresses.get(game);
+            int separator = address.lastIndexOf(':');
+            String host = address.substring(0, separator);
+            int port = Integer.parseInt(address.substring(separator + 1));
+            int index = game;
+            Thread thread = new Thread(() -> watch(view, index, host, port), "simul-watch-" + (game + 1));
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+}
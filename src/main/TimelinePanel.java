@@ -0,0 +1,63 @@
+package main;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Barra de navegação do histórico da partida: botões para o início, o lance anterior, o próximo e o final,
+ * e um controle deslizante para ir direto a qualquer meio-lance.
+ */
+public class TimelinePanel extends JPanel {
+
+    private final GameTimeline timeline;
+    private final JSlider slider = new JSlider(0, 0, 0);
+    private final JLabel label = new JLabel();
+
+    /**
+     * Evita que a atualização do controle deslizante feita pelo próprio painel dispare uma nova navegação
+     */
+    private boolean updating;
+
+    public TimelinePanel(GameTimeline timeline) {
+        this.timeline = timeline;
+
+        setLayout(new BorderLayout());
+        setBackground(Color.BLACK);
+        label.setForeground(Color.WHITE);
+
+        JPanel buttons = new JPanel();
+        buttons.setOpaque(false);
+        buttons.add(button("|<", () -> timeline.seek(0)));
+        buttons.add(button("<", timeline::back));
+        buttons.add(button(">", timeline::forward));
+        buttons.add(button(">|", () -> timeline.seek(timeline.length())));
+        buttons.add(label);
+
+        slider.setOpaque(false);
+        slider.addChangeListener(e -> {
+            if (!updating && slider.getValue() != timeline.current()) {
+                timeline.seek(slider.getValue());
+            }
+        });
+
+        add(buttons, BorderLayout.WEST);
+        add(slider, BorderLayout.CENTER);
+
+        timeline.setChangeListener(this::refresh);
+        refresh();
+    }
+
+    private JButton button(String text, Runnable action) {
+        JButton button = new JButton(text);
+        button.addActionListener(e -> action.run());
+        return button;
+    }
+
+    private void refresh() {
+        updating = true;
+        slider.setMaximum(timeline.length());
+        slider.setValue(timeline.current());
+        updating = false;
+        label.setText(timeline.current() + " / " + timeline.length());
+    }
+}
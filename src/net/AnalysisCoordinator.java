@@ -0,0 +1,507 @@
+package net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordenador da análise distribuída: divide um arquivo EPD em lotes de linhas e os entrega aos
+ * {@link AnalysisWorker trabalhadores} conectados por TCP, escrevendo os resultados na saída na mesma ordem da entrada.
+ * <p>
+ * A distribuição é puxada pelos trabalhadores: cada um pede lotes quando tem capacidade livre, então máquinas mais
+ * rápidas recebem mais trabalho. A entrada é lida aos poucos, um lote por pedido, e cada resultado fica na memória
+ * apenas até os lotes anteriores chegarem. Quando não há mais lotes novos, um trabalhador ocioso "rouba" o lote mais
+ * antigo ainda em andamento em outro trabalhador e o analisa também; vale o primeiro resultado que chegar, o que evita
+ * que um trabalhador lento atrase o fim do trabalho.
+ * <p>
+ * Cada conexão é atendida por uma thread. Se um trabalhador ficar {@link WorkProtocol#TIMEOUT_MILLIS} sem enviar nada
+ * (os trabalhadores enviam sinais de vida a cada segundo) ou se a conexão cair, os lotes dele voltam para o início da
+ * fila; um lote perdido mais de {@link #MAX_ATTEMPTS} vezes é dado como falho, com uma linha de erro para cada posição.
+ */
+public class AnalysisCoordinator implements AutoCloseable {
+
+    public static final int DEFAULT_SHARD_SIZE = 256;
+    public static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Quantidade máxima de trabalhadores analisando o mesmo lote ao mesmo tempo, contando os que o roubaram
+     */
+    private static final int MAX_COPIES = 2;
+
+    private static final class Shard {
+        final int id;
+        final String[] lines;
+        final Set<Connection> assignees = new HashSet<>();
+        long assignedAt;
+        int attempts;
+
+        Shard(int id, String[] lines) {
+            this.id = id;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Estado de um trabalhador conectado
+     */
+    private final class Connection implements Runnable {
+        final Socket socket;
+        final String name;
+        DataOutputStream out;
+        long positions;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+            this.name = socket.getRemoteSocketAddress().toString();
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.setSoTimeout(WorkProtocol.TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                if (in.readByte() != WorkProtocol.HELLO || in.readInt() != WorkProtocol.MAGIC) {
+                    throw new IOException("Trabalhador com protocolo desconhecido");
+                }
+                int threads = in.readInt();
+                log("trabalhador " + name + " conectado com " + threads + " threads");
+                out.writeByte(WorkProtocol.CONFIG);
+                out.writeInt(depth);
+                out.writeLong(nodeLimit);
+                out.writeBoolean(evalOnly);
+                out.flush();
+
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == WorkProtocol.REQUEST) {
+                        serve(in.readInt());
+                    } else if (type == WorkProtocol.RESULT) {
+                        int id = in.readInt();
+                        String[] results = WorkProtocol.readLines(in);
+                        if (complete(this, id, results)) {
+                            positions += results.length;
+                        }
+                    } else if (type != WorkProtocol.HEARTBEAT) {
+                        throw new IOException("Mensagem desconhecida: " + type);
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                log("trabalhador " + name + " sem sinal de vida, desconectado");
+            } catch (EOFException e) {
+                if (!isFinished()) {
+                    log("trabalhador " + name + " fechou a conexão");
+                }
+            } catch (IOException e) {
+                if (!isFinished()) {
+                    log("trabalhador " + name + " perdido: " + e.getMessage());
+                }
+            } finally {
+                log("trabalhador " + name + " saiu depois de analisar " + positions + " posições");
+                release(this);
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nada a fazer
+                }
+            }
+        }
+
+        /**
+         * Atende um pedido de lotes: entrega até {@code count} lotes, ou avisa que é preciso esperar ou que acabou
+         */
+        private void serve(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (!isActive()) {
+                    // Nenhum trabalho em andamento: o trabalhador conectou antes de run() e espera pelo próximo
+                    out.writeByte(WorkProtocol.WAIT);
+                    out.writeInt(count - i);
+                    break;
+                }
+                if (isFinished()) {
+                    out.writeByte(WorkProtocol.DONE);
+                    break;
+                }
+                Shard shard = next(this);
+                if (shard == null) {
+                    out.writeByte(WorkProtocol.WAIT);
+                    out.writeInt(count - i);
+                    break;
+                }
+                WorkProtocol.writeLines(out, WorkProtocol.SHARD, shard.id, shard.lines);
+            }
+            out.flush();
+        }
+    }
+
+    private final int depth;
+    private final long nodeLimit;
+    private final boolean evalOnly;
+    private final int shardSize;
+    private final ServerSocket server;
+    private final List<Connection> connections = new ArrayList<>();
+
+    /**
+     * Estado do trabalho, protegido pelo monitor do coordenador
+     */
+    private BufferedReader input;
+    private Writer output;
+    private boolean active;
+    private boolean inputDone = true;
+    private int nextShard;
+    private int nextToWrite;
+    private final ArrayDeque<Shard> retries = new ArrayDeque<>();
+    private final Map<Integer, Shard> outstanding = new HashMap<>();
+    private final Map<Integer, String[]> finished = new HashMap<>();
+    private long written;
+    private long stolen;
+    private long retried;
+    private long failed;
+    private IOException writeError;
+
+    /**
+     * Abre o servidor na porta dada (0 escolhe uma porta livre) e começa a aceitar trabalhadores
+     *
+     * @param depth     a profundidade de busca em meios-lances
+     * @param nodeLimit o limite de nós por posição, ou 0 para não limitar
+     * @param evalOnly  se verdadeiro, apenas a avaliação estática é calculada, sem busca
+     * @param shardSize a quantidade de linhas de cada lote
+     */
+    public AnalysisCoordinator(int port, int depth, long nodeLimit, boolean evalOnly, int shardSize) throws IOException {
+        if (shardSize < 1 || shardSize > WorkProtocol.MAX_SHARD_LINES) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + shardSize);
+        }
+        this.depth = depth;
+        this.nodeLimit = nodeLimit;
+        this.evalOnly = evalOnly;
+        this.shardSize = shardSize;
+        this.server = new ServerSocket();
+        server.bind(new InetSocketAddress(port));
+        Thread acceptor = new Thread(this::accept, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Connection connection = new Connection(server.accept());
+                synchronized (this) {
+                    connections.add(connection);
+                }
+                Thread thread = new Thread(connection, "coordinator-" + connection.name);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (SocketException e) {
+                // O servidor foi fechado
+            } catch (IOException e) {
+                log("erro ao aceitar trabalhador: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Distribui todas as linhas da entrada entre os trabalhadores e escreve um resultado por linha na saída, na mesma
+     * ordem. Os trabalhadores podem se conectar antes ou durante o trabalho
+     *
+     * @return a quantidade de linhas processadas
+     */
+    public long run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        synchronized (this) {
+            input = in;
+            output = out;
+            active = true;
+            inputDone = false;
+            nextShard = 0;
+            nextToWrite = 0;
+            written = 0;
+            try {
+                while (!isFinished() && writeError == null) {
+                    wait();
+                }
+            } finally {
+                active = false;
+                input = null;
+                output = null;
+            }
+            if (writeError != null) {
+                throw writeError;
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Se há um trabalho em andamento, iniciado por {@link #run}; fora dele os pedidos de lotes recebem
+     * {@link WorkProtocol#WAIT}
+     */
+    private synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * O trabalho acabou quando toda a entrada foi lida e todos os lotes foram escritos
+     */
+    private synchronized boolean isFinished() {
+        return inputDone && retries.isEmpty() && outstanding.isEmpty();
+    }
+
+    /**
+     * Escolhe o próximo lote para o trabalhador: primeiro os perdidos por outros trabalhadores, depois lotes novos da
+     * entrada e, se a entrada acabou, o lote em andamento há mais tempo em outro trabalhador
+     *
+     * @return o lote, ou {@code null} se não houver nada para este trabalhador agora
+     */
+    private synchronized Shard next(Connection connection) throws IOException {
+        Shard shard = retries.poll();
+        if (shard == null && !inputDone) {
+            shard = readShard();
+        }
+        if (shard == null) {
+            for (Shard candidate : outstanding.values()) {
+                if (!candidate.assignees.contains(connection) && candidate.assignees.size() < MAX_COPIES
+                        && (shard == null || candidate.assignedAt < shard.assignedAt)) {
+                    shard = candidate;
+                }
+            }
+            if (shard == null) {
+                return null;
+            }
+            stolen++;
+        } else {
+            shard.assignedAt = System.nanoTime();
+        }
+        shard.assignees.add(connection);
+        outstanding.put(shard.id, shard);
+        return shard;
+    }
+
+    private Shard readShard() throws IOException {
+        List<String> lines = new ArrayList<>(shardSize);
+        String line;
+        while (lines.size() < shardSize && (line = input.readLine()) != null) {
+            lines.add(line);
+        }
+        if (lines.size() < shardSize) {
+            inputDone = true;
+            notifyAll();
+        }
+        return lines.isEmpty() ? null : new Shard(nextShard++, lines.toArray(new String[0]));
+    }
+
+    /**
+     * Registra o resultado de um lote e escreve na saída todos os lotes que já podem ser escritos em ordem
+     *
+     * @return se este foi o primeiro resultado do lote (um lote roubado pode ter o resultado enviado duas vezes)
+     */
+    private synchronized boolean complete(Connection connection, int id, String[] results) throws IOException {
+        Shard shard = outstanding.get(id);
+        if (shard == null || !shard.assignees.contains(connection)) {
+            return false;
+        }
+        if (results.length != shard.lines.length) {
+            throw new IOException("Resultado com quantidade de linhas errada para o lote " + id);
+        }
+        outstanding.remove(id);
+        finished.put(id, results);
+        writeFinished();
+        return true;
+    }
+
+    private void writeFinished() {
+        String[] results;
+        try {
+            while ((results = finished.remove(nextToWrite)) != null) {
+                for (String result : results) {
+                    output.write(result);
+                    output.write('\n');
+                }
+                written += results.length;
+                nextToWrite++;
+            }
+        } catch (IOException e) {
+            writeError = e;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Devolve à fila os lotes que só este trabalhador estava analisando
+     */
+    private synchronized void release(Connection connection) {
+        connections.remove(connection);
+        List<Shard> lost = new ArrayList<>();
+        for (Shard shard : outstanding.values()) {
+            if (shard.assignees.remove(connection) && shard.assignees.isEmpty()) {
+                lost.add(shard);
+            }
+        }
+        for (Shard shard : lost) {
+            outstanding.remove(shard.id);
+            if (++shard.attempts >= MAX_ATTEMPTS) {
+                log("lote " + shard.id + " perdido " + shard.attempts + " vezes, marcado como falho");
+                String[] results = new String[shard.lines.length];
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = shard.lines[i].trim() + " error \"lote perdido " + shard.attempts + " vezes\";";
+                }
+                finished.put(shard.id, results);
+                failed++;
+            } else {
+                retries.addFirst(shard);
+                retried++;
+            }
+        }
+        if (output != null) {
+            writeFinished();
+        }
+    }
+
+    public synchronized int workerCount() {
+        return connections.size();
+    }
+
+    public synchronized long stolenShards() {
+        return stolen;
+    }
+
+    public synchronized long retriedShards() {
+        return retried;
+    }
+
+    public synchronized long failedShards() {
+        return failed;
+    }
+
+    private static void log(String message) {
+        System.err.println("[coordenador] " + message);
+    }
+
+    /**
+     * Fecha o servidor e as conexões dos trabalhadores
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        List<Connection> open;
+        synchronized (this) {
+            open = new ArrayList<>(connections);
+        }
+        for (Connection connection : open) {
+            connection.socket.close();
+        }
+    }
+
+    /**
+     * Inicia trabalhadores em processos separados nesta máquina, com a mesma JVM e o mesmo classpath
+     */
+    public static List<Process> launchLocalWorkers(int count, int port, int threadsPerWorker) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    AnalysisWorker.class.getName(), "localhost", String.valueOf(port),
+                    "--threads", String.valueOf(threadsPerWorker))
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+        return processes;
+    }
+
+    /**
+     * Ponto de entrada da linha de comando:
+     * {@code AnalysisCoordinator <entrada.epd> <saida.epd> [--port N] [--shard N] [--depth N] [--nodes N] [--eval] [--local N]}
+     * <p>
+     * Com {@code --local N}, inicia N trabalhadores nesta máquina, dividindo os processadores entre eles; os demais
+     * trabalhadores são iniciados em outras máquinas com {@code AnalysisWorker <host> <porta>}.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Uso: AnalysisCoordinator <entrada.epd> <saida.epd> [--port N] [--shard N] [--depth N] [--nodes N] [--eval] [--local N]");
+            System.exit(1);
+        }
+
+        int port = 7070;
+        int shard = DEFAULT_SHARD_SIZE;
+        int depth = 4;
+        long nodes = 0;
+        boolean evalOnly = false;
+        int local = 0;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--shard":
+                    shard = Integer.parseInt(args[++i]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "--eval":
+                    evalOnly = true;
+                    break;
+                case "--local":
+                    local = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        List<Process> workers = new ArrayList<>();
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(port, depth, nodes, evalOnly, shard);
+             BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            log("aguardando trabalhadores na porta " + coordinator.port());
+            if (local > 0) {
+                int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / local);
+                workers = launchLocalWorkers(local, coordinator.port(), threads);
+            }
+            long total = coordinator.run(in, out);
+            System.out.println(total + " posições analisadas em " + (System.currentTimeMillis() - start) + " ms ("
+                    + coordinator.stolenShards() + " lotes roubados, " + coordinator.retriedShards() + " repetidos, "
+                    + coordinator.failedShards() + " falhos).");
+        }
+        // Os trabalhadores locais saem sozinhos ao receber o fim do trabalho ou quando o coordenador fecha a conexão;
+        // um que tenha travado é encerrado
+        for (Process worker : workers) {
+            if (!worker.waitFor(WorkProtocol.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                worker.destroyForcibly();
+            }
+        }
+    }
+}
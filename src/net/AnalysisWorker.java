@@ -0,0 +1,219 @@
+package net;
+
+import analysis.BatchAnalyzer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processo trabalhador da análise distribuída: conecta-se a um {@link AnalysisCoordinator}, pede lotes de posições,
+ * analisa cada lote com um {@link BatchAnalyzer} (as mesmas regras e a mesma busca da análise em lote local) e devolve
+ * os resultados.
+ * <p>
+ * A thread principal lê as mensagens do coordenador e guarda os lotes recebidos em uma fila local; outra thread
+ * analisa os lotes da fila e, a cada resultado enviado, pede mais um lote. O trabalhador pede {@link #PREFETCH} lotes
+ * de início, para que sempre haja um lote esperando enquanto o anterior é analisado. Uma terceira thread envia
+ * {@link WorkProtocol#HEARTBEAT} periodicamente, mesmo durante análises longas. Todas as escritas no socket são
+ * sincronizadas no fluxo de saída.
+ */
+public class AnalysisWorker implements AutoCloseable {
+
+    /**
+     * Quantidade de lotes pedidos de início
+     */
+    public static final int PREFETCH = 2;
+
+    /**
+     * Lote vazio colocado na fila para avisar a thread de análise que o trabalho acabou
+     */
+    private static final Shard END = new Shard(-1, new String[0]);
+
+    private static final class Shard {
+        final int id;
+        final String[] lines;
+
+        Shard(int id, String[] lines) {
+            this.id = id;
+            this.lines = lines;
+        }
+    }
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int threads;
+    private final BlockingQueue<Shard> shards = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BatchAnalyzer analyzer;
+    private long analysed;
+
+    public AnalysisWorker(String host, int port, int threads) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.threads = threads;
+    }
+
+    /**
+     * Trabalha até o coordenador avisar que o trabalho acabou ou fechar a conexão
+     *
+     * @return a quantidade de posições analisadas por este trabalhador
+     */
+    public long run() throws IOException {
+        synchronized (out) {
+            out.writeByte(WorkProtocol.HELLO);
+            out.writeInt(WorkProtocol.MAGIC);
+            out.writeInt(threads);
+            out.flush();
+        }
+        if (in.readByte() != WorkProtocol.CONFIG) {
+            throw new IOException("Resposta inesperada do coordenador");
+        }
+        int depth = in.readInt();
+        long nodes = in.readLong();
+        boolean evalOnly = in.readBoolean();
+        analyzer = new BatchAnalyzer(threads, depth, nodes, evalOnly, BatchAnalyzer.DEFAULT_CHUNK_SIZE);
+
+        timer.scheduleAtFixedRate(this::heartbeat, WorkProtocol.HEARTBEAT_MILLIS, WorkProtocol.HEARTBEAT_MILLIS,
+                TimeUnit.MILLISECONDS);
+        Thread computer = new Thread(this::compute, "worker-analysis");
+        computer.setDaemon(true);
+        computer.start();
+        request(PREFETCH);
+
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == WorkProtocol.SHARD) {
+                    int id = in.readInt();
+                    shards.add(new Shard(id, WorkProtocol.readLines(in)));
+                } else if (type == WorkProtocol.WAIT) {
+                    // Nada disponível agora: pede de novo depois de um tempo, sem deixar de enviar os sinais de vida
+                    int unserved = in.readInt();
+                    timer.schedule(() -> request(unserved), WorkProtocol.HEARTBEAT_MILLIS / 4, TimeUnit.MILLISECONDS);
+                } else if (type == WorkProtocol.DONE) {
+                    break;
+                } else {
+                    throw new IOException("Mensagem desconhecida do coordenador: " + type);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // O coordenador fechou a conexão
+        } finally {
+            shards.clear();
+            shards.add(END);
+        }
+        try {
+            computer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return analysed;
+    }
+
+    /**
+     * Analisa os lotes da fila até receber o aviso de fim
+     */
+    private void compute() {
+        try {
+            while (true) {
+                Shard shard = shards.take();
+                if (shard == END) {
+                    return;
+                }
+                String[] results = analyzer.analyse(shard.lines);
+                synchronized (out) {
+                    WorkProtocol.writeLines(out, WorkProtocol.RESULT, shard.id, results);
+                    out.writeByte(WorkProtocol.REQUEST);
+                    out.writeInt(1);
+                    out.flush();
+                }
+                analysed += results.length;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // A conexão caiu; a thread principal percebe e termina
+            close();
+        }
+    }
+
+    private void request(int count) {
+        try {
+            synchronized (out) {
+                out.writeByte(WorkProtocol.REQUEST);
+                out.writeInt(count);
+                out.flush();
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            synchronized (out) {
+                out.writeByte(WorkProtocol.HEARTBEAT);
+                out.flush();
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nada a fazer
+        }
+        if (analyzer != null) {
+            analyzer.close();
+        }
+    }
+
+    /**
+     * Ponto de entrada da linha de comando: {@code AnalysisWorker <host> <porta> [--threads N]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: AnalysisWorker <host> <porta> [--threads N]");
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Opção desconhecida: " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        try (AnalysisWorker worker = new AnalysisWorker(args[0], Integer.parseInt(args[1]), threads)) {
+            long total = worker.run();
+            System.out.println("Trabalhador: " + total + " posições analisadas em "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+}
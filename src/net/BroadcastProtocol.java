@@ -0,0 +1,66 @@
+package net;
+
+import engine.Pieces;
+import engine.Position;
+import engine.PositionSnapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Formato dos quadros enviados aos espectadores de uma partida.
+ * <p>
+ * Todo quadro começa com um byte de tipo e um número de sequência de 4 bytes, que é incrementado a cada movimento
+ * e permite ao espectador perceber se perdeu algum quadro:
+ * <ul>
+ *     <li>{@link #MOVE}: casa de origem e casa de destino, um byte cada (7 bytes no total);</li>
+ *     <li>{@link #SNAPSHOT}: a peça de cada uma das 64 casas ({@code -1} para casa vazia) e o lado que tem a vez
+ *     (70 bytes no total), enviado a quem acabou de entrar e a quem ficou para trás.</li>
+ * </ul>
+ */
+public final class BroadcastProtocol {
+
+    public static final byte MOVE = 1;
+    public static final byte SNAPSHOT = 2;
+
+    public static final int MOVE_SIZE = 1 + 4 + 2;
+    public static final int SNAPSHOT_SIZE = 1 + 4 + 64 + 1;
+
+    private BroadcastProtocol() {
+    }
+
+    /**
+     * Codifica um movimento em um buffer direto e somente leitura, para ser compartilhado por todos os espectadores
+     */
+    public static ByteBuffer encodeMove(int sequence, int from, int to) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(MOVE_SIZE);
+        frame.put(MOVE).putInt(sequence).put((byte) from).put((byte) to).flip();
+        return frame.asReadOnlyBuffer();
+    }
+
+    /**
+     * Codifica a posição completa em um buffer direto e somente leitura
+     */
+    public static ByteBuffer encodeSnapshot(int sequence, PositionSnapshot position) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(SNAPSHOT_SIZE);
+        frame.put(SNAPSHOT).putInt(sequence);
+        for (int sq = 0; sq < 64; sq++) {
+            frame.put((byte) position.pieceAt(sq));
+        }
+        frame.put((byte) position.sideToMove()).flip();
+        return frame.asReadOnlyBuffer();
+    }
+
+    /**
+     * Lê a posição de um quadro {@link #SNAPSHOT}, a partir do byte seguinte ao número de sequência
+     */
+    public static void decodeSnapshot(ByteBuffer frame, Position position) {
+        position.clear();
+        for (int sq = 0; sq < 64; sq++) {
+            int code = frame.get();
+            if (code != Pieces.EMPTY) {
+                position.put(sq, code);
+            }
+        }
+        position.setSideToMove(frame.get());
+    }
+}
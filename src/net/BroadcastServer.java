@@ -0,0 +1,359 @@
+package net;
+
+import engine.Moves;
+import engine.Pieces;
+import engine.Position;
+import engine.PositionSnapshot;
+import main.Board;
+import main.Move;
+import main.MoveListener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Transmite os movimentos de uma partida para muitos espectadores conectados por TCP.
+ * <p>
+ * Todo o trabalho de rede é feito por uma única thread com um {@link Selector}. O tabuleiro apenas coloca o movimento
+ * em uma fila e acorda essa thread, então os jogadores nunca esperam pela rede. Cada movimento é codificado uma única
+ * vez em um buffer direto (ver {@link BroadcastProtocol}), e cada espectador recebe apenas uma cópia do
+ * <i>ponteiro</i> desse buffer ({@link ByteBuffer#duplicate()}), sem copiar os bytes.
+ * <p>
+ * Quem acaba de se conectar recebe primeiro a posição completa. Um espectador lento acumula quadros na sua fila;
+ * se a fila passar de {@link #MAX_QUEUED_FRAMES}, os quadros pendentes são descartados e trocados pela posição
+ * completa atual, então a memória usada por espectador é limitada e ele volta a acompanhar a partida assim que
+ * conseguir ler.
+ */
+public class BroadcastServer implements MoveListener, AutoCloseable {
+
+    public static final int MAX_QUEUED_FRAMES = 64;
+
+    /**
+     * Estado de um espectador, usado apenas pela thread do seletor
+     */
+    private static final class Spectator {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        SelectionKey key;
+        boolean closed;
+
+        Spectator(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Alteração feita no tabuleiro: um movimento, com o retrato publicado pelo tabuleiro depois dele, ou uma posição
+     * nova ({@code move} igual a {@link Moves#NONE})
+     */
+    private static final class Update {
+        final int move;
+        final PositionSnapshot position;
+
+        Update(int move, PositionSnapshot position) {
+            this.move = move;
+            this.position = position;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Queue<Update> inbox = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Posição e quadros atuais, usados apenas pela thread do seletor. A posição é o último retrato recebido do
+     * tabuleiro; como ele é imutável, nada é copiado
+     */
+    private PositionSnapshot position;
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_QUEUED_FRAMES + 1];
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(256);
+    private int sequence;
+    private ByteBuffer snapshot;
+    private boolean anyClosed;
+
+    private volatile int spectatorCount;
+    private volatile long resyncCount;
+
+    private BroadcastServer(ServerSocketChannel server, Selector selector, PositionSnapshot initial) {
+        this.server = server;
+        this.selector = selector;
+        this.position = initial;
+        this.thread = new Thread(this::run, "broadcast");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Começa a aceitar espectadores na porta dada, a partir da posição informada (o {@link Board#snapshot()} do
+     * tabuleiro transmitido)
+     */
+    public static BroadcastServer start(int port, PositionSnapshot initial) throws IOException {
+        if (initial == null) {
+            throw new IllegalArgumentException("Só o tabuleiro 8x8 pode ser transmitido");
+        }
+        ServerSocketChannel server = ServerSocketChannel.open();
+        Selector selector = Selector.open();
+        try {
+            server.bind(new InetSocketAddress(port), 1024);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        BroadcastServer broadcast = new BroadcastServer(server, selector, initial);
+        broadcast.thread.start();
+        return broadcast;
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    public int spectatorCount() {
+        return spectatorCount;
+    }
+
+    /**
+     * Quantas vezes algum espectador lento precisou receber de novo a posição completa
+     */
+    public long resyncCount() {
+        return resyncCount;
+    }
+
+    /**
+     * Posições apenas exibidas (navegação no histórico) não são transmitidas, já que não são a partida sendo jogada.
+     * Se um movimento for feito a partir de uma delas, a posição depois dele não confere com a dos espectadores e
+     * eles recebem a posição completa em vez do movimento
+     */
+    @Override
+    public void moveMade(Board board, Move move) {
+        inbox.offer(new Update(move.toEngineMove(), board.snapshot()));
+        selector.wakeup();
+    }
+
+    @Override
+    public void positionSet(Board board, Position position) {
+        inbox.offer(new Update(Moves.NONE, board.snapshot()));
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                drainInbox();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Spectator spectator = (Spectator) key.attachment();
+                    if (key.isReadable()) {
+                        read(spectator);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(spectator);
+                    }
+                }
+                removeClosed();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (Spectator spectator : spectators) {
+                closeQuietly(spectator);
+            }
+            try {
+                selector.close();
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Passa para o retrato recebido do tabuleiro e coloca um quadro na fila de cada espectador. Os quadros de
+     * vários movimentos acumulados são escritos juntos, com uma única escrita por espectador.
+     */
+    private void drainInbox() {
+        Update update;
+        boolean changed = false;
+        while ((update = inbox.poll()) != null) {
+            changed = true;
+            sequence++;
+            snapshot = null;
+            // O movimento só é enviado se levar os espectadores exatamente à posição do tabuleiro
+            boolean applies = update.move != Moves.NONE && position.pieceAt(Moves.from(update.move)) != Pieces.EMPTY
+                    && position.after(update.move).equals(update.position);
+            position = update.position;
+            if (!applies) {
+                for (Spectator spectator : spectators) {
+                    resync(spectator);
+                }
+                continue;
+            }
+
+            ByteBuffer frame = BroadcastProtocol.encodeMove(sequence, Moves.from(update.move), Moves.to(update.move));
+            for (Spectator spectator : spectators) {
+                if (spectator.queue.size() >= MAX_QUEUED_FRAMES) {
+                    resync(spectator);
+                    resyncCount++;
+                } else {
+                    spectator.queue.add(frame.duplicate());
+                }
+            }
+        }
+
+        if (changed) {
+            for (Spectator spectator : spectators) {
+                // Quem já está esperando a conexão aceitar mais dados é atendido pelo seletor
+                if (!spectator.closed && (spectator.key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+                    flush(spectator);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quadro com a posição atual, codificado no máximo uma vez por movimento
+     */
+    private ByteBuffer snapshot() {
+        if (snapshot == null) {
+            snapshot = BroadcastProtocol.encodeSnapshot(sequence, position);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Troca os quadros pendentes do espectador pela posição completa, preservando apenas um quadro já começado
+     * (para não cortar um quadro no meio da conexão)
+     */
+    private void resync(Spectator spectator) {
+        ByteBuffer head = spectator.queue.peek();
+        spectator.queue.clear();
+        if (head != null && head.position() > 0) {
+            spectator.queue.add(head);
+        }
+        spectator.queue.add(snapshot().duplicate());
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Spectator spectator = new Spectator(channel);
+            spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+            spectators.add(spectator);
+            spectatorCount = spectators.size();
+            spectator.queue.add(snapshot().duplicate());
+            flush(spectator);
+        }
+    }
+
+    /**
+     * Os espectadores não enviam nada; a leitura serve apenas para perceber que a conexão foi fechada
+     */
+    private void read(Spectator spectator) {
+        try {
+            readBuffer.clear();
+            if (spectator.channel.read(readBuffer) < 0) {
+                close(spectator);
+            }
+        } catch (IOException e) {
+            close(spectator);
+        }
+    }
+
+    /**
+     * Escreve o máximo possível da fila do espectador sem bloquear; o que sobrar é escrito quando o
+     * seletor avisar que a conexão aceita mais dados
+     */
+    private void flush(Spectator spectator) {
+        if (!spectator.key.isValid()) {
+            return;
+        }
+        try {
+            int count = 0;
+            for (ByteBuffer frame : spectator.queue) {
+                gather[count++] = frame;
+            }
+            if (count > 0) {
+                spectator.channel.write(gather, 0, count);
+            }
+            while (!spectator.queue.isEmpty() && !spectator.queue.peek().hasRemaining()) {
+                spectator.queue.poll();
+            }
+            Arrays.fill(gather, 0, count, null);
+            spectator.key.interestOps(spectator.queue.isEmpty()
+                    ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close(spectator);
+        }
+    }
+
+    /**
+     * Fecha a conexão do espectador; ele é retirado da lista depois, em {@link #removeClosed()}, para que a lista
+     * possa ser percorrida sem cópias durante o envio de um quadro
+     */
+    private void close(Spectator spectator) {
+        spectator.closed = true;
+        anyClosed = true;
+        closeQuietly(spectator);
+    }
+
+    private void removeClosed() {
+        if (anyClosed) {
+            spectators.removeIf(spectator -> spectator.closed);
+            spectatorCount = spectators.size();
+            anyClosed = false;
+        }
+    }
+
+    private static void closeQuietly(Spectator spectator) {
+        spectator.key.cancel();
+        try {
+            spectator.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Fecha o servidor e todas as conexões dos espectadores
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package net;
+
+import engine.Moves;
+import engine.Position;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Espectador simples de uma partida transmitida por {@link BroadcastServer}: mantém a posição atualizada a partir dos
+ * quadros recebidos e mostra cada movimento no terminal.
+ */
+public class SpectatorClient {
+
+    private final Position position = new Position();
+    private int sequence;
+
+    /**
+     * Aplica um quadro à posição local
+     *
+     * @return falso se o quadro for um movimento fora de sequência (algum quadro foi perdido)
+     */
+    public boolean apply(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        int frameSequence = in.readInt();
+        if (type == BroadcastProtocol.SNAPSHOT) {
+            byte[] payload = new byte[BroadcastProtocol.SNAPSHOT_SIZE - 5];
+            in.readFully(payload);
+            BroadcastProtocol.decodeSnapshot(ByteBuffer.wrap(payload), position);
+            sequence = frameSequence;
+            return true;
+        }
+        if (type != BroadcastProtocol.MOVE) {
+            throw new IOException("Quadro desconhecido: " + type);
+        }
+        int from = in.readUnsignedByte();
+        int to = in.readUnsignedByte();
+        boolean inOrder = frameSequence == sequence + 1;
+        sequence = frameSequence;
+        position.make(Moves.of(from, to));
+        return inOrder;
+    }
+
+    public Position position() {
+        return position;
+    }
+
+    public int sequence() {
+        return sequence;
+    }
+
+    /**
+     * Ponto de entrada da linha de comando: {@code SpectatorClient <host> <porta>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: SpectatorClient <host> <porta>");
+            System.exit(1);
+        }
+        SpectatorClient client = new SpectatorClient();
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                client.apply(in);
+                System.out.println(client.sequence() + ":\n" + client.position());
+            }
+        } catch (EOFException e) {
+            System.out.println("Transmissão encerrada.");
+        }
+    }
+}
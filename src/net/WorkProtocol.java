@@ -0,0 +1,82 @@
+package net;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Formato das mensagens trocadas entre o {@link AnalysisCoordinator} e os {@link AnalysisWorker trabalhadores}.
+ * <p>
+ * Toda mensagem começa com um byte de tipo, seguido dos campos do tipo (inteiros em big-endian, como em
+ * {@link DataOutputStream}; cada linha de texto com {@link DataOutputStream#writeUTF}):
+ * <ul>
+ *     <li>{@link #HELLO} (trabalhador): {@link #MAGIC} e a quantidade de threads de análise;</li>
+ *     <li>{@link #CONFIG} (coordenador): profundidade, limite de nós e se a análise é apenas a avaliação estática;</li>
+ *     <li>{@link #REQUEST} (trabalhador): quantos lotes ele aceita receber agora;</li>
+ *     <li>{@link #SHARD} (coordenador): número do lote, quantidade de linhas e as linhas EPD;</li>
+ *     <li>{@link #RESULT} (trabalhador): número do lote, quantidade de linhas e as linhas de resultado;</li>
+ *     <li>{@link #WAIT} (coordenador): não há lote disponível agora, mas o trabalho ainda não acabou (ou ainda não
+ *     começou); traz quantos dos lotes pedidos não foram entregues, para o trabalhador pedir de novo;</li>
+ *     <li>{@link #DONE} (coordenador): o trabalho acabou e o trabalhador pode se desconectar;</li>
+ *     <li>{@link #HEARTBEAT} (trabalhador): sem campos, enviado periodicamente para mostrar que o processo está vivo.</li>
+ * </ul>
+ */
+public final class WorkProtocol {
+
+    public static final int MAGIC = 0x43574B31; // "CWK1"
+
+    public static final byte HELLO = 1;
+    public static final byte CONFIG = 2;
+    public static final byte REQUEST = 3;
+    public static final byte SHARD = 4;
+    public static final byte RESULT = 5;
+    public static final byte WAIT = 6;
+    public static final byte DONE = 7;
+    public static final byte HEARTBEAT = 8;
+
+    /**
+     * Intervalo entre as mensagens {@link #HEARTBEAT} de um trabalhador
+     */
+    public static final int HEARTBEAT_MILLIS = 1000;
+
+    /**
+     * Tempo sem nenhuma mensagem depois do qual o coordenador considera o trabalhador perdido
+     */
+    public static final int TIMEOUT_MILLIS = 5 * HEARTBEAT_MILLIS;
+
+    /**
+     * Quantidade máxima de linhas de um lote
+     */
+    public static final int MAX_SHARD_LINES = 1 << 16;
+
+    private WorkProtocol() {
+    }
+
+    /**
+     * Escreve um lote de linhas: o número do lote, a quantidade de linhas e as linhas
+     */
+    public static void writeLines(DataOutputStream out, byte type, int id, String[] lines) throws IOException {
+        out.writeByte(type);
+        out.writeInt(id);
+        out.writeInt(lines.length);
+        for (String line : lines) {
+            out.writeUTF(line);
+        }
+    }
+
+    /**
+     * Lê as linhas de um lote escrito com {@link #writeLines}, a partir da quantidade de linhas (o tipo e o número do
+     * lote já devem ter sido lidos)
+     */
+    public static String[] readLines(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_SHARD_LINES) {
+            throw new IOException("Quantidade de linhas inválida: " + count);
+        }
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = in.readUTF();
+        }
+        return lines;
+    }
+}
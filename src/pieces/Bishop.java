@@ -1,9 +1,9 @@
 package pieces;
 
+import engine.Evaluator;
+import engine.Pieces;
 import main.Board;
 
-import java.awt.image.BufferedImage;
-
 public class Bishop extends Piece {
     public Bishop(Board board, int col, int row, boolean isWhite) {
         super(board);
@@ -14,8 +14,7 @@ public class Bishop extends Piece {
 
         this.isWhite = isWhite;
         this.name = "Bishop";
-
-        this.sprite = sheet.getSubimage(2 * sheetScale, isWhite ? 0 : sheetScale, sheetScale, sheetScale).getScaledInstance(board.tileSize, board.tileSize, BufferedImage.SCALE_SMOOTH);
+        this.value = Evaluator.PIECE_VALUES[Pieces.BISHOP];
 
     }
 
@@ -24,41 +23,6 @@ public class Bishop extends Piece {
     }
 
     public boolean moveCollidesWithPiece(int col, int row) {
-
-        // Diagonal superior esquerda
-         if (this.col > col && this.row > row) {
-             for (int i = 1; i < Math.abs(this.col - col); i++) {
-                 if (board.getPiece(this.col - i, this.row - i) != null) {
-                     return true;
-                 }
-             }
-         }
-         // Diagonal superior direita
-        if (this.col < col && this.row > row) {
-            for (int i = 1; i < Math.abs(this.col - col); i++) {
-                if (board.getPiece(this.col + i, this.row - i) != null) {
-                    return true;
-                }
-            }
-        }
-        // Diagonal inferior esquerda
-        if (this.col > col && this.row < row) {
-            for (int i = 1; i < Math.abs(this.col - col); i++) {
-                if (board.getPiece(this.col - i, this.row + i) != null) {
-                    return true;
-                }
-            }
-        }
-        // Diagonal inferior direita
-        if (this.col < col && this.row < row) {
-            for (int i = 1; i < Math.abs(this.col - col); i++) {
-                if (board.getPiece(this.col + i, this.row + i) != null) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return !board.isPathClear(this.col, this.row, col, row);
     }
-
 }
@@ -1,9 +1,9 @@
 package pieces;
 
+import engine.Evaluator;
+import engine.Pieces;
 import main.Board;
 
-import java.awt.image.BufferedImage;
-
 public class Knight extends Piece {
     public Knight(Board board, int col, int row, boolean isWhite) {
         super(board);
@@ -14,8 +14,7 @@ public class Knight extends Piece {
 
         this.isWhite = isWhite;
         this.name = "Knight";
-
-        this.sprite = sheet.getSubimage(3 * sheetScale, isWhite ? 0 : sheetScale, sheetScale, sheetScale).getScaledInstance(board.tileSize, board.tileSize, BufferedImage.SCALE_SMOOTH);
+        this.value = Evaluator.PIECE_VALUES[Pieces.KNIGHT];
     }
 
     public boolean isValidMovement(int col, int row) {
@@ -1,9 +1,9 @@
 package pieces;
 
+import engine.Evaluator;
+import engine.Pieces;
 import main.Board;
 
-import java.awt.image.BufferedImage;
-
 public class Pawn extends Piece {
     public Pawn(Board board, int col, int row, boolean isWhite) {
         super(board);
@@ -14,8 +14,7 @@ public class Pawn extends Piece {
 
         this.isWhite = isWhite;
         this.name = "Pawn";
-
-        this.sprite = sheet.getSubimage(5 * sheetScale, isWhite ? 0 : sheetScale, sheetScale, sheetScale).getScaledInstance(board.tileSize, board.tileSize, BufferedImage.SCALE_SMOOTH);
+        this.value = Evaluator.PIECE_VALUES[Pieces.PAWN];
 
     }
 
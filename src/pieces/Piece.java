@@ -1,11 +1,9 @@
 package pieces;
 
+import engine.Pieces;
 import main.Board;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 
 
 public class Piece {
@@ -19,23 +17,16 @@ public class Piece {
 
     public boolean isFirstMove = true;
 
-    BufferedImage sheet;
-    {
-        try {
-            sheet = ImageIO.read(ClassLoader.getSystemResourceAsStream("pieces.png"));
-
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-    protected int sheetScale = sheet.getWidth() / 6;
-
-    Image sprite;
+    /**
+     * Sprites compartilhados por todas as peças com o mesmo tamanho de casa
+     */
+    SpriteAtlas atlas;
 
     Board board;
 
     public Piece(Board board) {
         this.board = board;
+        this.atlas = SpriteAtlas.forTileSize(board.tileSize);
     }
 
     public boolean isValidMovement(int col, int row) {return true;}
@@ -43,7 +34,7 @@ public class Piece {
 
     public void paint(Graphics2D g2d) {
 
-        g2d.drawImage(sprite, xPos, yPos, null);
+        atlas.draw(g2d, Pieces.code(isWhite ? Pieces.WHITE : Pieces.BLACK, Pieces.typeOf(name)), xPos, yPos);
 
     }
 
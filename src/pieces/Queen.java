@@ -1,9 +1,9 @@
 package pieces;
 
+import engine.Evaluator;
+import engine.Pieces;
 import main.Board;
 
-import java.awt.image.BufferedImage;
-
 public class Queen extends Piece {
     public Queen(Board board, int col, int row, boolean isWhite) {
         super(board);
@@ -14,8 +14,7 @@ public class Queen extends Piece {
 
         this.isWhite = isWhite;
         this.name = "Queen";
-
-        this.sprite = sheet.getSubimage(sheetScale, isWhite ? 0 : sheetScale, sheetScale, sheetScale).getScaledInstance(board.tileSize, board.tileSize, BufferedImage.SCALE_SMOOTH);
+        this.value = Evaluator.PIECE_VALUES[Pieces.QUEEN];
 
     }
 
@@ -24,77 +23,6 @@ public class Queen extends Piece {
     }
 
     public boolean moveCollidesWithPiece(int col, int row) {
-
-        if (this.col == col || this.row == row) {
-
-        // Esquerda
-        if (this.col > col) {
-            for (int c = this.col - 1; c > col; c--) {
-                if (board.getPiece(c, this.row) != null) {
-                    return true;
-                }
-            }
-        }
-        // Direita
-        if (this.col < col) {
-            for (int c = this.col + 1; c < col; c++) {
-                if (board.getPiece(c, this.row) != null) {
-                    return true;
-                }
-            }
-        }
-        // Cima
-        if (this.row > row) {
-            for (int r = this.row - 1; r > row; r--) {
-                if (board.getPiece(this.col, r) != null) {
-                    return true;
-                }
-            }
-        }
-        // Baixo
-        if (this.row < row) {
-            for (int r = this.row + 1; r < row; r++) {
-                if (board.getPiece(this.col, r) != null) {
-                    return true;
-                }
-            }
-        }
-        } else {
-// Diagonal superior esquerda
-            if (this.col > col && this.row > row) {
-                for (int i = 1; i < Math.abs(this.col - col); i++) {
-                    if (board.getPiece(this.col - i, this.row - i) != null) {
-                        return true;
-                    }
-                }
-            }
-            // Diagonal superior direita
-            if (this.col < col && this.row > row) {
-                for (int i = 1; i < Math.abs(this.col - col); i++) {
-                    if (board.getPiece(this.col + i, this.row - i) != null) {
-                        return true;
-                    }
-                }
-            }
-            // Diagonal inferior esquerda
-            if (this.col > col && this.row < row) {
-                for (int i = 1; i < Math.abs(this.col - col); i++) {
-                    if (board.getPiece(this.col - i, this.row + i) != null) {
-                        return true;
-                    }
-                }
-            }
-            // Diagonal inferior direita
-            if (this.col < col && this.row < row) {
-                for (int i = 1; i < Math.abs(this.col - col); i++) {
-                    if (board.getPiece(this.col + i, this.row + i) != null) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
+        return !board.isPathClear(this.col, this.row, col, row);
     }
-
 }
@@ -1,9 +1,9 @@
 package pieces;
 
+import engine.Evaluator;
+import engine.Pieces;
 import main.Board;
 
-import java.awt.image.BufferedImage;
-
 public class Rook extends Piece {
     public Rook(Board board, int col, int row, boolean isWhite) {
         super(board);
@@ -14,8 +14,7 @@ public class Rook extends Piece {
 
         this.isWhite = isWhite;
         this.name = "Rook";
-
-        this.sprite = sheet.getSubimage(4 * sheetScale, isWhite ? 0 : sheetScale, sheetScale, sheetScale).getScaledInstance(board.tileSize, board.tileSize, BufferedImage.SCALE_SMOOTH);
+        this.value = Evaluator.PIECE_VALUES[Pieces.ROOK];
     }
 
     public boolean isValidMovement(int col, int row) {
@@ -23,38 +22,6 @@ public class Rook extends Piece {
     }
 
     public boolean moveCollidesWithPiece(int col, int row) {
-        // Esquerda
-        if (this.col > col) {
-            for (int c = this.col - 1; c > col; c--) {
-                if (board.getPiece(c, this.row) != null) {
-                    return true;
-                }
-            }
-        }
-        // Direita
-        if (this.col < col) {
-            for (int c = this.col + 1; c < col; c++) {
-                if (board.getPiece(c, this.row) != null) {
-                    return true;
-                }
-            }
-        }
-        // Cima
-        if (this.row > row) {
-            for (int r = this.row - 1; r > row; r--) {
-                if (board.getPiece(this.col, r) != null) {
-                    return true;
-                }
-            }
-        }
-        // Baixo
-        if (this.row < row) {
-            for (int r = this.row + 1; r < row; r++) {
-                if (board.getPiece(this.col, r) != null) {
-                    return true;
-                }
-            }
-        }
-                return false;
+        return !board.isPathClear(this.col, this.row, col, row);
     }
 }
@@ -0,0 +1,129 @@
+package pieces;
+
+import engine.Pieces;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imagens compartilhadas por todos os tabuleiros que usam o mesmo tamanho de casa: os sprites das doze peças, já
+ * redimensionados, em uma única imagem (atlas), e a imagem com as casas claras e escuras do tabuleiro.
+ * <p>
+ * A folha de sprites "pieces.png" é decodificada uma única vez por processo, e cada tamanho de casa é redimensionado
+ * uma única vez, na primeira vez em que é pedido. Como o atlas é uma imagem só, desenhar uma peça é copiar um retângulo
+ * dela, o que mantém a imagem na memória de vídeo mesmo com dezenas de tabuleiros na tela. As imagens não são
+ * alteradas depois de criadas e podem ser desenhadas por qualquer thread.
+ */
+public final class SpriteAtlas {
+
+    public static final Color LIGHT_COLOR = new Color(255, 255, 255);
+    public static final Color DARK_COLOR = new Color(29, 93, 120);
+
+    /**
+     * Coluna de cada tipo de peça na folha de sprites, indexada pelo tipo de {@link Pieces}; a linha de cima tem as
+     * peças brancas e a de baixo as pretas
+     */
+    private static final int[] SHEET_COLUMNS = {5, 3, 2, 4, 1, 0};
+
+    private static final Map<Integer, SpriteAtlas> ATLASES = new ConcurrentHashMap<>();
+
+    /**
+     * Folha de sprites original, carregada na primeira vez em que algum atlas é criado
+     */
+    private static final class Sheet {
+        static final BufferedImage IMAGE = load();
+
+        private static BufferedImage load() {
+            try (InputStream in = ClassLoader.getSystemResourceAsStream("pieces.png")) {
+                if (in == null) {
+                    throw new IllegalStateException("Recurso pieces.png não encontrado");
+                }
+                return ImageIO.read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private final int tileSize;
+    private final BufferedImage sprites;
+    private final Map<Long, BufferedImage> backgrounds = new ConcurrentHashMap<>();
+
+    private SpriteAtlas(int tileSize) {
+        this.tileSize = tileSize;
+        this.sprites = createImage(6 * tileSize, 2 * tileSize, Transparency.TRANSLUCENT);
+
+        BufferedImage sheet = Sheet.IMAGE;
+        int sheetScale = sheet.getWidth() / 6;
+        Graphics2D g2d = sprites.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        for (int color = Pieces.WHITE; color <= Pieces.BLACK; color++) {
+            for (int column = 0; column < 6; column++) {
+                Image sprite = sheet.getSubimage(column * sheetScale, color * sheetScale, sheetScale, sheetScale)
+                        .getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH);
+                g2d.drawImage(sprite, column * tileSize, color * tileSize, null);
+            }
+        }
+        g2d.dispose();
+    }
+
+    /**
+     * Retorna o atlas do tamanho de casa dado, criando-o na primeira chamada
+     */
+    public static SpriteAtlas forTileSize(int tileSize) {
+        return ATLASES.computeIfAbsent(tileSize, SpriteAtlas::new);
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Desenha a peça com o código dado (de {@link Pieces#code}) com o canto superior esquerdo em (x, y)
+     */
+    public void draw(Graphics2D g2d, int code, int x, int y) {
+        int sx = SHEET_COLUMNS[Pieces.type(code)] * tileSize;
+        int sy = Pieces.color(code) * tileSize;
+        g2d.drawImage(sprites, x, y, x + tileSize, y + tileSize, sx, sy, sx + tileSize, sy + tileSize, null);
+    }
+
+    /**
+     * Retorna a imagem com as casas de um tabuleiro com as dimensões dadas, criando-a na primeira chamada. A casa do
+     * canto superior esquerdo é clara
+     */
+    public BufferedImage background(int cols, int rows) {
+        return backgrounds.computeIfAbsent((long) cols << 32 | rows, key -> {
+            BufferedImage image = createImage(cols * tileSize, rows * tileSize, Transparency.OPAQUE);
+            Graphics2D g2d = image.createGraphics();
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++) {
+                    g2d.setColor(squareColor(c, r));
+                    g2d.fillRect(c * tileSize, r * tileSize, tileSize, tileSize);
+                }
+            g2d.dispose();
+            return image;
+        });
+    }
+
+    public static Color squareColor(int col, int row) {
+        return (col + row) % 2 == 0 ? LIGHT_COLOR : DARK_COLOR;
+    }
+
+    /**
+     * Cria uma imagem no formato da tela, quando há uma, para que possa ser copiada sem conversão
+     */
+    private static BufferedImage createImage(int width, int height, int transparency) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height,
+                transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+}
@@ -0,0 +1,142 @@
+package analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static testing.Assert.assertEquals;
+
+/**
+ * Compara as operações de {@link CompactBitmap} com as de {@link BitSet} em conjuntos sorteados com semente fixa, com
+ * blocos vazios, esparsos, perto de {@link CompactBitmap#ARRAY_LIMIT} (onde o bloco troca de representação) e densos
+ */
+public final class CompactBitmapTest {
+
+    private static final int BLOCKS = 6;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(37);
+        for (int round = 0; round < 40; round++) {
+            BitSet expectedA = randomSet(random);
+            BitSet expectedB = randomSet(random);
+            // Um conjunto é montado em ordem crescente e o outro fora de ordem, os dois caminhos de add
+            CompactBitmap a = build(expectedA, null);
+            CompactBitmap b = build(expectedB, random);
+
+            check(expectedA, a, "a");
+            check(expectedB, b, "b");
+
+            BitSet and = (BitSet) expectedA.clone();
+            and.and(expectedB);
+            check(and, CompactBitmap.and(a, b), "a and b");
+
+            BitSet or = (BitSet) expectedA.clone();
+            or.or(expectedB);
+            check(or, CompactBitmap.or(a, b), "a or b");
+
+            BitSet andNot = (BitSet) expectedA.clone();
+            andNot.andNot(expectedB);
+            check(andNot, CompactBitmap.andNot(a, b), "a andNot b");
+            BitSet reverse = (BitSet) expectedB.clone();
+            reverse.andNot(expectedA);
+            check(reverse, CompactBitmap.andNot(b, a), "b andNot a");
+
+            // Os operandos não podem ter sido alterados pelas operações
+            check(expectedA, a, "a depois das operações");
+            check(expectedB, b, "b depois das operações");
+
+            check(expectedA, roundTrip(a), "a gravado e lido");
+
+            for (int probe = 0; probe < 1000; probe++) {
+                int value = random.nextInt(BLOCKS << 16);
+                assertEquals(expectedA.get(value), a.contains(value), "contains(" + value + ")");
+            }
+        }
+    }
+
+    private static BitSet randomSet(Random random) {
+        BitSet set = new BitSet();
+        for (int block = 0; block < BLOCKS; block++) {
+            int size;
+            switch (random.nextInt(5)) {
+                case 0:
+                    size = 0;
+                    break;
+                case 1:
+                    size = 1 + random.nextInt(100);
+                    break;
+                case 2:
+                    size = CompactBitmap.ARRAY_LIMIT - 50 + random.nextInt(100);
+                    break;
+                case 3:
+                    size = 20000 + random.nextInt(20000);
+                    break;
+                default:
+                    size = 65536;
+            }
+            if (size == 65536) {
+                set.set(block << 16, (block + 1) << 16);
+                continue;
+            }
+            for (int added = 0; added < size; ) {
+                int value = (block << 16) | random.nextInt(65536);
+                if (!set.get(value)) {
+                    set.set(value);
+                    added++;
+                }
+            }
+        }
+        return set;
+    }
+
+    private static CompactBitmap build(BitSet values, Random shuffle) {
+        List<Integer> list = new ArrayList<>();
+        values.stream().forEach(list::add);
+        if (shuffle != null) {
+            Collections.shuffle(list, shuffle);
+        }
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int value : list) {
+            bitmap.add(value);
+        }
+        bitmap.trim();
+        return bitmap;
+    }
+
+    private static void check(BitSet expected, CompactBitmap actual, String name) {
+        BitSet values = new BitSet();
+        int[] last = {-1};
+        actual.forEach(value -> {
+            if (value <= last[0]) {
+                throw new AssertionError(name + ": forEach fora de ordem em " + value);
+            }
+            last[0] = value;
+            values.set(value);
+        });
+        assertEquals(expected, values, name + ": valores");
+        assertEquals(expected.cardinality(), actual.cardinality(), name + ": cardinalidade");
+        assertEquals(expected.isEmpty(), actual.isEmpty(), name + ": vazio");
+
+        int[] first = actual.first(10);
+        int[] expectedFirst = expected.stream().limit(10).toArray();
+        assertEquals(expectedFirst.length, first.length, name + ": quantidade de first(10)");
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(expectedFirst[i], first[i], name + ": first(10)[" + i + "]");
+        }
+    }
+
+    private static CompactBitmap roundTrip(CompactBitmap bitmap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            bitmap.writeTo(out);
+        }
+        return CompactBitmap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
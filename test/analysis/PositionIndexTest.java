@@ -0,0 +1,155 @@
+package analysis;
+
+import engine.MoveGen;
+import engine.Moves;
+import engine.Pieces;
+import engine.Position;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Indexa partidas aleatórias (com semente fixa) e compara o resultado de cada consulta com uma busca direta, que refaz
+ * as partidas e testa cada posição. São posições suficientes para ocupar mais de um bloco dos conjuntos compactados
+ */
+public final class PositionIndexTest {
+
+    private static final int GAMES = 2500;
+    private static final int MAX_PLIES = 60;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(41);
+        List<int[]> games = new ArrayList<>();
+        StringBuilder text = new StringBuilder("# partidas de teste\n");
+        for (int game = 0; game < GAMES; game++) {
+            int[] moves = randomGame(random);
+            games.add(moves);
+            for (int move : moves) {
+                text.append(Moves.toString(move)).append(' ');
+            }
+            text.append('\n');
+        }
+        // Uma partida com um movimento impossível: só a posição inicial dela é indexada
+        text.append("e2e5 e7e5\n");
+
+        PositionIndex index = new PositionIndex();
+        index.addGames(new BufferedReader(new StringReader(text.toString())));
+        assertEquals(GAMES + 1, index.gameCount(), "partidas");
+        assertEquals(1, index.invalidGames(), "partidas inválidas");
+
+        Map<String, Predicate<Position>> queries = queries();
+        Map<String, BitSet> expected = new LinkedHashMap<>();
+        for (String query : queries.keySet()) {
+            expected.put(query, new BitSet());
+        }
+        int id = 0;
+        for (int game = 0; game <= GAMES; game++) {
+            int[] moves = game < GAMES ? games.get(game) : new int[0];
+            Position position = Position.startPosition();
+            for (int ply = 0; ply <= moves.length; ply++, id++) {
+                assertEquals(game, index.gameOf(id), "partida da posição " + id);
+                assertEquals(ply, index.plyOf(id), "meio-lance da posição " + id);
+                for (Map.Entry<String, Predicate<Position>> query : queries.entrySet()) {
+                    if (query.getValue().test(position)) {
+                        expected.get(query.getKey()).set(id);
+                    }
+                }
+                if (ply < moves.length) {
+                    position.make(moves[ply]);
+                }
+            }
+        }
+        assertEquals(id, index.positionCount(), "posições");
+        assertTrue(id > 65536, "mais de um bloco de posições");
+
+        Path file = Files.createTempFile("index", ".bin");
+        try {
+            index.save(file);
+            PositionIndex loaded = PositionIndex.load(file);
+            for (Map.Entry<String, BitSet> query : expected.entrySet()) {
+                check(query.getValue(), index.query(query.getKey()), query.getKey());
+                check(query.getValue(), loaded.query(query.getKey()), query.getKey() + " (índice carregado)");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Map<String, Predicate<Position>> queries() {
+        Map<String, Predicate<Position>> queries = new LinkedHashMap<>();
+        queries.put("Ra1", p -> p.pieceAt(Moves.parseSquare("a1")) == Pieces.fromChar('R'));
+        queries.put("R/7", p -> (count(p, 'R', 0xFF00L)) > 0);
+        queries.put("p:e", p -> (count(p, 'p', 0x1010101010101010L)) > 0);
+        queries.put("Q=1", p -> count(p, 'Q', -1L) == 1);
+        queries.put("P>=6", p -> count(p, 'P', -1L) >= 6);
+        queries.put("b", p -> p.sideToMove() == Pieces.BLACK);
+        queries.put("material:KQRRBBNNPPPPPPPPkqrrbbnnpppppppp", p -> Long.bitCount(p.occupied()) == 32);
+        queries.put("opposite-bishops", PositionIndexTest::oppositeBishops);
+        queries.put("opposite-bishops -(Q=1 | q=1)", p -> oppositeBishops(p) && count(p, 'Q', -1L) != 1 && count(p, 'q', -1L) != 1);
+        queries.put("R/7 -(Q=1 | q=1) | opposite-bishops b", p -> count(p, 'R', 0xFF00L) > 0 && count(p, 'Q', -1L) != 1
+                && count(p, 'q', -1L) != 1 || oppositeBishops(p) && p.sideToMove() == Pieces.BLACK);
+        queries.put("-(N:c | b) P>=6", p -> !(count(p, 'N', 0x0404040404040404L) > 0 || p.sideToMove() == Pieces.BLACK)
+                && count(p, 'P', -1L) >= 6);
+        queries.put("(Ra1 | Rh1) (ra8 | rh8) -Ke1", p -> (p.pieceAt(Moves.parseSquare("a1")) == Pieces.fromChar('R')
+                || p.pieceAt(Moves.parseSquare("h1")) == Pieces.fromChar('R'))
+                && (p.pieceAt(Moves.parseSquare("a8")) == Pieces.fromChar('r') || p.pieceAt(Moves.parseSquare("h8")) == Pieces.fromChar('r'))
+                && p.pieceAt(Moves.parseSquare("e1")) != Pieces.fromChar('K'));
+        return queries;
+    }
+
+    private static int count(Position position, char piece, long mask) {
+        int code = Pieces.fromChar(piece);
+        return Long.bitCount(position.pieces(Pieces.color(code), Pieces.type(code)) & mask);
+    }
+
+    /**
+     * Cada lado tem bispos em uma só cor de casa, e as cores são diferentes (a8 é uma casa clara)
+     */
+    private static boolean oppositeBishops(Position position) {
+        long light = 0xAA55AA55AA55AA55L;
+        long white = position.pieces(Pieces.WHITE, Pieces.BISHOP);
+        long black = position.pieces(Pieces.BLACK, Pieces.BISHOP);
+        boolean whiteLight = (white & light) != 0;
+        boolean whiteDark = (white & ~light) != 0;
+        boolean blackLight = (black & light) != 0;
+        boolean blackDark = (black & ~light) != 0;
+        return whiteLight && !whiteDark && blackDark && !blackLight || whiteDark && !whiteLight && blackLight && !blackDark;
+    }
+
+    private static int[] randomGame(Random random) {
+        Position position = Position.startPosition();
+        int[] buffer = new int[MoveGen.MAX_MOVES];
+        int plies = 1 + random.nextInt(MAX_PLIES);
+        int[] moves = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = MoveGen.generate(position, buffer);
+            if (count == 0) {
+                return Arrays.copyOf(moves, ply);
+            }
+            moves[ply] = buffer[random.nextInt(count)];
+            position.make(moves[ply]);
+        }
+        return moves;
+    }
+
+    private static void check(BitSet expected, CompactBitmap actual, String query) {
+        BitSet values = new BitSet();
+        actual.forEach(values::set);
+        assertEquals(expected.cardinality(), values.cardinality(), query + ": quantidade de posições");
+        assertEquals(expected, values, query + ": posições");
+    }
+}
@@ -0,0 +1,115 @@
+package analysis;
+
+import engine.Evaluator;
+import engine.Fen;
+import engine.MoveGen;
+import engine.Pieces;
+import engine.Position;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Converte posições de partidas aleatórias (com semente fixa), em mais de um bloco, e verifica que o erro calculado
+ * pelo ajuste é o mesmo com as posições em memória, lidas do disco a cada passada e calculadas direto com
+ * {@link Evaluator#evaluate}, e que algumas épocas de Adam diminuem o erro
+ */
+public final class TexelTunerTest {
+
+    private static final double K = 1.0;
+
+    public static void main(String[] args) throws IOException {
+        List<Position> positions = new ArrayList<>();
+        List<Integer> results = new ArrayList<>();
+        StringBuilder epd = new StringBuilder();
+        Random random = new Random(43);
+        while (positions.size() <= TexelTuner.BATCH_SIZE + 5000) {
+            Position position = Position.startPosition();
+            int[] moves = new int[MoveGen.MAX_MOVES];
+            for (int ply = 0; ply < 80; ply++) {
+                int count = MoveGen.generate(position, moves);
+                if (count == 0) {
+                    break;
+                }
+                position.make(moves[random.nextInt(count)]);
+                if (ply >= 10) {
+                    // O resultado segue o material, para que o ajuste tenha o que aprender
+                    int material = material(position);
+                    int result = material > 0 ? 2 : material < 0 ? 0 : 1;
+                    Position copy = new Position();
+                    copy.copyFrom(position);
+                    positions.add(copy);
+                    results.add(result);
+                    epd.append(Fen.toFen(position)).append(" c9 \"")
+                            .append(result == 2 ? "1-0" : result == 0 ? "0-1" : "1/2-1/2").append("\";\n");
+                }
+            }
+        }
+
+        Path file = Files.createTempFile("texel", ".bin");
+        try {
+            long converted = TexelTuner.convert(new BufferedReader(new StringReader(epd.toString())), file);
+            assertEquals(positions.size(), converted, "posições convertidas");
+
+            double expected = directLoss(positions, results);
+            try (TexelTuner.DataSet memory = TexelTuner.DataSet.open(file, Long.MAX_VALUE);
+                 TexelTuner.DataSet streamed = TexelTuner.DataSet.open(file, 0);
+                 TexelTuner tuner = new TexelTuner(2, K, Evaluator.parameters())) {
+                assertTrue(memory.inMemory(), "posições em memória");
+                assertTrue(!streamed.inMemory(), "posições lidas do disco");
+                assertEquals(positions.size(), streamed.size, "posições lidas");
+
+                double inMemory = tuner.loss(memory);
+                assertTrue(Math.abs(inMemory - expected) < 1e-9, "erro em memória " + inMemory + " e calculado direto " + expected);
+                assertTrue(Math.abs(tuner.loss(streamed) - inMemory) < 1e-12, "erro lido do disco igual ao em memória");
+
+                TexelTuner.Adam optimizer = new TexelTuner.Adam(Evaluator.PARAMETER_COUNT, 1.0);
+                double first = tuner.epoch(memory, optimizer);
+                assertTrue(Math.abs(first - inMemory) < 1e-12, "erro da primeira época");
+                for (int epoch = 0; epoch < 20; epoch++) {
+                    tuner.epoch(streamed, optimizer);
+                }
+                double tuned = tuner.loss(memory);
+                assertTrue(tuned < inMemory, "o ajuste diminui o erro: " + inMemory + " -> " + tuned);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static int material(Position position) {
+        int material = 0;
+        for (int type = Pieces.PAWN; type < Pieces.KING; type++) {
+            material += Evaluator.PIECE_VALUES[type] * (Long.bitCount(position.pieces(Pieces.WHITE, type))
+                    - Long.bitCount(position.pieces(Pieces.BLACK, type)));
+        }
+        return material;
+    }
+
+    /**
+     * Erro quadrático médio calculado direto com a avaliação, do ponto de vista das brancas
+     */
+    private static double directLoss(List<Position> positions, List<Integer> results) {
+        double sum = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            Position position = positions.get(i);
+            int score = Evaluator.evaluate(position);
+            if (position.sideToMove() == Pieces.BLACK) {
+                score = -score;
+            }
+            double predicted = 1.0 / (1.0 + Math.exp(-K * score * Math.log(10) / 400));
+            double error = results.get(i) * 0.5 - predicted;
+            sum += error * error;
+        }
+        return sum / positions.size();
+    }
+}
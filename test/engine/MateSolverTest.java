@@ -0,0 +1,100 @@
+package engine;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Problemas de mate com resposta conhecida, conferidos também contra uma busca completa simples (sem tabela e sem
+ * números de prova) que serve de referência
+ */
+public final class MateSolverTest {
+
+    public static void main(String[] args) {
+        MateSolver solver = new MateSolver(16);
+
+        // Mate do corredor: Ta8#
+        checkMate(solver, "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", 1);
+        // Escada de torres: 1.Ta7 Rg8 2.Tb8#
+        checkMate(solver, "7k/8/8/8/8/8/1R6/R6K w - - 0 1", 2);
+        // Rei e torre contra rei, com o rei defensor já no canto
+        checkMate(solver, "k7/8/2K5/8/8/8/8/7R w - - 0 1", 2);
+        checkMate(solver, "k7/8/8/3K4/8/8/8/7R w - - 0 1", 3);
+
+        // Sem material para dar mate
+        checkNoMate(solver, "4k3/8/8/8/8/8/8/4K3 w - - 0 1", 3);
+        checkNoMate(solver, "4k3/8/8/8/8/8/8/3NK3 w - - 0 1", 3);
+        // O lado que tem a vez não tem movimentos (afogado): não é mate
+        checkNoMate(solver, "k7/2Q5/1K6/8/8/8/8/8 b - - 0 1", 1);
+    }
+
+    /**
+     * Verifica que o mate sai exatamente em {@code mateIn} lances: é provado nesse limite, refutado no limite anterior,
+     * confere com a busca de referência e a variação principal termina em mate
+     */
+    private static void checkMate(MateSolver solver, String fen, int mateIn) {
+        Position position = Fen.parse(fen);
+        long hash = position.hash();
+
+        MateSolver.Result result = solver.solve(position, mateIn, 0);
+        assertEquals(MateSolver.PROVEN, result.status, fen + ": mate em " + mateIn);
+        assertEquals(hash, position.hash(), fen + ": posição restaurada");
+        assertTrue(mates(position, mateIn), fen + ": referência confirma o mate em " + mateIn);
+
+        assertEquals(2L * mateIn - 1, result.pv.length, fen + ": tamanho da variação principal");
+        for (int move : result.pv) {
+            assertTrue(MoveGen.isLegal(position, move), fen + ": movimento legal " + Moves.toString(move));
+            position.make(move);
+        }
+        assertEquals(0, MoveGen.generate(position, new int[MoveGen.MAX_MOVES]), fen + ": variação termina sem movimentos");
+        assertTrue(position.inCheck(position.sideToMove()), fen + ": variação termina em xeque-mate");
+
+        if (mateIn > 1) {
+            position = Fen.parse(fen);
+            assertEquals(MateSolver.DISPROVEN, solver.solve(position, mateIn - 1, 0).status, fen + ": sem mate em " + (mateIn - 1));
+            assertTrue(!mates(position, mateIn - 1), fen + ": referência confirma que não há mate em " + (mateIn - 1));
+        }
+    }
+
+    private static void checkNoMate(MateSolver solver, String fen, int mateIn) {
+        Position position = Fen.parse(fen);
+        assertEquals(MateSolver.DISPROVEN, solver.solve(position, mateIn, 0).status, fen + ": sem mate em " + mateIn);
+        assertTrue(!mates(position, mateIn), fen + ": referência confirma que não há mate em " + mateIn);
+    }
+
+    /**
+     * Busca de referência: o lado que tem a vez dá mate em no máximo {@code mateIn} lances
+     */
+    private static boolean mates(Position position, int mateIn) {
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        int count = MoveGen.generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            boolean mated = defenderLoses(position, mateIn);
+            position.unmake(moves[i]);
+            if (mated) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean defenderLoses(Position position, int mateIn) {
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        int count = MoveGen.generate(position, moves);
+        if (count == 0) {
+            return position.inCheck(position.sideToMove());
+        }
+        if (mateIn == 1) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            boolean mated = mates(position, mateIn - 1);
+            position.unmake(moves[i]);
+            if (!mated) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package engine;
+
+import java.util.Random;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Refaz partidas aleatórias (com semente fixa) e compara, a cada meio-lance, o hash dos peões mantido por
+ * {@link Position#make} e {@link Position#unmake} com o recalculado do zero, e a avaliação com a tabela de peões com a
+ * avaliação sem cache. Uma tabela pequena força colisões de índice entre estruturas diferentes
+ */
+public final class PawnHashTableTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(39);
+        PawnHashTable table = new PawnHashTable(64);
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        for (int game = 0; game < 300; game++) {
+            Position position = Position.startPosition();
+            for (int ply = 0; ply < 120; ply++) {
+                assertEquals(pawnHashFromScratch(position), position.pawnHash(), "hash dos peões depois de make");
+                assertEquals(Evaluator.evaluate(position), Evaluator.evaluate(position, table), "avaliação com a tabela");
+                // A segunda consulta da mesma estrutura sempre acerta
+                assertEquals(Evaluator.evaluate(position), Evaluator.evaluate(position, table), "avaliação repetida");
+
+                int count = MoveGen.generate(position, moves);
+                if (count == 0) {
+                    break;
+                }
+                int move = moves[random.nextInt(count)];
+                long before = position.pawnHash();
+                position.make(move);
+                if (random.nextInt(4) == 0) {
+                    position.unmake(move);
+                    assertEquals(before, position.pawnHash(), "hash dos peões depois de unmake");
+                    position.make(move);
+                }
+            }
+        }
+        assertTrue(table.probes() > 0 && table.hits() > 0 && table.hits() < table.probes(), "estatísticas da tabela");
+        assertTrue(Math.abs(table.hitRate() - (double) table.hits() / table.probes()) < 1e-12, "taxa de acerto");
+    }
+
+    private static long pawnHashFromScratch(Position position) {
+        Position copy = new Position();
+        for (int sq = 0; sq < 64; sq++) {
+            int code = position.pieceAt(sq);
+            if (code != Pieces.EMPTY) {
+                copy.put(sq, code);
+            }
+        }
+        return copy.pawnHash();
+    }
+}
@@ -0,0 +1,63 @@
+package engine;
+
+import java.util.Random;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Joga partidas aleatórias (com semente fixa) avançando ao mesmo tempo uma {@link Position} com {@link Position#make(int)}
+ * e uma {@link PositionSnapshot} com {@link PositionSnapshot#after(int)}, e confere depois de cada lance que as duas
+ * descrevem a mesma posição: peças, conjuntos, lado com a vez, hash e número de sequência
+ */
+public final class PositionSnapshotTest {
+
+    private static final int GAMES = 300;
+    private static final int MAX_PLIES = 120;
+
+    public static void main(String[] args) {
+        Random random = new Random(41);
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        int checked = 0;
+        for (int game = 0; game < GAMES; game++) {
+            Position position = Position.startPosition();
+            PositionSnapshot snapshot = PositionSnapshot.of(position, 0, false);
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                int count = MoveGen.generate(position, moves);
+                if (count == 0) {
+                    break;
+                }
+                int move = moves[random.nextInt(count)];
+                PositionSnapshot before = snapshot;
+                position.make(move);
+                snapshot = snapshot.after(move, ply == MAX_PLIES - 1);
+
+                assertSame(position, snapshot, "partida " + game + ", lance " + ply);
+                assertEquals(ply + 1, snapshot.sequence(), "sequência");
+                assertEquals(ply == MAX_PLIES - 1, snapshot.isGameOver(), "fim de jogo");
+                assertEquals(PositionSnapshot.of(position, 0, false), snapshot, "igual a uma cópia completa");
+
+                long expected = 1L << Moves.from(move) | 1L << Moves.to(move);
+                assertEquals(expected, before.difference(snapshot), "casas alteradas");
+                assertEquals(position.hash(), snapshot.toPosition().hash(), "ida e volta por Position");
+                checked++;
+            }
+        }
+        assertTrue(checked > GAMES * 50, "posições conferidas: " + checked);
+    }
+
+    private static void assertSame(Position position, PositionSnapshot snapshot, String where) {
+        for (int sq = 0; sq < 64; sq++) {
+            assertEquals(position.pieceAt(sq), snapshot.pieceAt(sq), where + ", casa " + Moves.squareName(sq));
+        }
+        for (int color = Pieces.WHITE; color <= Pieces.BLACK; color++) {
+            for (int type = Pieces.PAWN; type <= Pieces.KING; type++) {
+                assertEquals(position.pieces(color, type), snapshot.pieces(color, type), where + ", conjunto " + Pieces.toChar(Pieces.code(color, type)));
+            }
+            assertEquals(position.colorPieces(color), snapshot.colorPieces(color), where + ", cor " + color);
+        }
+        assertEquals(position.occupied(), snapshot.occupied(), where + ", ocupadas");
+        assertEquals(position.sideToMove(), snapshot.sideToMove(), where + ", lado com a vez");
+        assertEquals(position.hash(), snapshot.hash(), where + ", hash");
+    }
+}
@@ -0,0 +1,23 @@
+package engine;
+
+import static testing.Assert.assertEquals;
+
+/**
+ * Trocas com resultado conhecido, calculado à mão com os valores de {@link See#SEE_VALUES}
+ */
+public final class SeeTest {
+
+    public static void main(String[] args) {
+        assertEquals(320, see("4k3/8/8/3n4/4P3/8/8/4K3 w - - 0 1", "e4d5"), "peão captura cavalo sem defesa");
+        assertEquals(-400, see("4k3/8/3p4/4p3/8/8/8/K3R3 w - - 0 1", "e1e5"), "torre captura peão defendido por peão");
+        assertEquals(-400, see("4r2k/8/8/4p3/8/8/4R3/K7 w - - 0 1", "e2e5"), "torre captura peão defendido por torre");
+        assertEquals(100, see("4r2k/8/8/4p3/8/8/4R3/K3R3 w - - 0 1", "e2e5"), "a segunda torre entra em raio-x");
+        assertEquals(-320, see("4k3/8/8/8/4p3/8/8/4K1N1 w - - 0 1", "g1f3"), "cavalo vai para casa atacada por peão");
+        assertEquals(0, see("4k3/8/8/8/8/8/8/4K1N1 w - - 0 1", "g1f3"), "movimento para casa sem atacantes");
+        assertEquals(-570, see("3rk3/8/8/3b4/8/8/8/3QK3 w - - 0 1", "d1d5"), "dama captura bispo defendido por torre");
+    }
+
+    private static int see(String fen, String move) {
+        return See.see(Fen.parse(fen), Moves.parse(move));
+    }
+}
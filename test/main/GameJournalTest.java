@@ -0,0 +1,125 @@
+package main;
+
+import engine.MoveGen;
+import engine.Position;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Grava uma partida aleatória (com semente fixa) no diário e verifica a recuperação do arquivo inteiro, de cópias
+ * cortadas em vários pontos (inclusive no meio de um movimento, antes e depois do ponto de controle) e de um diário
+ * cortado que é reaberto e continuado
+ */
+public final class GameJournalTest {
+
+    private static final int MOVES = 300;
+    private static final int POSITION_RECORD = 66;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("journal");
+        try {
+            run(dir);
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void run(Path dir) throws IOException {
+        // O escritor nunca acorda sozinho; o teste chama commit() depois de cada movimento
+        JournalWriter writer = new JournalWriter(Long.MAX_VALUE / 2_000_000);
+        Path file = dir.resolve("game.journal");
+
+        int[] moves = playRandomGame(new Random(29));
+        long[] hashes = replay(moves);
+
+        GameJournal journal = new GameJournal(file, Position.startPosition(), 0, writer);
+        for (int move : moves) {
+            journal.append(move);
+            journal.commit();
+        }
+        journal.close();
+
+        assertEquals(POSITION_RECORD + 2L * MOVES, Files.size(file), "tamanho do diário");
+        assertTrue(Files.exists(GameJournal.checkpointPath(file)), "ponto de controle gravado");
+        checkRecovery(file, hashes, MOVES);
+
+        byte[] data = Files.readAllBytes(file);
+        int checkpointPly = GameJournal.CHECKPOINT_INTERVAL;
+        int[] cuts = {MOVES, MOVES - 1, checkpointPly + 1, checkpointPly, checkpointPly - 1, 100, 1, 0};
+        for (int ply : cuts) {
+            for (int extra = 0; extra <= 1; extra++) {
+                // extra = 1 deixa o primeiro byte do movimento seguinte, como uma escrita interrompida
+                int length = Math.min(data.length, POSITION_RECORD + 2 * ply + extra);
+                Path cut = dir.resolve("cut-" + ply + "-" + extra + ".journal");
+                Files.write(cut, Arrays.copyOf(data, length));
+                Files.copy(GameJournal.checkpointPath(file), GameJournal.checkpointPath(cut));
+                checkRecovery(cut, hashes, ply);
+            }
+        }
+
+        // Reabrir um diário cortado descarta o movimento pela metade e continua a partir do último completo
+        Path torn = dir.resolve("cut-100-1.journal");
+        GameJournal.Recovered recovered = GameJournal.recover(torn);
+        journal = new GameJournal(torn, recovered.position, recovered.ply, writer);
+        for (int ply = 100; ply < MOVES; ply++) {
+            journal.append(moves[ply]);
+            journal.commit();
+        }
+        journal.close();
+        assertEquals(POSITION_RECORD + 2L * MOVES, Files.size(torn), "tamanho do diário continuado");
+        checkRecovery(torn, hashes, MOVES);
+    }
+
+    private static void checkRecovery(Path file, long[] hashes, int ply) throws IOException {
+        GameJournal.Recovered recovered = GameJournal.recover(file);
+        assertTrue(recovered != null, file.getFileName() + ": diário recuperado");
+        assertEquals(ply, recovered.ply, file.getFileName() + ": meios-lances");
+        assertEquals(hashes[ply], recovered.position.hash(), file.getFileName() + ": posição");
+    }
+
+    /**
+     * Sorteia uma partida de {@link #MOVES} movimentos legais; sorteia de novo se a partida acabar antes
+     */
+    private static int[] playRandomGame(Random random) {
+        int[] buffer = new int[MoveGen.MAX_MOVES];
+        while (true) {
+            Position position = Position.startPosition();
+            int[] moves = new int[MOVES];
+            int ply = 0;
+            for (; ply < MOVES; ply++) {
+                int count = MoveGen.generate(position, buffer);
+                if (count == 0) {
+                    break;
+                }
+                moves[ply] = buffer[random.nextInt(count)];
+                position.make(moves[ply]);
+            }
+            if (ply == MOVES) {
+                return moves;
+            }
+        }
+    }
+
+    private static long[] replay(int[] moves) {
+        Position position = Position.startPosition();
+        long[] hashes = new long[moves.length + 1];
+        hashes[0] = position.hash();
+        for (int i = 0; i < moves.length; i++) {
+            position.make(moves[i]);
+            hashes[i + 1] = position.hash();
+        }
+        return hashes;
+    }
+}
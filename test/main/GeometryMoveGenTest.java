@@ -0,0 +1,208 @@
+package main;
+
+import engine.Geometry;
+import engine.GeometryPosition;
+import engine.MoveGen;
+import engine.Moves;
+import engine.Pieces;
+import pieces.Piece;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Joga partidas aleatórias (com semente fixa) no tabuleiro gráfico em 8x8, 10x8 e 10x10 e, em cada posição, compara
+ * três listas de lances legais: a do {@link Board} (cada peça validada em cada casa), a de
+ * {@link MoveGen#generate(GeometryPosition, int[])} e a de um verificador ingênuo, que anda casa a casa por linhas e
+ * colunas sem nenhuma tabela e descarta os lances que deixam o próprio rei atacado. Em 8x8 compara também com o
+ * {@link MoveGen} da {@link engine.Position}
+ */
+public final class GeometryMoveGenTest {
+
+    private static final int GAMES = 25;
+    private static final int MAX_PLIES = 120;
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    private static final int[][] ROOK_STEPS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+    private static final int[][] BISHOP_STEPS = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+
+    public static void main(String[] args) {
+        Random random = new Random(43);
+        for (Geometry geometry : new Geometry[]{Geometry.STANDARD, Geometry.of(10, 8), Geometry.of(10, 10)}) {
+            int positions = 0;
+            for (int game = 0; game < GAMES; game++) {
+                Board board = new Board(geometry);
+                for (int ply = 0; ply < MAX_PLIES; ply++) {
+                    String where = geometry + ", partida " + game + ", lance " + ply;
+                    List<Move> legal = new ArrayList<>();
+                    Set<Integer> boardMoves = new HashSet<>();
+                    for (Piece piece : new ArrayList<>(board.pieceList)) {
+                        for (int sq = 0; sq < geometry.squares; sq++) {
+                            Move move = new Move(board, piece, geometry.col(sq), geometry.row(sq));
+                            if (board.isValidMove(move)) {
+                                legal.add(move);
+                                boardMoves.add(move.toWideMove(geometry));
+                            }
+                        }
+                    }
+
+                    GeometryPosition position = board.toGeometryPosition();
+                    assertEquals(reference(position), boardMoves, where + ": tabuleiro contra o verificador ingênuo");
+                    assertEquals(boardMoves, generated(position), where + ": tabuleiro contra o MoveGen");
+                    if (geometry == Geometry.STANDARD) {
+                        assertEquals(boardMoves, standard(board), where + ": tabuleiro contra o MoveGen 8x8");
+                    }
+                    positions++;
+
+                    if (legal.isEmpty()) {
+                        break;
+                    }
+                    board.makeMove(legal.get(random.nextInt(legal.size())));
+                }
+            }
+            assertTrue(positions > GAMES * 20, geometry + ": posições conferidas: " + positions);
+        }
+    }
+
+    private static Set<Integer> generated(GeometryPosition position) {
+        int[] moves = new int[MoveGen.maxMoves(position.geometry)];
+        int count = MoveGen.generate(position, moves);
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.add(moves[i]), "lance repetido " + moves[i]);
+        }
+        return set;
+    }
+
+    private static Set<Integer> standard(Board board) {
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        int count = MoveGen.generate(board.toPosition(), moves);
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            set.add(Moves.wide(Moves.from(moves[i]), Moves.to(moves[i])));
+        }
+        return set;
+    }
+
+    /**
+     * Lances legais do lado com a vez calculados sem tabelas: destinos de cada peça casa a casa e, para cada um, o
+     * tabuleiro depois do lance é examinado em busca de alguma peça adversária que alcance o rei
+     */
+    private static Set<Integer> reference(GeometryPosition position) {
+        Geometry geometry = position.geometry;
+        int[] squares = new int[geometry.squares];
+        for (int sq = 0; sq < squares.length; sq++) {
+            squares[sq] = position.pieceAt(sq);
+        }
+        int side = position.sideToMove();
+        Set<Integer> legal = new HashSet<>();
+        for (int from = 0; from < squares.length; from++) {
+            if (squares[from] == Pieces.EMPTY || Pieces.color(squares[from]) != side) {
+                continue;
+            }
+            for (int to : targets(geometry, squares, from, false)) {
+                int[] after = squares.clone();
+                after[to] = after[from];
+                after[from] = Pieces.EMPTY;
+                if (!kingAttacked(geometry, after, side)) {
+                    legal.add(Moves.wide(from, to));
+                }
+            }
+        }
+        return legal;
+    }
+
+    private static boolean kingAttacked(Geometry geometry, int[] squares, int color) {
+        int king = -1;
+        for (int sq = 0; sq < squares.length; sq++) {
+            if (squares[sq] == Pieces.code(color, Pieces.KING)) {
+                king = sq;
+            }
+        }
+        if (king < 0) {
+            return false;
+        }
+        for (int sq = 0; sq < squares.length; sq++) {
+            if (squares[sq] != Pieces.EMPTY && Pieces.color(squares[sq]) != color
+                    && targets(geometry, squares, sq, true).contains(king)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Casas para onde a peça pode ir sem considerar o xeque, ou só as que ela ataca quando {@code attacksOnly}
+     */
+    private static List<Integer> targets(Geometry geometry, int[] squares, int from, boolean attacksOnly) {
+        int code = squares[from];
+        int color = Pieces.color(code);
+        int col = geometry.col(from);
+        int row = geometry.row(from);
+        List<Integer> targets = new ArrayList<>();
+        switch (Pieces.type(code)) {
+            case Pieces.PAWN:
+                int forward = color == Pieces.WHITE ? -1 : 1;
+                for (int side = -1; side <= 1; side += 2) {
+                    if (geometry.contains(col + side, row + forward)) {
+                        int to = geometry.square(col + side, row + forward);
+                        if (attacksOnly || squares[to] != Pieces.EMPTY && Pieces.color(squares[to]) != color) {
+                            targets.add(to);
+                        }
+                    }
+                }
+                if (!attacksOnly && geometry.contains(col, row + forward)
+                        && squares[geometry.square(col, row + forward)] == Pieces.EMPTY) {
+                    targets.add(geometry.square(col, row + forward));
+                    int start = color == Pieces.WHITE ? geometry.rows - 2 : 1;
+                    if (row == start && squares[geometry.square(col, row + 2 * forward)] == Pieces.EMPTY) {
+                        targets.add(geometry.square(col, row + 2 * forward));
+                    }
+                }
+                break;
+            case Pieces.KNIGHT:
+                step(geometry, squares, col, row, color, KNIGHT_STEPS, false, targets);
+                break;
+            case Pieces.BISHOP:
+                step(geometry, squares, col, row, color, BISHOP_STEPS, true, targets);
+                break;
+            case Pieces.ROOK:
+                step(geometry, squares, col, row, color, ROOK_STEPS, true, targets);
+                break;
+            case Pieces.QUEEN:
+                step(geometry, squares, col, row, color, ROOK_STEPS, true, targets);
+                step(geometry, squares, col, row, color, BISHOP_STEPS, true, targets);
+                break;
+            default:
+                step(geometry, squares, col, row, color, KING_STEPS, false, targets);
+                break;
+        }
+        return targets;
+    }
+
+    private static void step(Geometry geometry, int[] squares, int col, int row, int color, int[][] steps,
+                             boolean slide, List<Integer> targets) {
+        for (int[] delta : steps) {
+            int c = col + delta[0];
+            int r = row + delta[1];
+            while (geometry.contains(c, r)) {
+                int code = squares[geometry.square(c, r)];
+                if (code == Pieces.EMPTY || Pieces.color(code) != color) {
+                    targets.add(geometry.square(c, r));
+                }
+                if (code != Pieces.EMPTY || !slide) {
+                    break;
+                }
+                c += delta[0];
+                r += delta[1];
+            }
+        }
+    }
+}
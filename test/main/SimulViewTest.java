@@ -0,0 +1,111 @@
+package main;
+
+import engine.MoveGen;
+import engine.Position;
+import engine.PositionSnapshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Joga partidas aleatórias (com semente fixa) em uma {@link SimulView}, desenhando de tempos em tempos só as casas que
+ * mudaram, e confere que a imagem final é igual, pixel a pixel, à de uma visão nova que desenha as mesmas posições de
+ * uma vez só. As partidas terminam e recomeçam no meio, para cobrir também as legendas e os tabuleiros inteiros
+ */
+public final class SimulViewTest {
+
+    private static final int GAMES = 12;
+    private static final int COLUMNS = 4;
+    private static final int TILE_SIZE = 24;
+    private static final int ROUNDS = 400;
+    private static final int MAX_PLIES = 60;
+
+    public static void main(String[] args) throws Exception {
+        SimulView incremental = new SimulView(GAMES, COLUMNS, TILE_SIZE);
+        Random random = new Random(42);
+        Position[] positions = new Position[GAMES];
+        PositionSnapshot[] snapshots = new PositionSnapshot[GAMES];
+        int[] plies = new int[GAMES];
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        for (int game = 0; game < GAMES; game++) {
+            positions[game] = Position.startPosition();
+            snapshots[game] = PositionSnapshot.of(positions[game], 0, false);
+            incremental.update(game, snapshots[game]);
+        }
+        SwingUtilities.invokeAndWait(incremental::flush);
+        long initialSquares = incremental.drawnSquares();
+
+        int updates = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            // Várias atualizações entre dois desenhos, como quando o publicador junta uma rajada
+            int burst = 1 + random.nextInt(2 * GAMES);
+            for (int i = 0; i < burst; i++) {
+                int game = random.nextInt(GAMES);
+                snapshots[game] = next(positions[game], snapshots[game], plies, game, random, moves);
+                incremental.update(game, snapshots[game]);
+                updates++;
+            }
+            SwingUtilities.invokeAndWait(incremental::flush);
+        }
+
+        SimulView full = new SimulView(GAMES, COLUMNS, TILE_SIZE);
+        for (int game = 0; game < GAMES; game++) {
+            full.update(game, snapshots[game]);
+        }
+        SwingUtilities.invokeAndWait(full::flush);
+
+        BufferedImage expected = paint(full);
+        BufferedImage actual = paint(incremental);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel (" + x + ", " + y + ")");
+            }
+        }
+        assertEquals(64L * GAMES, initialSquares, "primeiro desenho com os tabuleiros inteiros");
+        assertTrue(incremental.drawnSquares() - initialSquares < 64L * updates / 4,
+                "casas redesenhadas: " + (incremental.drawnSquares() - initialSquares) + " em " + updates + " atualizações");
+    }
+
+    /**
+     * Avança uma partida como a demonstração da visão: um lance legal aleatório, o fim da partida quando não há lances
+     * ou ela fica longa demais, e o recomeço depois do fim
+     */
+    private static PositionSnapshot next(Position position, PositionSnapshot snapshot, int[] plies, int game,
+                                         Random random, int[] moves) {
+        if (snapshot.isGameOver()) {
+            position.copyFrom(Position.startPosition());
+            plies[game] = 0;
+            return PositionSnapshot.of(position, snapshot.sequence() + 1, false);
+        }
+        int count = MoveGen.generate(position, moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (MoveGen.isLegal(position, moves[i])) {
+                moves[legal++] = moves[i];
+            }
+        }
+        if (legal == 0 || plies[game] >= MAX_PLIES) {
+            return PositionSnapshot.of(position, snapshot.sequence() + 1, true);
+        }
+        int move = moves[random.nextInt(legal)];
+        position.make(move);
+        plies[game]++;
+        return snapshot.after(move);
+    }
+
+    private static BufferedImage paint(SimulView view) throws Exception {
+        Dimension size = view.getPreferredSize();
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        SwingUtilities.invokeAndWait(() -> {
+            Graphics2D g2d = image.createGraphics();
+            view.paintComponent(g2d);
+            g2d.dispose();
+        });
+        return image;
+    }
+}
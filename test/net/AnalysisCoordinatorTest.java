@@ -0,0 +1,145 @@
+package net;
+
+import analysis.BatchAnalyzer;
+import engine.Fen;
+import engine.MoveGen;
+import engine.Position;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static testing.Assert.assertEquals;
+import static testing.Assert.assertTrue;
+
+/**
+ * Distribui a avaliação de posições aleatórias (com semente fixa) entre três trabalhadores na mesma JVM: um que fecha a
+ * conexão depois de receber um lote, um que recebe lotes e para de responder, e um {@link AnalysisWorker} normal.
+ * A saída precisa ter todas as linhas, na ordem da entrada, e ser idêntica à do {@link BatchAnalyzer} local
+ */
+public final class AnalysisCoordinatorTest {
+
+    private static final int LINES = 600;
+    private static final int SHARD_SIZE = 50;
+
+    public static void main(String[] args) throws Exception {
+        String input = randomPositions(new Random(40));
+
+        StringWriter expected = new StringWriter();
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(2, 1, 0, true, 64)) {
+            assertEquals(LINES, analyzer.run(new BufferedReader(new StringReader(input)), expected), "linhas locais");
+        }
+
+        ExecutorService threads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, 1, 0, true, SHARD_SIZE)) {
+            StringWriter output = new StringWriter();
+            Future<Long> run = threads.submit(() -> coordinator.run(new BufferedReader(new StringReader(input)), output));
+
+            CountDownLatch served = new CountDownLatch(2);
+            CountDownLatch finished = new CountDownLatch(1);
+            // Recebe um lote e fecha a conexão, como um processo que morreu
+            threads.submit(() -> {
+                try (Socket socket = new Socket("localhost", coordinator.port())) {
+                    takeShards(socket, 1);
+                }
+                served.countDown();
+                return null;
+            });
+            // Recebe dois lotes e nunca mais envia nada, como um processo congelado
+            threads.submit(() -> {
+                try (Socket socket = new Socket("localhost", coordinator.port())) {
+                    takeShards(socket, 2);
+                    served.countDown();
+                    finished.await();
+                }
+                return null;
+            });
+            assertTrue(served.await(10, TimeUnit.SECONDS), "os trabalhadores com falha receberam lotes");
+
+            Future<Long> worker = threads.submit(() -> {
+                try (AnalysisWorker analysisWorker = new AnalysisWorker("localhost", coordinator.port(), 2)) {
+                    return analysisWorker.run();
+                }
+            });
+
+            assertEquals(LINES, (long) run.get(60, TimeUnit.SECONDS), "linhas escritas");
+            finished.countDown();
+            assertEquals(expected.toString(), output.toString(), "saída igual à do BatchAnalyzer");
+            assertTrue(coordinator.retriedShards() >= 1, "o lote do trabalhador que caiu foi refeito");
+            assertEquals(0, coordinator.failedShards(), "nenhum lote perdido");
+            // Entre um trabalho e outro o trabalhador continua conectado esperando; ele só termina quando o servidor fecha
+            coordinator.close();
+            assertTrue(worker.get(10, TimeUnit.SECONDS) >= LINES - 3 * SHARD_SIZE, "o trabalhador normal analisou o resto");
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Faz o papel de um trabalhador até receber a quantidade de lotes dada, pedindo de novo enquanto receber
+     * {@link WorkProtocol#WAIT}
+     */
+    private static void takeShards(Socket socket, int count) throws IOException, InterruptedException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeByte(WorkProtocol.HELLO);
+        out.writeInt(WorkProtocol.MAGIC);
+        out.writeInt(1);
+        assertEquals(WorkProtocol.CONFIG, in.readByte(), "configuração");
+        in.readInt();
+        in.readLong();
+        in.readBoolean();
+
+        int received = 0;
+        while (received < count) {
+            out.writeByte(WorkProtocol.REQUEST);
+            out.writeInt(count - received);
+            out.flush();
+            while (received < count) {
+                byte type = in.readByte();
+                if (type == WorkProtocol.WAIT) {
+                    in.readInt();
+                    Thread.sleep(50);
+                    break;
+                }
+                assertEquals(WorkProtocol.SHARD, type, "lote");
+                in.readInt();
+                WorkProtocol.readLines(in);
+                received++;
+            }
+        }
+    }
+
+    private static String randomPositions(Random random) {
+        StringBuilder text = new StringBuilder();
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        for (int line = 0; line < LINES; line++) {
+            Position position = Position.startPosition();
+            int plies = random.nextInt(40);
+            for (int ply = 0; ply < plies; ply++) {
+                int count = MoveGen.generate(position, moves);
+                if (count == 0) {
+                    break;
+                }
+                position.make(moves[random.nextInt(count)]);
+            }
+            text.append(Fen.toFen(position)).append('\n');
+        }
+        return text.toString();
+    }
+}
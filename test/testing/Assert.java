@@ -0,0 +1,35 @@
+package testing;
+
+import java.util.Objects;
+
+/**
+ * Verificações usadas pelos testes. Como o projeto não depende de bibliotecas externas, cada teste é uma classe com um
+ * método {@code main} que lança {@link AssertionError} na primeira falha (ver {@link TestRunner})
+ */
+public final class Assert {
+
+    private Assert() {
+    }
+
+    public static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void assertFalse(boolean condition, String message) {
+        assertTrue(!condition, message);
+    }
+
+    public static void assertEquals(long expected, long actual, String message) {
+        if (expected != actual) {
+            throw new AssertionError(message + ": esperado " + expected + ", obtido " + actual);
+        }
+    }
+
+    public static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": esperado " + expected + ", obtido " + actual);
+        }
+    }
+}
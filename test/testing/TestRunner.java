@@ -0,0 +1,59 @@
+package testing;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Executa todos os testes: as classes terminadas em {@code Test} no diretório de classes compiladas de onde esta
+ * classe foi carregada. Cada teste é executado pelo seu método {@code main}, e qualquer exceção conta como falha.
+ * <p>
+ * Para compilar e executar, a partir da raiz do projeto:
+ * <pre>
+ * javac -encoding UTF-8 -d out/main $(find src -name '*.java')
+ * javac -encoding UTF-8 -cp out/main -d out/test $(find test -name '*.java')
+ * java -Djava.awt.headless=true -cp out/main:out/test:src/res testing.TestRunner
+ * </pre>
+ */
+public final class TestRunner {
+
+    private TestRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, URISyntaxException, ReflectiveOperationException {
+        Path root = Paths.get(TestRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> tests;
+        try (Stream<Path> files = Files.walk(root)) {
+            tests = files.map(file -> root.relativize(file).toString())
+                    .filter(name -> name.endsWith("Test.class"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()).replace(java.io.File.separatorChar, '.'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        int failed = 0;
+        for (String test : tests) {
+            Method main = Class.forName(test).getMethod("main", String[].class);
+            long start = System.nanoTime();
+            try {
+                main.invoke(null, (Object) new String[0]);
+                System.out.printf("ok    %s (%d ms)%n", test, (System.nanoTime() - start) / 1_000_000);
+            } catch (InvocationTargetException e) {
+                failed++;
+                System.out.println("FALHA " + test);
+                e.getCause().printStackTrace(System.out);
+            }
+        }
+        System.out.println(tests.size() - failed + " de " + tests.size() + " testes passaram");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}